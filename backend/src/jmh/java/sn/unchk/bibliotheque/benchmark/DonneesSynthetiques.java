@@ -0,0 +1,118 @@
+package sn.unchk.bibliotheque.benchmark;
+
+import sn.unchk.bibliotheque.entity.*;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Jeux de données reproductibles (graine fixe) et dépôts en mémoire pour les benchmarks
+ * qui n'ont pas besoin d'une base.
+ */
+final class DonneesSynthetiques {
+
+    private static final String[] LANGUES = {"Français", "Anglais", "Wolof", "Arabe"};
+
+    private DonneesSynthetiques() {}
+
+    static List<Categorie> categories(int n) {
+        List<Categorie> categories = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            Categorie c = new Categorie();
+            c.setId((long) i);
+            c.setNom("Catégorie " + i);
+            categories.add(c);
+        }
+        return categories;
+    }
+
+    static List<Livre> livres(int n, List<Categorie> categories) {
+        Random random = new Random(42);
+        List<Livre> livres = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            Auteur a = new Auteur();
+            a.setId((long) (i % 50 + 1));
+            a.setNomComplet("Auteur " + a.getId());
+
+            Livre l = new Livre();
+            l.setId((long) i);
+            l.setTitre("Titre du livre numéro " + i);
+            l.setIsbn("978-" + (1_000_000_000L + i));
+            l.setLangue(LANGUES[i % LANGUES.length]);
+            l.setDatePublication(LocalDate.of(1950 + random.nextInt(75), 1 + random.nextInt(12), 1));
+            l.setNbPages(80 + random.nextInt(600));
+            l.setNbExemplaires(random.nextInt(6));
+            l.setDescription("Résumé synthétique du livre " + i + ", utilisé pour mesurer la sérialisation.");
+            l.setCover("http://localhost:8080/api/couvertures/" + Integer.toHexString(i) + ".jpg");
+            l.setAuteur(a);
+            l.setCategorie(categories.get(i % categories.size()));
+            l.setNbEmprunts(random.nextInt(200));
+            livres.add(l);
+        }
+        return livres;
+    }
+
+    static List<Emprunt> emprunts(int n, List<Livre> livres) {
+        Random random = new Random(7);
+        List<Emprunt> emprunts = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            Utilisateur u = new Utilisateur();
+            u.setId((long) (i % 500 + 1));
+            u.setNomComplet("Lecteur " + u.getId());
+            u.setEmail("lecteur" + u.getId() + "@lib.sn");
+
+            LocalDate debut = LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365));
+            Emprunt e = new Emprunt();
+            e.setId((long) i);
+            e.setUtilisateur(u);
+            // Distribution biaisée : quelques livres très empruntés
+            e.setLivre(livres.get((int) Math.min(livres.size() - 1, Math.abs(random.nextGaussian()) * livres.size() / 4)));
+            e.setDateDemande(debut.minusDays(1));
+            e.setDateEmprunt(debut);
+            e.setDateLimiteRetour(debut.plusDays(14));
+            e.setRendu(random.nextBoolean());
+            e.setDateRetour(e.isRendu() ? debut.plusDays(random.nextInt(20)) : null);
+            e.setStatut(StatutEmprunt.VALIDE);
+            emprunts.add(e);
+        }
+        return emprunts;
+    }
+
+    static List<StatistiqueEmprunt> statistiques(int annee, List<Emprunt> emprunts) {
+        Map<List<Object>, StatistiqueEmprunt> lignes = new LinkedHashMap<>();
+        for (Emprunt e : emprunts) {
+            int mois = e.getDateEmprunt().getMonthValue();
+            long cat = e.getLivre().getCategorie().getId();
+            incrementer(lignes, DimensionStatistique.MOIS, 0L, annee, mois);
+            incrementer(lignes, DimensionStatistique.CATEGORIE, cat, annee, 0);
+        }
+        return new ArrayList<>(lignes.values());
+    }
+
+    private static void incrementer(Map<List<Object>, StatistiqueEmprunt> lignes,
+                                    DimensionStatistique dimension, long cle, int annee, int mois) {
+        StatistiqueEmprunt s = lignes.computeIfAbsent(List.of(dimension, cle, annee, mois),
+                k -> new StatistiqueEmprunt(dimension, cle, annee, mois));
+        s.setNbEmprunts(s.getNbEmprunts() + 1);
+    }
+
+    /**
+     * Implémentation en mémoire d'une interface de dépôt : seules les méthodes listées répondent,
+     * les autres lèvent UnsupportedOperationException.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T depot(Class<T> type, Map<String, Function<Object[], Object>> methodes) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, m, args) -> {
+            Function<Object[], Object> impl = methodes.get(m.getName());
+            if (impl != null) return impl.apply(args);
+            if (m.getName().equals("toString")) return type.getSimpleName() + "EnMemoire";
+            throw new UnsupportedOperationException(m.getName());
+        });
+    }
+}
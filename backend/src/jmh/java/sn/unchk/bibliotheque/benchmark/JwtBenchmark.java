@@ -0,0 +1,68 @@
+package sn.unchk.bibliotheque.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import sn.unchk.bibliotheque.security.JwtUtil;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coût d'authentification par requête : ancien pipeline (parseur reconstruit, jeton vérifié
+ * trois fois) contre le pipeline actuel (parseur réutilisé, une seule vérification).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+
+    private JwtUtil jwtUtil;
+    private SecretKey key;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil(SECRET, 3_600_000L);
+        key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        userDetails = User.withUsername("lecteur@lib.sn").password("x").roles("LECTEUR").build();
+        token = jwtUtil.generateToken(userDetails);
+    }
+
+    // 🔹 Avant : extractUsername + validateToken (sujet + expiration) + rôle, nouveau parseur à chaque appel
+    @Benchmark
+    public boolean avant() {
+        String username = ancienExtract(token, Claims::getSubject);
+        boolean valide = username.equals(userDetails.getUsername())
+                && !ancienExtract(token, Claims::getExpiration).before(new Date());
+        String role = ancienExtract(token, c -> c.get("role", String.class));
+        return valide && role != null;
+    }
+
+    // 🔹 Après : une vérification, vue immuable du jeton
+    @Benchmark
+    public boolean apres() {
+        JwtUtil.JetonVerifie jeton = jwtUtil.verifier(token);
+        return jwtUtil.validateToken(jeton, userDetails) && jeton.role() != null;
+    }
+
+    @Benchmark
+    public String generer() {
+        return jwtUtil.generateToken(userDetails);
+    }
+
+    private <T> T ancienExtract(String jwt, Function<Claims, T> fn) {
+        return fn.apply(Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody());
+    }
+}
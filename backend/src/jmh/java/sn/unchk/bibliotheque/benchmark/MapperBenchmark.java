@@ -0,0 +1,49 @@
+package sn.unchk.bibliotheque.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import sn.unchk.bibliotheque.entity.Emprunt;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.mapper.EmpruntMapper;
+import sn.unchk.bibliotheque.mapper.LivreMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion entité → DTO d'une page de résultats (taille de page courante et maximale).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    @Param({"20", "100"})
+    private int taille;
+
+    private List<Livre> livres;
+    private List<Emprunt> emprunts;
+
+    @Setup
+    public void setup() {
+        livres = DonneesSynthetiques.livres(taille, DonneesSynthetiques.categories(10));
+        emprunts = DonneesSynthetiques.emprunts(taille, livres);
+    }
+
+    @Benchmark
+    public void livreToDTO(Blackhole bh) {
+        for (Livre l : livres) {
+            bh.consume(LivreMapper.toDTO(l));
+        }
+    }
+
+    @Benchmark
+    public void empruntToDTO(Blackhole bh) {
+        for (Emprunt e : emprunts) {
+            bh.consume(EmpruntMapper.toDTO(e));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package sn.unchk.bibliotheque.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import sn.unchk.bibliotheque.dto.LivreDTO;
+import sn.unchk.bibliotheque.mapper.LivreMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sérialisation Jackson d'une liste de LivreDTO, configurée comme le ObjectMapper de l'application
+ * (modules java.time, dates ISO).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerialisationBenchmark {
+
+    @Param({"20", "100", "1000"})
+    private int taille;
+
+    private ObjectWriter writer;
+    private List<LivreDTO> livres;
+
+    @Setup
+    public void setup() {
+        writer = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build()
+                .writerFor(LivreDTO[].class);
+        livres = DonneesSynthetiques.livres(taille, DonneesSynthetiques.categories(10))
+                .stream().map(LivreMapper::toDTO).toList();
+    }
+
+    @Benchmark
+    public byte[] livresEnJson() throws JsonProcessingException {
+        return writer.writeValueAsBytes(livres.toArray(new LivreDTO[0]));
+    }
+}
@@ -0,0 +1,130 @@
+package sn.unchk.bibliotheque.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import sn.unchk.bibliotheque.entity.Categorie;
+import sn.unchk.bibliotheque.entity.Emprunt;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.entity.StatistiqueEmprunt;
+import sn.unchk.bibliotheque.entity.StatutEmprunt;
+import sn.unchk.bibliotheque.repository.CategorieRepository;
+import sn.unchk.bibliotheque.repository.EmpruntRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+import sn.unchk.bibliotheque.repository.StatistiqueEmpruntRepository;
+import sn.unchk.bibliotheque.service.ClassementLivresService;
+import sn.unchk.bibliotheque.service.EmpruntService;
+import sn.unchk.bibliotheque.service.StatistiqueEmpruntService;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Agrégations du dashboard sur des dépôts en mémoire : on mesure le travail fait en Java
+ * (regroupements, tri, mise en forme), pas la base.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatistiquesBenchmark {
+
+    @Param({"1000", "100000"})
+    private int nbEmprunts;
+
+    private EmpruntService empruntService;
+    private ClassementLivresService classementService;
+    private List<Emprunt> emprunts;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        int annee = LocalDate.now().getYear();
+        List<Categorie> categories = DonneesSynthetiques.categories(12);
+        List<Livre> livres = DonneesSynthetiques.livres(2000, categories);
+        emprunts = DonneesSynthetiques.emprunts(nbEmprunts, livres);
+        List<StatistiqueEmprunt> statistiques = DonneesSynthetiques.statistiques(annee, emprunts);
+
+        EmpruntRepository empruntRepo = DonneesSynthetiques.depot(EmpruntRepository.class, Map.of(
+                "findByStatut", args -> emprunts));
+        StatistiqueEmpruntRepository statRepo = DonneesSynthetiques.depot(StatistiqueEmpruntRepository.class, Map.of(
+                "findByDimensionAndCleAndAnnee", args -> statistiques.stream()
+                        .filter(s -> s.getDimension() == args[0] && s.getCle() == (long) args[1] && s.getAnnee() == (int) args[2])
+                        .toList(),
+                "findByDimensionAndAnneeAndMois", args -> statistiques.stream()
+                        .filter(s -> s.getDimension() == args[0] && s.getAnnee() == (int) args[1] && s.getMois() == (int) args[2])
+                        .toList()));
+        CategorieRepository categorieRepo = DonneesSynthetiques.depot(CategorieRepository.class, Map.of(
+                "findAllById", args -> {
+                    Set<Object> ids = new HashSet<>();
+                    ((Iterable<?>) args[0]).forEach(ids::add);
+                    return categories.stream().filter(c -> ids.contains(c.getId())).toList();
+                }));
+
+        StatistiqueEmpruntService statistiqueService = new StatistiqueEmpruntService(statRepo, categorieRepo, null);
+        empruntService = new EmpruntService(empruntRepo, null, null, categorieRepo, statistiqueService, null, event -> {});
+
+        // Classement : compteurs persistés = nombre d'emprunts générés par livre
+        Map<Long, Long> parLivre = emprunts.stream()
+                .collect(Collectors.groupingBy(e -> e.getLivre().getId(), Collectors.counting()));
+        Map<Long, Livre> livresParId = livres.stream().collect(Collectors.toMap(Livre::getId, l -> l));
+        LivreRepository livreRepo = DonneesSynthetiques.depot(LivreRepository.class, Map.of(
+                "findClassement", args -> parLivre.entrySet().stream()
+                        .map(e -> new Object[]{e.getKey(), e.getValue()})
+                        .toList(),
+                "findAllById", args -> {
+                    List<Livre> trouves = new ArrayList<>();
+                    ((Iterable<?>) args[0]).forEach(id -> trouves.add(livresParId.get(id)));
+                    return trouves;
+                }));
+        LocalDate aujourdhui = LocalDate.now();
+        EmpruntRepository fenetreRepo = DonneesSynthetiques.depot(EmpruntRepository.class, Map.of(
+                "compterEmpruntsParLivreEtJour", args -> emprunts.stream()
+                        .collect(Collectors.groupingBy(e -> List.of(e.getLivre().getId(),
+                                aujourdhui.minusDays(e.getId() % 30)), Collectors.counting()))
+                        .entrySet().stream()
+                        .map(e -> new Object[]{e.getKey().get(0), e.getKey().get(1), e.getValue()})
+                        .toList()));
+        classementService = new ClassementLivresService(livreRepo, fenetreRepo, evenement -> { }, 50);
+        classementService.reconstruire();
+        random = new Random(3);
+    }
+
+    // 🔹 Avant : tous les emprunts VALIDE regroupés par livre puis triés à chaque appel
+    @Benchmark
+    public Object topLivresAvant() {
+        return emprunts.stream()
+                .filter(e -> e.getStatut() == StatutEmprunt.VALIDE)
+                .collect(Collectors.groupingBy(Emprunt::getLivre, Collectors.counting()))
+                .entrySet().stream()
+                .sorted((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()))
+                .limit(5)
+                .map(e -> Map.of("titre", e.getKey().getTitre(), "emprunts", e.getValue().intValue()))
+                .toList();
+    }
+
+    // 🔹 Après : lecture du classement maintenu (K = 50)
+    @Benchmark
+    public Object topLivres() {
+        return classementService.topLivres(ClassementLivresService.Periode.TOUT, 5);
+    }
+
+    // Coût d'une validation sur les trois classements
+    @Benchmark
+    public void enregistrerEmprunt() {
+        Emprunt e = emprunts.get(random.nextInt(emprunts.size()));
+        classementService.enregistrerEmprunt(e.getLivre().getId(), 1_000_000 + random.nextInt(1000), LocalDate.now());
+    }
+
+    @Benchmark
+    public Object statsMensuels() {
+        return empruntService.getStatsMensuels();
+    }
+
+    @Benchmark
+    public Object repartitionParGenre() {
+        return empruntService.getRepartitionParGenre();
+    }
+}
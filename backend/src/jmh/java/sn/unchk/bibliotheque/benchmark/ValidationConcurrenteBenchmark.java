@@ -0,0 +1,123 @@
+package sn.unchk.bibliotheque.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import sn.unchk.bibliotheque.BibliothequeApplication;
+import sn.unchk.bibliotheque.entity.Emprunt;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.entity.StatutEmprunt;
+import sn.unchk.bibliotheque.entity.Utilisateur;
+import sn.unchk.bibliotheque.repository.EmpruntRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+import sn.unchk.bibliotheque.repository.UtilisateurRepository;
+import sn.unchk.bibliotheque.service.EmpruntService;
+
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test de charge de la validation : 8 threads valident en parallèle des demandes portant
+ * sur un même livre dont le stock est inférieur au nombre de demandes.
+ * Chaque itération vérifie ensuite qu'il n'y a ni survente ni compteur incohérent
+ * (une violation fait échouer le benchmark).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = ValidationConcurrenteBenchmark.VALIDATIONS_PAR_THREAD)
+@Measurement(iterations = 5, batchSize = ValidationConcurrenteBenchmark.VALIDATIONS_PAR_THREAD)
+@Threads(ValidationConcurrenteBenchmark.THREADS)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationConcurrenteBenchmark {
+
+    static final int THREADS = 8;
+    static final int VALIDATIONS_PAR_THREAD = 100;
+    private static final int STOCK = 50;
+
+    private ConfigurableApplicationContext context;
+    private EmpruntService empruntService;
+    private EmpruntRepository empruntRepository;
+    private LivreRepository livreRepository;
+    private Utilisateur lecteur;
+
+    private final AtomicInteger iteration = new AtomicInteger();
+    private final AtomicInteger prochaine = new AtomicInteger();
+    private final AtomicInteger refusees = new AtomicInteger();
+    private List<Long> demandes;
+    private Long livreId;
+
+    @Setup(Level.Trial)
+    public void demarrer() throws Exception {
+        context = SpringApplication.run(BibliothequeApplication.class,
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--app.recherche.index-dir=" + Files.createTempDirectory("bench-index"),
+                "--app.couvertures.dir=" + Files.createTempDirectory("bench-covers"));
+        empruntService = context.getBean(EmpruntService.class);
+        empruntRepository = context.getBean(EmpruntRepository.class);
+        livreRepository = context.getBean(LivreRepository.class);
+        lecteur = context.getBean(UtilisateurRepository.class).findAll().get(0);
+    }
+
+    // ✅ Un livre neuf et THREADS × VALIDATIONS_PAR_THREAD demandes en attente par itération
+    @Setup(Level.Iteration)
+    public void preparer() {
+        int n = iteration.incrementAndGet();
+        Livre livre = new Livre();
+        livre.setTitre("Livre de charge " + n);
+        livre.setIsbn("BENCH-" + n + "-" + System.nanoTime());
+        livre.setNbExemplaires(STOCK);
+        livre = livreRepository.save(livre);
+        livreId = livre.getId();
+
+        List<Emprunt> nouvelles = new ArrayList<>();
+        for (int i = 0; i < THREADS * VALIDATIONS_PAR_THREAD; i++) {
+            Emprunt e = new Emprunt();
+            e.setUtilisateur(lecteur);
+            e.setLivre(livre);
+            e.setDateDemande(LocalDate.now());
+            e.setStatut(StatutEmprunt.EN_ATTENTE);
+            nouvelles.add(e);
+        }
+        demandes = empruntRepository.saveAll(nouvelles).stream().map(Emprunt::getId).toList();
+        prochaine.set(0);
+        refusees.set(0);
+    }
+
+    @Benchmark
+    public void valider() {
+        Long id = demandes.get(prochaine.getAndIncrement());
+        try {
+            empruntService.valider(id, 14);
+        } catch (IllegalStateException e) {
+            refusees.incrementAndGet(); // stock épuisé : refus attendu
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifier() {
+        Livre livre = livreRepository.findById(livreId).orElseThrow();
+        long validees = empruntRepository.findAll().stream()
+                .filter(e -> livreId.equals(e.getLivre().getId()) && e.getStatut() == StatutEmprunt.VALIDE)
+                .count();
+        int tentees = prochaine.get();
+        if (livre.getNbExemplaires() != 0 || validees != STOCK || livre.getNbEmprunts() != STOCK
+                || livre.getNbEmpruntsEnCours() != STOCK || validees + refusees.get() != tentees) {
+            throw new IllegalStateException("Invariant de stock violé : stock=" + livre.getNbExemplaires()
+                    + ", validées=" + validees + ", compteur=" + livre.getNbEmprunts()
+                    + ", refusées=" + refusees.get() + ", tentées=" + tentees);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        context.close();
+    }
+}
@@ -2,8 +2,10 @@ package sn.unchk.bibliotheque;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BibliothequeApplication {
     public static void main(String[] args) {
         SpringApplication.run(BibliothequeApplication.class, args);
@@ -3,9 +3,11 @@ package sn.unchk.bibliotheque;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import sn.unchk.bibliotheque.entity.*;
 import sn.unchk.bibliotheque.repository.*;
+import sn.unchk.bibliotheque.service.EmpruntService;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -14,19 +16,21 @@ import java.util.List;
 public class DataInitializer {
 
     @Bean
+    @Order(0) // avant le générateur de données (profil « generateur »)
     CommandLineRunner initData(UtilisateurRepository utilisateurRepository,
                                AuteurRepository auteurRepository,
                                CategorieRepository categorieRepository,
                                LivreRepository livreRepository,
                                EmpruntRepository empruntRepository,
                                AvisRepository avisRepository,
+                               EmpruntService empruntService,
                                PasswordEncoder passwordEncoder) {
         return args -> {
 
             // ==========================
             // Utilisateurs
             // ==========================
-            if (utilisateurRepository.findAll().stream().noneMatch(u -> u.getRole() == Role.ADMIN)) {
+            if (!utilisateurRepository.existsByRole(Role.ADMIN)) {
                 Utilisateur admin = new Utilisateur();
                 admin.setNomComplet("Admin");
                 admin.setEmail("admin@lib.sn");
@@ -39,7 +43,7 @@ public class DataInitializer {
                 System.out.println("✅ Admin créé : admin@lib.sn / passer");
             }
 
-            if (utilisateurRepository.findAll().stream().noneMatch(u -> u.getRole() == Role.LECTEUR)) {
+            if (!utilisateurRepository.existsByRole(Role.LECTEUR)) {
                 Utilisateur lecteur1 = new Utilisateur();
                 lecteur1.setNomComplet("Mamadou");
                 lecteur1.setEmail("mamadou@lib.sn");
@@ -179,6 +183,7 @@ public class DataInitializer {
                 e1.setDateEmprunt(LocalDate.now().minusDays(5));
                 e1.setDateLimiteRetour(LocalDate.now().plusDays(10));
                 e1.setDateRetour(null);
+                e1.setStatut(StatutEmprunt.VALIDE);
 
                 Emprunt e2 = new Emprunt();
                 e2.setUtilisateur(awa);
@@ -186,8 +191,14 @@ public class DataInitializer {
                 e2.setDateEmprunt(LocalDate.now().minusDays(2));
                 e2.setDateLimiteRetour(LocalDate.now().plusDays(12));
                 e2.setDateRetour(null);
+                e2.setStatut(StatutEmprunt.VALIDE);
 
                 empruntRepository.saveAll(List.of(e1, e2));
+                // Stock disponible = total - emprunts en cours : chaque prêt actif sort un exemplaire
+                alchimiste.setNbExemplaires(alchimiste.getNbExemplaires() - 1);
+                petitPrince.setNbExemplaires(petitPrince.getNbExemplaires() - 1);
+                livreRepository.saveAll(List.of(alchimiste, petitPrince));
+                empruntService.reconcilierCompteurs(); // nbEmprunts / nbEmpruntsEnCours des livres empruntés
                 System.out.println("✅ Emprunts créés");
             }
 
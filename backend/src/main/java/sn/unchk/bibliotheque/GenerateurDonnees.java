@@ -0,0 +1,296 @@
+package sn.unchk.bibliotheque;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+import sn.unchk.bibliotheque.service.StatistiqueEmpruntService;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Générateur de données volumineuses (profil « generateur ») pour mesurer les performances
+ * sur une bibliothèque de taille réelle. Reproductible à partir d'une graine, insertion par lots
+ * JDBC, et seuls les identifiants (long[]) sont gardés en mémoire : jamais les lignes.
+ */
+@Component
+@Profile("generateur")
+@Order // après DataInitializer
+public class GenerateurDonnees implements CommandLineRunner {
+
+    private static final String[] GENRES = {"Roman", "Science", "Philosophie", "Histoire", "Poésie",
+            "Jeunesse", "Informatique", "Économie", "Droit", "Religion", "Biographie", "Théâtre"};
+    private static final String[] LANGUES = {"Français", "Anglais", "Wolof", "Arabe", "Portugais", "Espagnol"};
+    private static final String[] NATIONALITES = {"Sénégalaise", "Française", "Malienne", "Ivoirienne",
+            "Britannique", "Brésilienne", "Marocaine", "Américaine"};
+    private static final String[] PRENOMS = {"Mamadou", "Awa", "Fatou", "Ousmane", "Aïssatou", "Cheikh",
+            "Mariama", "Ibrahima", "Khady", "Moussa", "Ndeye", "Abdoulaye", "Binta", "Modou", "Coumba"};
+    private static final String[] NOMS = {"Diop", "Ndiaye", "Fall", "Sow", "Ba", "Sarr", "Faye", "Diallo",
+            "Gueye", "Cissé", "Mbaye", "Thiam", "Kane", "Seck", "Camara"};
+    private static final String[] MOTS = {"voyage", "mémoire", "fleuve", "savane", "étoile", "histoire",
+            "royaume", "enfance", "lumière", "destin", "science", "océan", "village", "sagesse", "guerre",
+            "amour", "silence", "ville", "exil", "héritage", "nuit", "soleil", "chemin", "parole"};
+    private static final String[] COMMENTAIRES = {"Excellent livre, je recommande.", "Lecture agréable.",
+            "Un peu long mais intéressant.", "Pas convaincu par la fin.", "Un classique incontournable.",
+            "Très instructif.", "Style difficile à suivre."};
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transaction;
+    private final PasswordEncoder passwordEncoder;
+    private final LivreRepository livreRepository;
+    private final StatistiqueEmpruntService statistiqueService;
+
+    @Value("${app.generateur.graine:42}") private long graine;
+    @Value("${app.generateur.utilisateurs:10000}") private int nbUtilisateurs;
+    @Value("${app.generateur.auteurs:2000}") private int nbAuteurs;
+    @Value("${app.generateur.categories:40}") private int nbCategories;
+    @Value("${app.generateur.livres:50000}") private int nbLivres;
+    @Value("${app.generateur.emprunts:1000000}") private int nbEmprunts;
+    @Value("${app.generateur.avis:100000}") private int nbAvis;
+    @Value("${app.generateur.annees:5}") private int annees;
+    @Value("${app.generateur.taille-lot:2000}") private int tailleLot;
+
+    @FunctionalInterface
+    private interface Ligne {
+        void remplir(PreparedStatement ps, int i) throws SQLException;
+    }
+
+    public GenerateurDonnees(JdbcTemplate jdbc,
+                             PlatformTransactionManager transactionManager,
+                             PasswordEncoder passwordEncoder,
+                             LivreRepository livreRepository,
+                             StatistiqueEmpruntService statistiqueService) {
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.livreRepository = livreRepository;
+        this.statistiqueService = statistiqueService;
+    }
+
+    @Override
+    public void run(String... args) {
+        Long deja = jdbc.queryForObject("SELECT COUNT(*) FROM utilisateurs WHERE email = ?", Long.class, email(0));
+        if (deja != null && deja > 0) {
+            System.out.println("✅ Données de la graine " + graine + " déjà générées, rien à faire");
+            return;
+        }
+
+        long debut = System.currentTimeMillis();
+        Random random = new Random(graine);
+        LocalDate aujourdhui = LocalDate.now();
+        int joursHistorique = Math.max(1, annees * 365);
+
+        // ==========================
+        // Utilisateurs (un seul hachage BCrypt partagé : « passer »)
+        // ==========================
+        String motDePasse = passwordEncoder.encode("passer");
+        long[] utilisateurs = inserer("utilisateurs",
+                "INSERT INTO utilisateurs (nom_complet, email, password, date_naissance, role, actif, date_inscription) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                nbUtilisateurs, (ps, i) -> {
+                    ps.setString(1, PRENOMS[random.nextInt(PRENOMS.length)] + " " + NOMS[random.nextInt(NOMS.length)]);
+                    ps.setString(2, email(i));
+                    ps.setString(3, motDePasse);
+                    ps.setDate(4, Date.valueOf(LocalDate.of(1950 + random.nextInt(55), 1 + random.nextInt(12), 1 + random.nextInt(28))));
+                    ps.setString(5, "LECTEUR");
+                    ps.setBoolean(6, random.nextInt(50) != 0);
+                    ps.setDate(7, Date.valueOf(aujourdhui.minusDays(random.nextInt(joursHistorique))));
+                });
+
+        // ==========================
+        // Catégories et auteurs
+        // ==========================
+        long[] categories = inserer("categories", "INSERT INTO categories (nom) VALUES (?)",
+                nbCategories, (ps, i) -> ps.setString(1, GENRES[i % GENRES.length] + " " + (i / GENRES.length + 1) + " (" + graine + ")"));
+
+        long[] auteurs = inserer("auteurs",
+                "INSERT INTO auteurs (nom_complet, nationalite, biographie, date_naissance, date_deces, cree_par) VALUES (?, ?, ?, ?, ?, ?)",
+                nbAuteurs, (ps, i) -> {
+                    LocalDate naissance = LocalDate.of(1850 + random.nextInt(150), 1 + random.nextInt(12), 1 + random.nextInt(28));
+                    ps.setString(1, PRENOMS[random.nextInt(PRENOMS.length)] + " " + NOMS[random.nextInt(NOMS.length)] + " " + i);
+                    ps.setString(2, NATIONALITES[random.nextInt(NATIONALITES.length)]);
+                    ps.setString(3, texte(random, 20, 60));
+                    ps.setDate(4, Date.valueOf(naissance));
+                    if (random.nextInt(3) == 0) {
+                        ps.setDate(5, Date.valueOf(naissance.plusYears(40 + random.nextInt(50))));
+                    } else {
+                        ps.setNull(5, Types.DATE);
+                    }
+                    ps.setLong(6, utilisateurs[random.nextInt(utilisateurs.length)]);
+                });
+
+        // ==========================
+        // Livres (compteurs recalculés à la fin)
+        // ==========================
+        int[] exemplaires = new int[nbLivres];
+        long[] livres = inserer("livres",
+                "INSERT INTO livres (titre, isbn, langue, date_publication, nb_pages, nb_exemplaires, description, cover, auteur_id, categorie_id, nb_emprunts, nb_emprunts_en_cours) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0)",
+                nbLivres, (ps, i) -> {
+                    ps.setString(1, capitaliser(texte(random, 1, 5)));
+                    ps.setString(2, "GEN-" + graine + "-" + i);
+                    ps.setString(3, LANGUES[Math.min(LANGUES.length - 1, (int) (LANGUES.length * Math.pow(random.nextDouble(), 2)))]);
+                    ps.setDate(4, Date.valueOf(LocalDate.of(1900 + random.nextInt(125), 1 + random.nextInt(12), 1)));
+                    ps.setInt(5, 60 + random.nextInt(800));
+                    exemplaires[i] = 1 + random.nextInt(8);
+                    ps.setInt(6, exemplaires[i]);
+                    ps.setString(7, capitaliser(texte(random, 30, 90)) + ".");
+                    ps.setNull(8, Types.VARCHAR);
+                    ps.setLong(9, auteurs[random.nextInt(auteurs.length)]);
+                    ps.setLong(10, categories[random.nextInt(categories.length)]);
+                });
+
+        // ==========================
+        // Emprunts : popularité très concentrée (quelques titres font l'essentiel des prêts).
+        // Jamais plus de prêts en cours que d'exemplaires : le stock est décrémenté à la fin
+        // ==========================
+        int[] enPret = new int[nbLivres];
+        inserer("emprunts",
+                "INSERT INTO emprunts (utilisateur_id, livre_id, date_demande, date_emprunt, date_limite_retour, date_retour, rendu, statut) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                nbEmprunts, (ps, i) -> {
+                    LocalDate demande = aujourdhui.minusDays(random.nextInt(joursHistorique));
+                    ps.setLong(1, utilisateurs[random.nextInt(utilisateurs.length)]);
+                    int livre = populaire(random, livres.length);
+                    ps.setLong(2, livres[livre]);
+                    ps.setDate(3, Date.valueOf(demande));
+
+                    double p = random.nextDouble();
+                    if (p < 0.08) {
+                        // Demande en attente (récente) ou rejetée
+                        boolean enAttente = p < 0.03 && demande.isAfter(aujourdhui.minusDays(30));
+                        ps.setNull(4, Types.DATE);
+                        ps.setNull(5, Types.DATE);
+                        ps.setNull(6, Types.DATE);
+                        ps.setBoolean(7, false);
+                        ps.setString(8, enAttente ? "EN_ATTENTE" : "REJETE");
+                        return;
+                    }
+                    LocalDate emprunt = demande.plusDays(random.nextInt(3));
+                    if (emprunt.isAfter(aujourdhui)) emprunt = aujourdhui; // demande d'hier validée aujourd'hui
+                    LocalDate limite = emprunt.plusDays(14);
+                    LocalDate retour = emprunt.plusDays(1 + random.nextInt(25));
+                    boolean rendu = retour.isBefore(aujourdhui) && random.nextInt(20) != 0;
+                    if (!rendu && enPret[livre] == exemplaires[livre]) {
+                        // Plus d'exemplaire disponible : ce prêt-là est déjà rendu
+                        rendu = true;
+                        if (retour.isAfter(aujourdhui)) retour = aujourdhui;
+                    } else if (!rendu) {
+                        enPret[livre]++;
+                    }
+                    ps.setDate(4, Date.valueOf(emprunt));
+                    ps.setDate(5, Date.valueOf(limite));
+                    if (rendu) {
+                        ps.setDate(6, Date.valueOf(retour));
+                    } else {
+                        ps.setNull(6, Types.DATE);
+                    }
+                    ps.setBoolean(7, rendu);
+                    ps.setString(8, "VALIDE");
+                });
+
+        // ==========================
+        // Avis
+        // ==========================
+        inserer("avis",
+                "INSERT INTO avis (livre_id, utilisateur_id, note, commentaire, date) VALUES (?, ?, ?, ?, ?)",
+                nbAvis, (ps, i) -> {
+                    ps.setLong(1, livres[populaire(random, livres.length)]);
+                    ps.setLong(2, utilisateurs[random.nextInt(utilisateurs.length)]);
+                    ps.setInt(3, Math.min(5, 1 + (int) (5 * Math.sqrt(random.nextDouble()))));
+                    ps.setString(4, COMMENTAIRES[random.nextInt(COMMENTAIRES.length)]);
+                    ps.setDate(5, Date.valueOf(aujourdhui.minusDays(random.nextInt(joursHistorique))));
+                });
+
+        // ✅ Dénormalisations : stock disponible, compteurs par livre et agrégats du dashboard
+        transaction.executeWithoutResult(s -> {
+            jdbc.update("""
+                    UPDATE livres l SET nb_exemplaires = nb_exemplaires - (SELECT COUNT(*) FROM emprunts e
+                        WHERE e.livre_id = l.id AND e.statut = 'VALIDE' AND e.rendu = FALSE)
+                    WHERE l.isbn LIKE ?
+                    """, "GEN-" + graine + "-%");
+            livreRepository.recalculerCompteursEmprunts();
+        });
+        statistiqueService.reconstruire();
+
+        System.out.println("✅ Génération terminée (graine " + graine + ") en "
+                + (System.currentTimeMillis() - debut) / 1000 + " s");
+    }
+
+    /**
+     * Insère n lignes par lots de tailleLot (une transaction par lot) et retourne les ids créés.
+     */
+    private long[] inserer(String table, String sql, int n, Ligne ligne) {
+        Long maxAvant = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long debut = System.currentTimeMillis();
+
+        for (int offset = 0; offset < n; offset += tailleLot) {
+            int base = offset;
+            int taille = Math.min(tailleLot, n - offset);
+            transaction.executeWithoutResult(s -> jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int j) throws SQLException {
+                    ligne.remplir(ps, base + j);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return taille;
+                }
+            }));
+            int faits = offset + taille;
+            if (faits == n || (faits / tailleLot) % 50 == 0) {
+                System.out.println("🔹 " + table + " : " + faits + " / " + n);
+            }
+        }
+
+        long[] ids = idsApres(table, maxAvant != null ? maxAvant : 0L, n);
+        long duree = Math.max(1, System.currentTimeMillis() - debut);
+        System.out.println("✅ " + table + " : " + n + " lignes (" + (n * 1000L / duree) + " lignes/s)");
+        return ids;
+    }
+
+    private long[] idsApres(String table, long maxAvant, int attendu) {
+        long[] ids = new long[attendu];
+        int[] i = {0};
+        jdbc.query("SELECT id FROM " + table + " WHERE id > ? ORDER BY id", rs -> {
+            if (i[0] == ids.length) return; // insertions concurrentes : ignorées
+            ids[i[0]++] = rs.getLong(1);
+        }, maxAvant);
+        return i[0] == ids.length ? ids : Arrays.copyOf(ids, i[0]);
+    }
+
+    // Loi de puissance : l'indice 0 est le plus emprunté
+    private static int populaire(Random random, int n) {
+        return Math.min(n - 1, (int) (n * Math.pow(random.nextDouble(), 3)));
+    }
+
+    private String email(int i) {
+        return "lecteur" + i + ".g" + graine + "@gen.lib.sn";
+    }
+
+    private static String texte(Random random, int min, int max) {
+        int n = min + random.nextInt(max - min + 1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(MOTS[random.nextInt(MOTS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String capitaliser(String s) {
+        return s.isEmpty() ? s : Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
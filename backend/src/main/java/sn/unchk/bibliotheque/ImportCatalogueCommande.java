@@ -0,0 +1,88 @@
+package sn.unchk.bibliotheque;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import sn.unchk.bibliotheque.dto.ImportRapportDTO;
+import sn.unchk.bibliotheque.service.ImportCatalogueService;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Import du catalogue en ligne de commande (profil « import ») :
+ * java -jar bibliotheque.jar --spring.profiles.active=import --app.import.fichier=acquisitions.csv
+ *     --spring.datasource.url=jdbc:h2:file:./data/bibliotheque
+ * La base doit être persistante : le démarrage échoue si spring.datasource.url désigne une base en mémoire,
+ * ou si spring.jpa.hibernate.ddl-auto recrée le schéma (create, create-drop).
+ * Code de sortie 1 si des lignes ont été rejetées ou si l'import a été interrompu.
+ * Le serveur doit être arrêté (index de recherche partagé).
+ */
+@Component
+@Profile("import")
+@Order
+public class ImportCatalogueCommande implements CommandLineRunner {
+
+    private final ImportCatalogueService importService;
+    private final ConfigurableApplicationContext context;
+    private final String fichier;
+
+    public ImportCatalogueCommande(ImportCatalogueService importService,
+                                   ConfigurableApplicationContext context,
+                                   @Value("${app.import.fichier:}") String fichier) {
+        this.importService = importService;
+        this.context = context;
+        this.fichier = fichier;
+    }
+
+    // Vérifié avant la création des beans : Hibernate recréerait le schéma avant tout constructeur
+    @Bean
+    static BeanFactoryPostProcessor verifierBaseImport() {
+        return beanFactory -> {
+            Environment env = beanFactory.getBean(Environment.class);
+            String urlBase = env.getProperty("spring.datasource.url", "");
+            String ddlAuto = env.getProperty("spring.jpa.hibernate.ddl-auto", "").trim();
+            // ❌ Base en mémoire (défaut de application.properties) : l'import serait perdu à l'arrêt
+            if (urlBase.isBlank() || urlBase.contains(":mem:") || urlBase.contains(":memory:")) {
+                throw new IllegalStateException("Profil import : indiquer la base à alimenter avec "
+                        + "--spring.datasource.url=jdbc:... (base en mémoire refusée : " + urlBase + ")");
+            }
+            // ❌ Schéma recréé au démarrage : le catalogue existant serait effacé avant l'import
+            if (ddlAuto.equalsIgnoreCase("create") || ddlAuto.equalsIgnoreCase("create-drop")) {
+                throw new IllegalStateException("Profil import : spring.jpa.hibernate.ddl-auto=" + ddlAuto
+                        + " effacerait la base ; utiliser update ou none");
+            }
+        };
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (fichier.isBlank()) {
+            System.out.println("❌ Indiquer le fichier : --app.import.fichier=chemin.csv");
+            System.exit(SpringApplication.exit(context, () -> 2));
+        }
+
+        ImportRapportDTO rapport;
+        try (InputStream in = Files.newInputStream(Path.of(fichier))) {
+            rapport = importService.importer(in, r -> System.out.println("🔹 " + r.lignesLues() + " lignes lues ("
+                    + r.crees() + " créées, " + r.misAJour() + " mises à jour, " + r.enErreur() + " en erreur)"));
+        }
+
+        rapport.erreurs().forEach(e -> System.out.println("❌ Ligne " + e.ligne() + " : " + e.message()));
+        if (rapport.interruption() != null) {
+            System.out.println("❌ Import interrompu : " + rapport.interruption());
+        }
+        long debit = rapport.lignesLues() * 1000 / Math.max(1, rapport.dureeMs());
+        System.out.println("✅ Import terminé : " + rapport.crees() + " créés, " + rapport.misAJour() + " mis à jour, "
+                + rapport.enErreur() + " en erreur, " + rapport.dureeMs() + " ms (" + debit + " lignes/s)");
+        System.exit(SpringApplication.exit(context, () -> rapport.enErreur() > 0 || rapport.interruption() != null ? 1 : 0));
+    }
+}
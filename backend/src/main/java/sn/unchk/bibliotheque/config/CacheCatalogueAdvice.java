@@ -0,0 +1,49 @@
+package sn.unchk.bibliotheque.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import sn.unchk.bibliotheque.service.VersionCatalogueService;
+
+/**
+ * Pose l'ETag noté par {@link CacheCatalogueInterceptor} et {@code Cache-Control: public} juste
+ * avant l'écriture du corps, une fois le statut connu : seulement pour une réponse 2xx.
+ */
+@RestControllerAdvice
+public class CacheCatalogueAdvice implements ResponseBodyAdvice<Object> {
+
+    private final VersionCatalogueService version;
+
+    public CacheCatalogueAdvice(VersionCatalogueService version) {
+        this.version = version;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest req) || !(response instanceof ServletServerHttpResponse rep)) {
+            return body;
+        }
+        Object etag = req.getServletRequest().getAttribute(CacheCatalogueInterceptor.ATTRIBUT_ETAG);
+        int statut = rep.getServletResponse().getStatus();
+        if (etag != null && statut >= 200 && statut < 300) {
+            HttpHeaders headers = response.getHeaders();
+            if (headers.getETag() == null) headers.setETag((String) etag);
+            if (headers.getCacheControl() == null) headers.setCacheControl(version.cacheControl());
+        }
+        return body;
+    }
+}
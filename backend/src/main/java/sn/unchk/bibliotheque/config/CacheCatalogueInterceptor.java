@@ -0,0 +1,50 @@
+package sn.unchk.bibliotheque.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import sn.unchk.bibliotheque.service.VersionCatalogueService;
+
+/**
+ * GET conditionnel sur les lectures du catalogue : l'ETag vient de la version en mémoire, donc un
+ * {@code If-None-Match} à jour reçoit 304 sans qu'aucun contrôleur ni aucune requête ne s'exécute.
+ * Sinon l'ETag est seulement noté sur la requête : {@link CacheCatalogueAdvice} ne l'ajoute, avec
+ * {@code Cache-Control}, qu'aux réponses 2xx (une erreur ne doit jamais être mise en cache).
+ */
+public class CacheCatalogueInterceptor implements HandlerInterceptor {
+
+    static final String ATTRIBUT_ETAG = CacheCatalogueInterceptor.class.getName() + ".etag";
+
+    private final VersionCatalogueService version;
+
+    public CacheCatalogueInterceptor(VersionCatalogueService version) {
+        this.version = version;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) return true;
+
+        String etag = version.etag();
+        if (correspond(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, version.cacheControl().getHeaderValue());
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        request.setAttribute(ATTRIBUT_ETAG, etag);
+        return true;
+    }
+
+    // If-None-Match : « * » ou liste d'ETags, faibles (W/) compris
+    private static boolean correspond(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidat : ifNoneMatch.split(",")) {
+            String c = candidat.trim();
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals("*") || c.equals(etag)) return true;
+        }
+        return false;
+    }
+}
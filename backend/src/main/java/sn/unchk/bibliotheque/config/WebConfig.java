@@ -0,0 +1,30 @@
+package sn.unchk.bibliotheque.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import sn.unchk.bibliotheque.service.VersionCatalogueService;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final VersionCatalogueService versionCatalogue;
+
+    public WebConfig(VersionCatalogueService versionCatalogue) {
+        this.versionCatalogue = versionCatalogue;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 🔹 Lectures publiques du catalogue, identiques pour tous les utilisateurs
+        registry.addInterceptor(new CacheCatalogueInterceptor(versionCatalogue))
+                .addPathPatterns(
+                        "/api/livres", "/api/livres/**",
+                        "/api/auteurs", "/api/auteurs/**",
+                        "/api/categories", "/api/genres",
+                        "/api/stats", "/api/avis", "/api/sync")
+                .excludePathPatterns(
+                        "/api/livres/export",       // flux administrateur, jamais mis en cache
+                        "/api/livres/user/status"); // dépend de l'utilisateur connecté
+    }
+}
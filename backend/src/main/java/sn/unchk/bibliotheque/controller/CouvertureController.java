@@ -0,0 +1,37 @@
+package sn.unchk.bibliotheque.controller;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import sn.unchk.bibliotheque.service.CouvertureService;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/couvertures")
+@CrossOrigin(origins = "*")
+public class CouvertureController {
+
+    private final CouvertureService service;
+
+    public CouvertureController(CouvertureService service) {
+        this.service = service;
+    }
+
+    // 🔹 Le nom est le hash du contenu : la réponse ne change jamais, cache d'un an
+    @GetMapping("/{nom:.+}")
+    public ResponseEntity<Resource> get(@PathVariable String nom) {
+        return service.lire(nom)
+                .<ResponseEntity<Resource>>map(fichier -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                        .eTag(nom.substring(0, nom.indexOf('.')))
+                        .contentType(MediaType.parseMediaType(service.contentType(nom)))
+                        // ⚠️ Servi depuis notre origine : aucun script ni ressource, même ouvert directement
+                        .header("Content-Security-Policy", "default-src 'none'")
+                        .body(new FileSystemResource(fichier)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -7,6 +7,9 @@ import sn.unchk.bibliotheque.service.LivreService;
 import sn.unchk.bibliotheque.service.EmpruntService;
 import sn.unchk.bibliotheque.service.AuteurService;
 import sn.unchk.bibliotheque.service.CategorieService;
+import sn.unchk.bibliotheque.service.ClassementLivresService;
+import sn.unchk.bibliotheque.service.DashboardService;
+import sn.unchk.bibliotheque.service.StatistiqueEmpruntService;
 
 import java.util.HashMap;
 import java.util.List;
@@ -22,15 +25,24 @@ public class DashboardController {
     private final EmpruntService empruntService;
     private final AuteurService auteurService;
     private final CategorieService categorieService;
+    private final StatistiqueEmpruntService statistiqueService;
+    private final DashboardService dashboardService;
+    private final ClassementLivresService classementService;
 
     public DashboardController(LivreService livreService,
                                EmpruntService empruntService,
                                AuteurService auteurService,
-                               CategorieService categorieService) {
+                               CategorieService categorieService,
+                               StatistiqueEmpruntService statistiqueService,
+                               DashboardService dashboardService,
+                               ClassementLivresService classementService) {
         this.livreService = livreService;
         this.empruntService = empruntService;
         this.auteurService = auteurService;
         this.categorieService = categorieService;
+        this.statistiqueService = statistiqueService;
+        this.dashboardService = dashboardService;
+        this.classementService = classementService;
     }
 
     // 1️⃣ Métriques principales pour LibraryMetrics
@@ -63,12 +75,14 @@ public class DashboardController {
         }
     }
 
-    // 3️⃣ Top livres empruntés pour TopBooksChart
+    // 3️⃣ Top livres empruntés pour TopBooksChart (periode = tout, 7j ou 30j)
     @GetMapping("/stats/top-livres")
-    public ResponseEntity<List<Map<String, Object>>> getTopLivres() {
+    public ResponseEntity<List<Map<String, Object>>> getTopLivres(@RequestParam(required = false) String periode) {
         try {
-            List<Map<String, Object>> topLivres = empruntService.getTopLivresEmpruntes(10);
+            List<Map<String, Object>> topLivres = classementService.topLivres(ClassementLivresService.Periode.depuis(periode), 10);
             return ResponseEntity.ok(topLivres);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -107,30 +121,19 @@ public class DashboardController {
         }
     }
 
-    // 7️⃣ Endpoint complet pour toutes les données du dashboard (CORRIGÉ)
+    // 🔁 Reconstruction des agrégats statistiques depuis l'historique des emprunts
+    @PostMapping("/stats/reconstruire")
+    public ResponseEntity<Map<String, Object>> reconstruireStats() {
+        Map<String, Object> resultat = new HashMap<>();
+        resultat.put("lignes", statistiqueService.reconstruire());
+        return ResponseEntity.ok(resultat);
+    }
+
+    // 7️⃣ Endpoint complet : widgets calculés en parallèle et mis en cache (DashboardService)
     @GetMapping("/complet")
     public ResponseEntity<Map<String, Object>> getDashboardComplet() {
         try {
-            Map<String, Object> dashboardData = new HashMap<>();
-
-            // Métriques (appel direct aux services pour éviter la récursion)
-            Map<String, Object> metrics = new HashMap<>();
-            metrics.put("booksCount", livreService.count());
-            metrics.put("authorsCount", auteurService.count());
-            metrics.put("loansInProgress", empruntService.countEnCours());
-            metrics.put("pendingRequests", empruntService.countDemandesEnAttente());
-            dashboardData.put("metrics", metrics);
-
-            // Graphiques
-            dashboardData.put("monthlyStats", empruntService.getStatsMensuels());
-            dashboardData.put("topBooks", empruntService.getTopLivresEmpruntes(5));
-            dashboardData.put("genreStats", empruntService.getRepartitionParGenre()); // Changé de "genreDistribution" à "genreStats"
-
-            // Activités récentes
-            dashboardData.put("recentLoans", empruntService.getEmpruntsRecents(5));
-            dashboardData.put("pendingRequests", empruntService.getDemandesEnAttente());
-
-            return ResponseEntity.ok(dashboardData);
+            return ResponseEntity.ok(dashboardService.getDashboardComplet());
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("error", "Erreur lors de la récupération du dashboard complet");
@@ -1,19 +1,32 @@
 package sn.unchk.bibliotheque.controller;
 
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import sn.unchk.bibliotheque.dto.EmpruntDTO;
+import sn.unchk.bibliotheque.dto.EmpruntPageDTO;
+import sn.unchk.bibliotheque.entity.Emprunt;
 import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.entity.StatutEmprunt;
 import sn.unchk.bibliotheque.entity.Utilisateur;
 import sn.unchk.bibliotheque.mapper.EmpruntMapper;
 import sn.unchk.bibliotheque.repository.UtilisateurRepository;
 import sn.unchk.bibliotheque.service.EmpruntService;
+import sn.unchk.bibliotheque.service.ExportService;
+import sn.unchk.bibliotheque.service.IdempotenceService;
 import sn.unchk.bibliotheque.service.LivreService; // IMPORT AJOUTÉ
+import sn.unchk.bibliotheque.service.LotEmpruntService;
+import sn.unchk.bibliotheque.service.RetardEmpruntService;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,14 +37,26 @@ public class EmpruntController {
     private final EmpruntService empruntService;
     private final UtilisateurRepository utilisateurRepository;
     private final LivreService livreService; // DÉCLARATION AJOUTÉE
+    private final ExportService exportService;
+    private final RetardEmpruntService retardService;
+    private final LotEmpruntService lotService;
+    private final IdempotenceService idempotence;
 
     // CONSTRUCTEUR CORRIGÉ
     public EmpruntController(EmpruntService empruntService,
                              UtilisateurRepository utilisateurRepository,
-                             LivreService livreService) {
+                             LivreService livreService,
+                             ExportService exportService,
+                             RetardEmpruntService retardService,
+                             LotEmpruntService lotService,
+                             IdempotenceService idempotence) {
         this.empruntService = empruntService;
         this.utilisateurRepository = utilisateurRepository;
         this.livreService = livreService;
+        this.exportService = exportService;
+        this.retardService = retardService;
+        this.lotService = lotService;
+        this.idempotence = idempotence;
     }
 
     // 🔹 Liste de tous les emprunts (admin uniquement)
@@ -44,6 +69,57 @@ public class EmpruntController {
         return ResponseEntity.ok(dtos);
     }
 
+    // 🔹 Export de l'historique en flux (NDJSON ou CSV), filtrable par période, statut et utilisateur
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exporter(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin,
+            @RequestParam(required = false) String statut,
+            @RequestParam(required = false) Long utilisateurId) {
+        try {
+            ExportService.Format f = ExportService.Format.depuis(format);
+            StatutEmprunt s = statut != null ? StatutEmprunt.valueOf(statut.toUpperCase()) : null;
+            StreamingResponseBody corps = out -> exportService.exporterEmprunts(out, f, debut, fin, s, utilisateurId);
+            return ResponseEntity.ok()
+                    .contentType(f.mediaType())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"emprunts." + f.extension() + "\"")
+                    .body(corps);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 🔹 Emprunts en cours dont la date limite est dépassée, les plus anciens d'abord (admin)
+    @GetMapping("/en-retard")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<EmpruntPageDTO> enRetard(@RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "50") int taille) {
+        try {
+            Page<Emprunt> p = retardService.getEnRetard(page, taille);
+            return ResponseEntity.ok(new EmpruntPageDTO(
+                    p.getContent().stream().map(EmpruntMapper::toDTO).toList(),
+                    p.getTotalElements(), p.getNumber(), p.getSize()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 🔹 Lancer la détection des retards sans attendre le passage planifié (admin)
+    @PostMapping("/retards/detecter")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> detecterRetards() {
+        return ResponseEntity.ok(Map.of("empruntsSignales", retardService.detecter()));
+    }
+
+    // 🔹 Statistiques du magasin Idempotency-Key : demandes exécutées / rejouées, taille (admin)
+    @GetMapping("/idempotence/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getIdempotenceStats() {
+        return ResponseEntity.ok(idempotence.stats());
+    }
+
     // 🔹 NOUVEL ENDPOINT : Récupérer les emprunts d'un utilisateur spécifique (admin uniquement)
     @GetMapping("/utilisateur/{userId}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -85,19 +161,39 @@ public class EmpruntController {
     }
 
     // 🔹 CORRECTION : Demander un emprunt
+    // Avec un en-tête Idempotency-Key, une nouvelle tentative reçoit la réponse de la première
+    // sans refaire la demande, et deux envois simultanés n'en créent qu'une
     @PostMapping("/demander")
     @PreAuthorize("hasRole('LECTEUR')")
-    public ResponseEntity<EmpruntDTO> demander(@RequestBody EmpruntRequest req, Authentication authentication) {
+    public ResponseEntity<?> demander(@RequestBody EmpruntRequest req,
+                                      @RequestHeader(value = "Idempotency-Key", required = false) String cle,
+                                      Authentication authentication) {
         String email = authentication.getName();
+        if (cle == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(creerDemande(email, req.livreId(), null));
+        }
+        if (!IdempotenceService.cleValide(cle)) {
+            return ResponseEntity.badRequest().body(Map.of("message",
+                    "En-tête Idempotency-Key invalide (1 à " + IdempotenceService.LONGUEUR_CLE_MAX + " caractères)"));
+        }
+        try {
+            EmpruntDTO dto = idempotence.executer(email, cle, req.livreId(),
+                    () -> creerDemande(email, req.livreId(), cle));
+            return ResponseEntity.status(HttpStatus.CREATED).body(dto);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    private EmpruntDTO creerDemande(String email, Long livreId, String cle) {
         Utilisateur u = utilisateurRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
 
         // CORRECTION : Utiliser livreService pour récupérer le livre
-        Livre l = livreService.getById(req.livreId())
+        Livre l = livreService.getById(livreId)
                 .orElseThrow(() -> new RuntimeException("Livre introuvable"));
 
-        EmpruntDTO dto = EmpruntMapper.toDTO(empruntService.demander(u, l));
-        return ResponseEntity.status(HttpStatus.CREATED).body(dto);
+        return EmpruntMapper.toDTO(empruntService.demander(u, l, cle));
     }
 
     // 🔹 Valider un emprunt (admin) - CORRECTION DU NOM DE MÉTHODE
@@ -131,6 +227,24 @@ public class EmpruntController {
         return ResponseEntity.ok(dto);
     }
 
+    // 🔹 Opérations de guichet par lot (admin) : un résultat par opération, les échecs n'annulent pas le reste
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> traiterLot(@RequestBody LotRequest req) {
+        try {
+            return ResponseEntity.ok(lotService.executer(req.operations()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // 🔹 Recalculer les compteurs d'emprunts des livres (admin)
+    @PostMapping("/compteurs/reconcilier")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> reconcilierCompteurs() {
+        return ResponseEntity.ok(Map.of("livresMisAJour", empruntService.reconcilierCompteurs()));
+    }
+
     // 🔹 Supprimer un emprunt (admin)
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -141,4 +255,6 @@ public class EmpruntController {
 
     // ✅ DTO simplifié pour la requête
     public record EmpruntRequest(Long livreId, int jours) {}
+
+    public record LotRequest(List<LotEmpruntService.Operation> operations) {}
 }
\ No newline at end of file
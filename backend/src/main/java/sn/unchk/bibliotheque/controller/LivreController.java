@@ -1,34 +1,61 @@
 package sn.unchk.bibliotheque.controller;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import sn.unchk.bibliotheque.dto.LivreCreateDTO;
 import sn.unchk.bibliotheque.dto.LivreDTO;
+import sn.unchk.bibliotheque.dto.LivrePageDTO;
 import sn.unchk.bibliotheque.entity.Auteur;
 import sn.unchk.bibliotheque.entity.Categorie;
 import sn.unchk.bibliotheque.entity.Livre;
 import sn.unchk.bibliotheque.mapper.LivreMapper;
+import sn.unchk.bibliotheque.service.ExportService;
+import sn.unchk.bibliotheque.service.ImportCatalogueService;
 import sn.unchk.bibliotheque.service.LivreService;
+import sn.unchk.bibliotheque.service.RecommandationService;
 
+import java.io.IOException;
 import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/livres")
 @CrossOrigin
 public class LivreController {
     private final LivreService service;
+    private final ImportCatalogueService importService;
+    private final ExportService exportService;
+    private final RecommandationService recommandationService;
 
-    public LivreController(LivreService service) {
+    public LivreController(LivreService service, ImportCatalogueService importService, ExportService exportService,
+                           RecommandationService recommandationService) {
         this.service = service;
+        this.importService = importService;
+        this.exportService = exportService;
+        this.recommandationService = recommandationService;
     }
 
+    // 🔹 Catalogue paginé (keyset), filtré côté serveur, avec comptes par facette
     @GetMapping
-    public List<LivreDTO> all() {
-        return service.getAll().stream().map(LivreMapper::toDTO).collect(Collectors.toList());
+    public ResponseEntity<?> all(@RequestParam(required = false) String titre,
+                                            @RequestParam(required = false) Long categorieId,
+                                            @RequestParam(required = false) Long auteurId,
+                                            @RequestParam(required = false) String langue,
+                                            @RequestParam(required = false) Integer decennie,
+                                            @RequestParam(required = false) Boolean disponible,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(service.getPage(titre, categorieId, auteurId, langue, decennie, disponible, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
@@ -36,9 +63,18 @@ public class LivreController {
         return service.getById(id).map(LivreMapper::toDTO);
     }
 
+    // 🔹 Livres similaires : co-emprunts précalculés, repli sur la catégorie
+    @GetMapping("/{id}/similaires")
+    public ResponseEntity<List<LivreDTO>> similaires(@PathVariable Long id,
+                                                     @RequestParam(defaultValue = "6") int limit) {
+        return recommandationService.similaires(id, limit)
+                .map(livres -> ResponseEntity.ok(livres.stream().map(LivreMapper::toDTO).toList()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public LivreDTO create(@RequestBody LivreCreateDTO dto) {
+    public ResponseEntity<?> create(@RequestBody LivreCreateDTO dto) {
         Livre l = new Livre();
         l.setTitre(dto.titre());
         l.setIsbn(dto.isbn());
@@ -66,12 +102,12 @@ public class LivreController {
             l.setCover("http://localhost:3000/covers/default.png");
         }
 
-        return LivreMapper.toDTO(service.save(l));
+        return enregistrer(l);
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public LivreDTO update(@PathVariable Long id, @RequestBody LivreCreateDTO dto) {
+    public ResponseEntity<?> update(@PathVariable Long id, @RequestBody LivreCreateDTO dto) {
         Livre l = service.getById(id).orElseThrow(() -> new RuntimeException("Livre non trouvé"));
         l.setTitre(dto.titre());
         l.setIsbn(dto.isbn());
@@ -95,7 +131,45 @@ public class LivreController {
             l.setCover(dto.cover());
         }
 
-        return LivreMapper.toDTO(service.save(l));
+        return enregistrer(l);
+    }
+
+    // ❌ Couverture inline illisible ou d'un type refusé : erreur du client, pas du serveur
+    private ResponseEntity<?> enregistrer(Livre l) {
+        try {
+            return ResponseEntity.ok(LivreMapper.toDTO(service.save(l)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // 🔹 Import en masse (CSV) : le fichier est lu en flux, le rapport détaille les lignes rejetées
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importer(@RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.ok(importService.importer(file.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body(Map.of("message", "Erreur de lecture du fichier"));
+        }
+    }
+
+    // 🔹 Export du catalogue en flux (le CSV reprend les colonnes de l'import)
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exporter(@RequestParam(defaultValue = "ndjson") String format) {
+        try {
+            ExportService.Format f = ExportService.Format.depuis(format);
+            StreamingResponseBody corps = out -> exportService.exporterCatalogue(out, f);
+            return ResponseEntity.ok()
+                    .contentType(f.mediaType())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"catalogue." + f.extension() + "\"")
+                    .body(corps);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -1,16 +1,21 @@
 package sn.unchk.bibliotheque.controller;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import sn.unchk.bibliotheque.dto.AvisDTO;
 import sn.unchk.bibliotheque.dto.LivreDTO;
 import sn.unchk.bibliotheque.dto.AuteurDTO;
 import sn.unchk.bibliotheque.dto.CategorieDTO;
+import sn.unchk.bibliotheque.dto.SyncDTO;
 import sn.unchk.bibliotheque.mapper.AuteurMapper;
 import sn.unchk.bibliotheque.mapper.CategorieMapper;
 import sn.unchk.bibliotheque.mapper.LivreMapper;
 import sn.unchk.bibliotheque.service.*;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -23,17 +28,82 @@ public class PublicController {
     private final CategorieService categorieService;
     private final EmpruntService empruntService;
     private final AvisService avisService;
+    private final ClassementLivresService classementService;
+    private final TendanceService tendanceService;
+    private final AccueilService accueilService;
+    private final VersionCatalogueService versionCatalogue;
+    private final SyncCatalogueService syncService;
 
     public PublicController(LivreService livreService,
                             AuteurService auteurService,
                             CategorieService categorieService,
                             EmpruntService empruntService,
-                            AvisService avisService) {
+                            AvisService avisService,
+                            ClassementLivresService classementService,
+                            TendanceService tendanceService,
+                            AccueilService accueilService,
+                            VersionCatalogueService versionCatalogue,
+                            SyncCatalogueService syncService) {
         this.livreService = livreService;
         this.auteurService = auteurService;
         this.categorieService = categorieService;
         this.empruntService = empruntService;
         this.avisService = avisService;
+        this.classementService = classementService;
+        this.tendanceService = tendanceService;
+        this.accueilService = accueilService;
+        this.versionCatalogue = versionCatalogue;
+        this.syncService = syncService;
+    }
+
+    // Page d'accueil en une requête : octets précalculés, gzip si le client l'accepte
+    @GetMapping("/accueil")
+    // ETag propre au contenu (il suit les changements avec un léger décalage), distinct par encodage ;
+    // un If-None-Match identique est résolu en 304 par Spring sans renvoyer le corps
+    public ResponseEntity<byte[]> getAccueil(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String encodages) {
+        AccueilService.Contenu contenu = accueilService.contenu();
+        boolean gzip = accepteGzip(encodages);
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag("a" + Long.toString(contenu.genereA(), 36) + (gzip ? "-gz" : ""))
+                .cacheControl(versionCatalogue.cacheControl())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return reponse.body(gzip ? contenu.gzip() : contenu.json());
+    }
+
+    // Accept-Encoding : gzip (ou x-gzip) nommé avec q > 0, sinon « * » avec q > 0 ; un q=0 explicite l'exclut
+    private static boolean accepteGzip(String encodages) {
+        if (encodages == null) return false;
+        Double gzip = null, joker = null;
+        for (String element : encodages.split(",")) {
+            String[] parties = element.split(";");
+            String codage = parties[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < parties.length; i++) {
+                String parametre = parties[i].trim();
+                if (parametre.length() > 2 && parametre.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(parametre.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (codage.equals("gzip") || codage.equals("x-gzip")) gzip = gzip == null ? q : Math.max(gzip, q);
+            else if (codage.equals("*")) joker = q;
+        }
+        if (gzip != null) return gzip > 0;
+        return joker != null && joker > 0;
+    }
+
+    // Changements du catalogue depuis une version (sans since : version courante, rechargement complet)
+    @GetMapping("/sync")
+    public SyncDTO getSync(@RequestParam(required = false) Long since,
+                           @RequestParam(defaultValue = "500") int limite) {
+        return syncService.depuis(since, limite);
     }
 
     @GetMapping("/stats")
@@ -52,9 +122,23 @@ public class PublicController {
                 .toList();
     }
 
+    // Lu dans le classement maintenu en mémoire (periode = tout, 7j ou 30j)
     @GetMapping("/livres/populaires")
-    public List<LivreDTO> getPopulaires() {
-        return livreService.findMostBorrowed(3).stream()
+    public ResponseEntity<List<LivreDTO>> getPopulaires(@RequestParam(required = false) String periode,
+                                                        @RequestParam(defaultValue = "3") int limite) {
+        try {
+            return ResponseEntity.ok(classementService.livres(ClassementLivresService.Periode.depuis(periode), limite).stream()
+                    .map(LivreMapper::toDTO)
+                    .toList());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Score avec décroissance exponentielle (demandes, validations, avis), servi depuis la mémoire
+    @GetMapping("/livres/tendances")
+    public List<LivreDTO> getTendances(@RequestParam(defaultValue = "10") int limite) {
+        return tendanceService.livres(limite).stream()
                 .map(LivreMapper::toDTO)
                 .toList();
     }
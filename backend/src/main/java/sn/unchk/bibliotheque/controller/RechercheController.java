@@ -0,0 +1,60 @@
+package sn.unchk.bibliotheque.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import sn.unchk.bibliotheque.dto.RechercheResultatDTO;
+import sn.unchk.bibliotheque.dto.SuggestionDTO;
+import sn.unchk.bibliotheque.service.RechercheService;
+import sn.unchk.bibliotheque.service.SuggestionService;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/recherche")
+@CrossOrigin(origins = "*")
+public class RechercheController {
+
+    private final RechercheService service;
+    private final SuggestionService suggestionService;
+
+    public RechercheController(RechercheService service, SuggestionService suggestionService) {
+        this.service = service;
+        this.suggestionService = suggestionService;
+    }
+
+    // 🔹 Recherche plein texte classée sur titres, descriptions et auteurs
+    @GetMapping
+    public ResponseEntity<List<RechercheResultatDTO>> rechercher(@RequestParam String q,
+                                                                 @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(service.rechercher(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // 🔹 Autocomplétion à chaque frappe : titres, auteurs et préfixes d'ISBN
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<SuggestionDTO>> suggestions(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(suggestionService.suggerer(q, limit));
+    }
+
+    // 🔹 Taille de l'index d'autocomplétion (admin)
+    @GetMapping("/suggestions/statistiques")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SuggestionService.Statistiques> statistiquesSuggestions() {
+        return ResponseEntity.ok(suggestionService.statistiques());
+    }
+
+    // 🔹 Reconstruction complète de l'index (admin)
+    @PostMapping("/reindexer")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, String>> reindexer() {
+        service.reconstruire();
+        suggestionService.reconstruire();
+        return ResponseEntity.ok(Map.of("message", "Index de recherche reconstruit"));
+    }
+}
@@ -0,0 +1,100 @@
+package sn.unchk.bibliotheque.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import sn.unchk.bibliotheque.dto.ReservationDTO;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.entity.Reservation;
+import sn.unchk.bibliotheque.entity.Utilisateur;
+import sn.unchk.bibliotheque.mapper.ReservationMapper;
+import sn.unchk.bibliotheque.repository.UtilisateurRepository;
+import sn.unchk.bibliotheque.service.LivreService;
+import sn.unchk.bibliotheque.service.ReservationService;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/reservations")
+@CrossOrigin
+public class ReservationController {
+
+    private final ReservationService reservationService;
+    private final UtilisateurRepository utilisateurRepository;
+    private final LivreService livreService;
+
+    public ReservationController(ReservationService reservationService,
+                                 UtilisateurRepository utilisateurRepository,
+                                 LivreService livreService) {
+        this.reservationService = reservationService;
+        this.utilisateurRepository = utilisateurRepository;
+        this.livreService = livreService;
+    }
+
+    // 🔹 Rejoindre la file d'attente d'un livre indisponible
+    @PostMapping
+    @PreAuthorize("hasRole('LECTEUR')")
+    public ResponseEntity<?> reserver(@RequestBody ReservationRequest req, Authentication authentication) {
+        Utilisateur u = utilisateurConnecte(authentication);
+        Livre l = livreService.getById(req.livreId())
+                .orElseThrow(() -> new RuntimeException("Livre introuvable"));
+        try {
+            Reservation r = reservationService.reserver(u, l);
+            return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(r));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // 🔹 Réservations actives de l'utilisateur connecté, avec leur position
+    @GetMapping("/mes-reservations")
+    @PreAuthorize("hasRole('LECTEUR') or hasRole('ADMIN')")
+    public ResponseEntity<List<ReservationDTO>> mesReservations(Authentication authentication) {
+        Utilisateur u = utilisateurConnecte(authentication);
+        return ResponseEntity.ok(reservationService.getActivesByUtilisateur(u.getId()).stream()
+                .map(this::toDTO)
+                .toList());
+    }
+
+    // 🔹 File d'attente d'un livre (admin)
+    @GetMapping("/livre/{livreId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ReservationDTO>> fileDuLivre(@PathVariable Long livreId) {
+        return ResponseEntity.ok(reservationService.getActivesByLivre(livreId).stream()
+                .map(this::toDTO)
+                .toList());
+    }
+
+    // 🔹 Annuler une réservation (titulaire ou admin) ; un exemplaire mis de côté passe au suivant
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('LECTEUR') or hasRole('ADMIN')")
+    public ResponseEntity<?> annuler(@PathVariable Long id, Authentication authentication) {
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        Long titulaire = admin ? null : utilisateurConnecte(authentication).getId();
+        try {
+            return ResponseEntity.ok(toDTO(reservationService.annuler(id, titulaire)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    private Utilisateur utilisateurConnecte(Authentication authentication) {
+        return utilisateurRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
+    }
+
+    // Rang et taille de file lus dans le miroir en mémoire
+    private ReservationDTO toDTO(Reservation r) {
+        return ReservationMapper.toDTO(r, reservationService.rang(r.getId()),
+                reservationService.tailleFile(r.getLivre().getId()));
+    }
+
+    // ✅ DTO simplifié pour la requête
+    public record ReservationRequest(Long livreId) {}
+}
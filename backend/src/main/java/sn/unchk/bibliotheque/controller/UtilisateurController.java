@@ -11,9 +11,11 @@ import org.springframework.web.bind.annotation.*;
 import sn.unchk.bibliotheque.dto.UtilisateurDTO;
 import sn.unchk.bibliotheque.entity.Utilisateur;
 import sn.unchk.bibliotheque.mapper.UtilisateurMapper;
+import sn.unchk.bibliotheque.security.PrincipalCache;
 import sn.unchk.bibliotheque.service.UtilisateurService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -22,9 +24,11 @@ import java.util.stream.Collectors;
 public class UtilisateurController {
 
     private final UtilisateurService service;
+    private final PrincipalCache principalCache;
 
-    public UtilisateurController(UtilisateurService service) {
+    public UtilisateurController(UtilisateurService service, PrincipalCache principalCache) {
         this.service = service;
+        this.principalCache = principalCache;
     }
 
     // ✅ Récupérer tous les utilisateurs (Admin seulement)
@@ -42,6 +46,13 @@ public class UtilisateurController {
         }
     }
 
+    // ✅ Statistiques du cache des principaux authentifiés (Admin seulement)
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(principalCache.stats());
+    }
+
     // ✅ Récupérer un utilisateur par ID
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -16,5 +16,6 @@ public record EmpruntDTO(
         LocalDate dateLimiteRetour,
         LocalDate dateRetour,
         boolean rendu,
-        String statut
+        String statut,
+        LocalDate dateConstatRetard  // ✅ Retard détecté par le passage planifié, null sinon
 ) {}
@@ -0,0 +1,10 @@
+package sn.unchk.bibliotheque.dto;
+
+import java.util.List;
+
+public record EmpruntPageDTO(
+        List<EmpruntDTO> items,
+        long total,   // ✅ Nombre total d'emprunts correspondants
+        int page,     // ✅ Numéro de la page (à partir de 0)
+        int taille
+) {}
@@ -0,0 +1,13 @@
+package sn.unchk.bibliotheque.dto;
+
+import java.util.List;
+
+public record FacettesDTO(
+        int total,                    // ✅ Livres correspondant à tous les filtres
+        List<Valeur> categories,      // ✅ Chaque facette ignore son propre filtre (choix multiples)
+        List<Valeur> langues,
+        List<Valeur> decennies,
+        List<Valeur> disponibilite
+) {
+    public record Valeur(String valeur, String libelle, int nombre) {}
+}
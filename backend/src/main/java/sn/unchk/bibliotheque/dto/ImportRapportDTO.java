@@ -0,0 +1,15 @@
+package sn.unchk.bibliotheque.dto;
+
+import java.util.List;
+
+public record ImportRapportDTO(
+        long lignesLues,
+        long crees,
+        long misAJour,
+        long enErreur,
+        List<ErreurLigne> erreurs, // ✅ Limitées aux premières erreurs (enErreur donne le total)
+        long dureeMs,
+        String interruption // ⚠️ Cause de l'arrêt avant la fin du fichier (null si lu en entier)
+) {
+    public record ErreurLigne(long ligne, String message) {}
+}
@@ -18,5 +18,6 @@ public record LivreDTO(
         Long categorieId,
         String categorieNom,
         String statut,
-        int nbEmprunts
+        int nbEmprunts,
+        int nbEmpruntsEnCours
 ) {}
@@ -0,0 +1,10 @@
+package sn.unchk.bibliotheque.dto;
+
+import java.util.List;
+
+public record LivrePageDTO(
+        List<LivreDTO> items,
+        String nextCursor,   // ✅ Curseur opaque de la page suivante (null si dernière page)
+        int limit,
+        FacettesDTO facettes // ✅ Comptes par catégorie, langue, décennie et disponibilité (null pendant le démarrage)
+) {}
@@ -0,0 +1,22 @@
+package sn.unchk.bibliotheque.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record LotEmpruntRapportDTO(
+        int operations,
+        int reussies,
+        int echouees,
+        List<Resultat> resultats, // ✅ Un résultat par opération, dans l'ordre de la requête
+        long dureeMs
+) {
+    public record Resultat(
+            int index,
+            Long empruntId,
+            String type,
+            boolean succes,
+            String message,           // ✅ Motif de l'échec, null si l'opération a réussi
+            String statut,            // ✅ Statut de l'emprunt après l'opération
+            LocalDate dateLimiteRetour
+    ) {}
+}
@@ -0,0 +1,10 @@
+package sn.unchk.bibliotheque.dto;
+
+public record RechercheResultatDTO(
+        Long livreId,
+        String titre,
+        String auteurNom,
+        float score,          // ✅ Score BM25
+        String titreSurligne, // ✅ Titre avec les termes trouvés entre <mark>
+        String extrait        // ✅ Extrait de la description surligné
+) {}
@@ -0,0 +1,16 @@
+package sn.unchk.bibliotheque.dto;
+
+import java.time.LocalDateTime;
+
+public record ReservationDTO(
+        Long id,
+        Long livreId,
+        String livreTitre,
+        Long utilisateurId,
+        String utilisateurNom,
+        String statut,
+        Integer rang,                     // ✅ Position dans la file (1 = prochain servi), null hors file
+        int tailleFile,                   // ✅ Lecteurs en attente sur ce livre
+        LocalDateTime dateReservation,
+        LocalDateTime dateLimiteRetrait   // ✅ Exemplaire mis de côté jusqu'à cette date
+) {}
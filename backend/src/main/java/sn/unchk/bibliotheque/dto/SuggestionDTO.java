@@ -0,0 +1,8 @@
+package sn.unchk.bibliotheque.dto;
+
+public record SuggestionDTO(
+        String type,    // ✅ TITRE, ISBN ou AUTEUR
+        Long id,        // ✅ Livre (TITRE, ISBN) ou auteur (AUTEUR)
+        String libelle, // ✅ Texte proposé : titre, ISBN ou nom
+        String detail   // ✅ Auteur du livre, titre pour un ISBN, nombre de livres pour un auteur
+) {}
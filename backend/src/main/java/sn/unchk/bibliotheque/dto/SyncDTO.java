@@ -0,0 +1,15 @@
+package sn.unchk.bibliotheque.dto;
+
+import java.util.List;
+
+public record SyncDTO(
+        long version,            // ✅ À renvoyer dans ?since= au prochain appel
+        boolean reinitialiser,   // ✅ Version inconnue ou trop ancienne : recharger le catalogue complet
+        boolean suite,           // ✅ D'autres changements suivent : rappeler immédiatement
+        List<LivreDTO> livres,
+        List<AuteurDTO> auteurs,
+        List<CategorieDTO> categories,
+        Supprimes supprimes
+) {
+    public record Supprimes(List<Long> livres, List<Long> auteurs, List<Long> categories) {}
+}
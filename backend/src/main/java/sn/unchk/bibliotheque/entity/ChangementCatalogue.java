@@ -0,0 +1,42 @@
+package sn.unchk.bibliotheque.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entrée du journal des modifications du catalogue : l'id sert de numéro de version pour la
+ * synchronisation incrémentale (/api/sync). Création, modification et suppression ne sont pas
+ * distinguées : l'état courant de l'entité (ou son absence) fait foi.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "changements_catalogue", indexes = {
+        // ✅ Purge des entrées anciennes
+        @Index(name = "idx_changements_catalogue_modifie_le", columnList = "modifie_le")
+})
+public class ChangementCatalogue {
+
+    public enum Entite { LIVRE, AUTEUR, CATEGORIE }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Entite entite;
+
+    @Column(nullable = false)
+    private Long entiteId;
+
+    @Column(nullable = false)
+    private LocalDateTime modifieLe;
+}
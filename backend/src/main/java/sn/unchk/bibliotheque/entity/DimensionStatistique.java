@@ -0,0 +1,7 @@
+package sn.unchk.bibliotheque.entity;
+
+public enum DimensionStatistique {
+    MOIS,       // cle = 0, un compteur par (année, mois)
+    CATEGORIE,  // cle = id de la catégorie (0 si non spécifiée)
+    LIVRE       // cle = id du livre
+}
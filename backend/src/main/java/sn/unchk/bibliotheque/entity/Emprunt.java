@@ -13,7 +13,15 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "emprunts")
+@Table(name = "emprunts", uniqueConstraints =
+        // ✅ Une clé d'idempotence ne crée qu'une demande par utilisateur, même entre deux instances
+        @UniqueConstraint(name = "uk_emprunts_utilisateur_cle", columnNames = {"utilisateur_id", "cle_idempotence"}),
+        indexes = {
+        // ✅ Fenêtres glissantes du classement des plus empruntés
+        @Index(name = "idx_emprunts_date_emprunt", columnList = "date_emprunt"),
+        // ✅ Emprunts en cours dont la date limite est dépassée (détection et liste des retards)
+        @Index(name = "idx_emprunts_statut_rendu_limite", columnList = "statut, rendu, date_limite_retour")
+})
 public class Emprunt {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,6 +34,9 @@ public class Emprunt {
     @Setter
     private LocalDate dateRetour;        // quand le livre est rendu
     private boolean rendu;
+    private LocalDate dateConstatRetard; // 🔹 date à laquelle le retard a été détecté, null sinon
+    @Column(length = 64)
+    private String cleIdempotence;       // 🔹 en-tête Idempotency-Key de la demande, null sinon
 
     @ManyToOne
     @JoinColumn(name = "utilisateur_id")
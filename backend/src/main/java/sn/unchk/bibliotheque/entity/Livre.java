@@ -14,7 +14,14 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "livres")
+@Table(name = "livres", indexes = {
+        // ✅ Index composites (filtre, id) pour la pagination keyset du catalogue
+        @Index(name = "idx_livres_categorie_id", columnList = "categorie_id, id"),
+        @Index(name = "idx_livres_auteur_id", columnList = "auteur_id, id"),
+        @Index(name = "idx_livres_langue_id", columnList = "langue, id"),
+        // ✅ Classement des plus empruntés
+        @Index(name = "idx_livres_nb_emprunts", columnList = "nb_emprunts")
+})
 public class Livre {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,8 +43,8 @@ public class Livre {
     @Column(columnDefinition = "TEXT")
     private String description; // Résumé / synopsis
 
-    @Column(length = 200000)
-    private String cover; // Image de couverture (URL ou chemin)
+    @Column(length = 512)
+    private String cover; // Référence courte vers l'image (URL du stockage de couvertures ou chemin)
 
     // ✅ Pas stocké en DB, calculé automatiquement
     @Transient
@@ -57,9 +64,15 @@ public class Livre {
     @OneToMany(mappedBy = "livre", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Emprunt> emprunts;
 
-    @Transient
-    public int getNbEmprunts() {
-        return emprunts != null ? emprunts.size() : 0;
-    }
+    @OneToMany(mappedBy = "livre", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<Reservation> reservations;
+
+    // ✅ Compteurs dénormalisés : modifiés uniquement par UPDATE atomique (EmpruntService),
+    // jamais réécrits par la sauvegarde de l'entité
+    @Column(nullable = false, updatable = false)
+    private int nbEmprunts; // Nombre total d'emprunts validés
+
+    @Column(nullable = false, updatable = false)
+    private int nbEmpruntsEnCours; // Emprunts validés non rendus
 
 }
@@ -0,0 +1,48 @@
+package sn.unchk.bibliotheque.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Place dans la file d'attente d'un livre indisponible. L'ordre de la file est celui des ids.
+ * Au retour d'un exemplaire, la première réservation EN_FILE passe DISPONIBLE : l'exemplaire est
+ * retiré du stock pour son titulaire jusqu'à la date limite de retrait.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "reservations", indexes = {
+        // ✅ Tête de file d'un livre
+        @Index(name = "idx_reservations_livre_statut", columnList = "livre_id, statut"),
+        // ✅ Balayage des mises de côté expirées
+        @Index(name = "idx_reservations_statut_limite", columnList = "statut, date_limite_retrait")
+})
+public class Reservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "livre_id", nullable = false)
+    private Livre livre;
+
+    @ManyToOne
+    @JoinColumn(name = "utilisateur_id", nullable = false)
+    private Utilisateur utilisateur;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private StatutReservation statut = StatutReservation.EN_FILE;
+
+    @Column(nullable = false)
+    private LocalDateTime dateReservation;
+    private LocalDateTime dateDisponibilite;   // 🔹 exemplaire mis de côté
+    private LocalDateTime dateLimiteRetrait;   // 🔹 au-delà, l'exemplaire passe au suivant
+}
@@ -0,0 +1,45 @@
+package sn.unchk.bibliotheque.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Compteurs agrégés des emprunts pour le dashboard, maintenus à chaque validation / retour.
+ * mois = 0 désigne le total de l'année.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "stats_emprunts", uniqueConstraints =
+        @UniqueConstraint(name = "uk_stats_emprunts", columnNames = {"dimension", "cle", "annee", "mois"}))
+public class StatistiqueEmprunt {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private DimensionStatistique dimension;
+
+    private long cle;
+
+    private int annee;
+
+    private int mois; // 1..12, ou 0 pour l'année entière
+
+    private long nbEmprunts;
+
+    private long nbRetours;
+
+    public StatistiqueEmprunt(DimensionStatistique dimension, long cle, int annee, int mois) {
+        this.dimension = dimension;
+        this.cle = cle;
+        this.annee = annee;
+        this.mois = mois;
+    }
+}
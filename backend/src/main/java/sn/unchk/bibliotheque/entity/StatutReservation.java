@@ -0,0 +1,9 @@
+package sn.unchk.bibliotheque.entity;
+
+public enum StatutReservation {
+    EN_FILE,     // en attente d'un exemplaire
+    DISPONIBLE,  // exemplaire mis de côté jusqu'à la date limite de retrait
+    HONOREE,     // emprunt validé sur l'exemplaire mis de côté
+    EXPIREE,     // date limite de retrait dépassée
+    ANNULEE
+}
@@ -0,0 +1,29 @@
+package sn.unchk.bibliotheque.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Score de tendance d'un livre tel qu'il valait à calculeLe (décroissance exponentielle).
+ * Écrit périodiquement par TendanceService ; la valeur courante se déduit de la demi-vie.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "tendances_livres")
+public class TendanceLivre {
+    @Id
+    private Long livreId;
+
+    private double score;
+
+    @Column(nullable = false)
+    private LocalDateTime calculeLe;
+}
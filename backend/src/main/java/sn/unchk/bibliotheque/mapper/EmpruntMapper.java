@@ -2,6 +2,7 @@ package sn.unchk.bibliotheque.mapper;
 
 import sn.unchk.bibliotheque.dto.EmpruntDTO;
 import sn.unchk.bibliotheque.entity.Emprunt;
+import sn.unchk.bibliotheque.service.CouvertureService;
 
 public class EmpruntMapper {
 
@@ -19,7 +20,7 @@ public class EmpruntMapper {
                 : "Auteur inconnu";
 
         String cover = (e.getLivre() != null && e.getLivre().getCover() != null)
-                ? e.getLivre().getCover()
+                ? CouvertureService.urlPublique(e.getLivre().getCover())
                 : "/covers/default.jpg";
 
         String statut = e.getStatut() != null ? e.getStatut().name() : "INCONNU";
@@ -37,7 +38,8 @@ public class EmpruntMapper {
                 e.getDateLimiteRetour(),
                 e.getDateRetour(),
                 e.isRendu(),
-                statut
+                statut,
+                e.getDateConstatRetard()
         );
     }
 }
@@ -2,6 +2,7 @@ package sn.unchk.bibliotheque.mapper;
 
 import sn.unchk.bibliotheque.dto.LivreDTO;
 import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.service.CouvertureService;
 
 public class LivreMapper {
 
@@ -23,14 +24,15 @@ public class LivreMapper {
                 l.getNbPages(),
                 l.getNbExemplaires(),
                 l.getDescription(),
-                l.getCover(),
+                CouvertureService.urlPublique(l.getCover()),
                 l.isDisponible(), // Utiliser la méthode isDisponible() de l'entité
                 auteurId,
                 auteurNom,
                 categorieId,
                 categorieNom,
                 l.isDisponible() ? "Disponible" : "Indisponible",
-                l.getNbEmprunts()
+                l.getNbEmprunts(),       // compteur persisté, pas de chargement de la collection emprunts
+                l.getNbEmpruntsEnCours()
         );
     }
 }
\ No newline at end of file
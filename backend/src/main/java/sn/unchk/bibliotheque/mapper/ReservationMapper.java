@@ -0,0 +1,29 @@
+package sn.unchk.bibliotheque.mapper;
+
+import sn.unchk.bibliotheque.dto.ReservationDTO;
+import sn.unchk.bibliotheque.entity.Reservation;
+
+public class ReservationMapper {
+
+    public static ReservationDTO toDTO(Reservation r, Integer rang, int tailleFile) {
+        if (r == null) return null;
+
+        Long livreId = r.getLivre() != null ? r.getLivre().getId() : null;
+        String livreTitre = r.getLivre() != null ? r.getLivre().getTitre() : "Livre inconnu";
+        Long utilisateurId = r.getUtilisateur() != null ? r.getUtilisateur().getId() : null;
+        String utilisateurNom = r.getUtilisateur() != null ? r.getUtilisateur().getNomComplet() : "Anonyme";
+
+        return new ReservationDTO(
+                r.getId(),
+                livreId,
+                livreTitre,
+                utilisateurId,
+                utilisateurNom,
+                r.getStatut() != null ? r.getStatut().name() : "INCONNU",
+                rang,
+                tailleFile,
+                r.getDateReservation(),
+                r.getDateLimiteRetrait()
+        );
+    }
+}
@@ -3,8 +3,10 @@ package sn.unchk.bibliotheque.repository;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import sn.unchk.bibliotheque.entity.Avis;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface AvisRepository extends JpaRepository<Avis, Long> {
@@ -15,4 +17,8 @@ public interface AvisRepository extends JpaRepository<Avis, Long> {
 
     // Récupère tous les avis d'un livre par son id
     List<Avis> findByLivreIdOrderByIdDesc(Long livreId);
+
+    // Avis par livre et par jour depuis une date (score de tendance)
+    @Query("SELECT a.livre.id, a.date, COUNT(a) FROM Avis a WHERE a.date >= :depuis GROUP BY a.livre.id, a.date")
+    List<Object[]> compterAvisParLivreEtJour(@Param("depuis") LocalDate depuis);
 }
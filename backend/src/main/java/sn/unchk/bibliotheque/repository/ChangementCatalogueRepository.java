@@ -0,0 +1,24 @@
+package sn.unchk.bibliotheque.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import sn.unchk.bibliotheque.entity.ChangementCatalogue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ChangementCatalogueRepository extends JpaRepository<ChangementCatalogue, Long> {
+
+    // Plus ancienne et plus récente version encore présentes (null, null si le journal est vide)
+    @Query("SELECT MIN(c.id), MAX(c.id) FROM ChangementCatalogue c")
+    List<Object[]> findBornes();
+
+    List<ChangementCatalogue> findByIdGreaterThanOrderById(Long version, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM ChangementCatalogue c WHERE c.modifieLe < :avant AND c.id < :derniere")
+    int purger(@Param("avant") LocalDateTime avant, @Param("derniere") Long derniere);
+}
@@ -1,9 +1,13 @@
 package sn.unchk.bibliotheque.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import sn.unchk.bibliotheque.entity.Emprunt;
 import sn.unchk.bibliotheque.entity.Livre;
@@ -11,7 +15,10 @@ import sn.unchk.bibliotheque.entity.StatutEmprunt;
 import sn.unchk.bibliotheque.entity.Utilisateur;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface EmpruntRepository extends JpaRepository<Emprunt, Long> {
 
@@ -21,6 +28,8 @@ public interface EmpruntRepository extends JpaRepository<Emprunt, Long> {
     // Vérifier si un utilisateur a déjà emprunté un livre et ne l'a pas rendu
     boolean existsByUtilisateurAndLivreAndRenduFalse(Utilisateur utilisateur, Livre livre);
 
+    Optional<Emprunt> findByUtilisateurIdAndCleIdempotence(Long utilisateurId, String cleIdempotence);
+
     // Compte des emprunts par statut et rendu
     long countByStatutAndRendu(StatutEmprunt statut, boolean rendu);
 
@@ -44,4 +53,89 @@ public interface EmpruntRepository extends JpaRepository<Emprunt, Long> {
     // Nombre distinct d'utilisateurs ayant emprunté
     @Query("SELECT COUNT(DISTINCT e.utilisateur) FROM Emprunt e")
     long countDistinctByUtilisateur();
-}
\ No newline at end of file
+
+    // Transitions conditionnelles : une seule requête gagne si deux admins traitent le même emprunt
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Emprunt e SET e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE,
+                                 e.dateEmprunt = :dateEmprunt, e.dateLimiteRetour = :dateLimiteRetour
+            WHERE e.id = :id AND e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.EN_ATTENTE
+            """)
+    int validerSiEnAttente(@Param("id") Long id,
+                           @Param("dateEmprunt") LocalDate dateEmprunt,
+                           @Param("dateLimiteRetour") LocalDate dateLimiteRetour);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Emprunt e SET e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.TERMINE,
+                                 e.rendu = true, e.dateRetour = :dateRetour
+            WHERE e.id = :id AND e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE
+              AND e.rendu = false
+            """)
+    int rendreSiEnCours(@Param("id") Long id, @Param("dateRetour") LocalDate dateRetour);
+
+    // Emprunts validés par livre et par jour depuis une date (fenêtres glissantes du classement)
+    @Query("""
+            SELECT e.livre.id, e.dateEmprunt, COUNT(e) FROM Emprunt e
+            WHERE e.dateEmprunt >= :depuis
+              AND e.statut IN (sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE,
+                               sn.unchk.bibliotheque.entity.StatutEmprunt.TERMINE)
+            GROUP BY e.livre.id, e.dateEmprunt
+            """)
+    List<Object[]> compterEmpruntsParLivreEtJour(@Param("depuis") LocalDate depuis);
+
+    // Demandes d'emprunt par livre et par jour depuis une date (score de tendance)
+    @Query("""
+            SELECT e.livre.id, e.dateDemande, COUNT(e) FROM Emprunt e
+            WHERE e.dateDemande >= :depuis
+            GROUP BY e.livre.id, e.dateDemande
+            """)
+    List<Object[]> compterDemandesParLivreEtJour(@Param("depuis") LocalDate depuis);
+
+    // Export en flux (curseur côté base) : relations chargées dans la même requête
+    @Query("""
+            SELECT e FROM Emprunt e LEFT JOIN FETCH e.utilisateur LEFT JOIN FETCH e.livre l
+            LEFT JOIN FETCH l.auteur a LEFT JOIN FETCH a.creePar LEFT JOIN FETCH l.categorie
+            WHERE (:debut IS NULL OR COALESCE(e.dateDemande, e.dateEmprunt) >= :debut)
+              AND (:fin IS NULL OR COALESCE(e.dateDemande, e.dateEmprunt) <= :fin)
+              AND (:statut IS NULL OR e.statut = :statut)
+              AND (:utilisateurId IS NULL OR e.utilisateur.id = :utilisateurId)
+            ORDER BY e.id
+            """)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Emprunt> streamPourExport(@Param("debut") LocalDate debut,
+                                     @Param("fin") LocalDate fin,
+                                     @Param("statut") StatutEmprunt statut,
+                                     @Param("utilisateurId") Long utilisateurId);
+
+    // Emprunts devenus en retard depuis le passage précédent (borne basse) et pas encore signalés :
+    // (id, livreId, utilisateurId), parcours de l'index (statut, rendu, date_limite_retour)
+    @Query("""
+            SELECT e.id, e.livre.id, e.utilisateur.id FROM Emprunt e
+            WHERE e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE AND e.rendu = false
+              AND e.dateLimiteRetour >= :depuis AND e.dateLimiteRetour < :aujourdhui
+              AND e.dateConstatRetard IS NULL
+            ORDER BY e.dateLimiteRetour, e.id
+            """)
+    List<Object[]> findNouveauxRetards(@Param("depuis") LocalDate depuis,
+                                       @Param("aujourdhui") LocalDate aujourdhui,
+                                       Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Emprunt e SET e.dateConstatRetard = :aujourdhui WHERE e.id IN :ids AND e.dateConstatRetard IS NULL")
+    int marquerEnRetard(@Param("ids") Collection<Long> ids, @Param("aujourdhui") LocalDate aujourdhui);
+
+    // Emprunts en cours dont la date limite est dépassée, les plus anciens d'abord
+    @Query(value = """
+            SELECT e FROM Emprunt e
+            WHERE e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE AND e.rendu = false
+              AND e.dateLimiteRetour < :aujourdhui
+            ORDER BY e.dateLimiteRetour, e.id
+            """,
+            countQuery = """
+            SELECT COUNT(e) FROM Emprunt e
+            WHERE e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE AND e.rendu = false
+              AND e.dateLimiteRetour < :aujourdhui
+            """)
+    Page<Emprunt> findEnRetard(@Param("aujourdhui") LocalDate aujourdhui, Pageable pageable);
+}
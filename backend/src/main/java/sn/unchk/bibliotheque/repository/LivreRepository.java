@@ -1,14 +1,21 @@
 package sn.unchk.bibliotheque.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import sn.unchk.bibliotheque.entity.Livre;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface LivreRepository extends JpaRepository<Livre, Long> {
+public interface LivreRepository extends JpaRepository<Livre, Long>, JpaSpecificationExecutor<Livre> {
 
     // Recherche par titre
     List<Livre> findByTitreContainingIgnoreCase(String titre);
@@ -28,25 +35,96 @@ public interface LivreRepository extends JpaRepository<Livre, Long> {
     // Recherche par id catégorie
     List<Livre> findByCategorieId(Long categorieId);
 
+    // Autres livres d'une catégorie, bornés (repli des livres similaires)
+    List<Livre> findByCategorieIdAndIdNot(Long categorieId, Long id, Pageable pageable);
+
     // Derniers livres ajoutés
     @Query("SELECT l FROM Livre l ORDER BY l.id DESC")
     List<Livre> findTopByOrderByIdDesc(Pageable pageable);
 
-    // Livres les plus empruntés
-    @Query("SELECT l FROM Livre l LEFT JOIN l.emprunts e GROUP BY l ORDER BY COUNT(e) DESC")
-    List<Livre> findTopMostBorrowed(Pageable pageable);
-
     // Nouveaux livres (pour PublicController)
     @Query("SELECT l FROM Livre l ORDER BY l.datePublication DESC")
     List<Livre> findLatest(int limit);
 
-    // Livres populaires (pour PublicController)
-    @Query("SELECT l FROM Livre l ORDER BY SIZE(l.emprunts) DESC")
-    List<Livre> findMostBorrowed(int limit);
+    // Classement des plus empruntés (ClassementLivresService) : top-K sur l'index nb_emprunts
+    @Query("SELECT l.id, l.nbEmprunts FROM Livre l WHERE l.nbEmprunts > 0 ORDER BY l.nbEmprunts DESC, l.id")
+    List<Object[]> findClassement(Pageable pageable);
+
+    @Query("SELECT l.nbEmprunts FROM Livre l WHERE l.id = :id")
+    Optional<Integer> findNbEmpruntsById(@Param("id") Long id);
+
+    // Livres dont le nom d'auteur / de catégorie dénormalisé change (journal de synchronisation)
+    @Query("SELECT l.id FROM Livre l WHERE l.auteur.id = :auteurId")
+    List<Long> findIdsByAuteurId(@Param("auteurId") Long auteurId);
+
+    @Query("SELECT l.id FROM Livre l WHERE l.categorie.id = :categorieId")
+    List<Long> findIdsByCategorieId(@Param("categorieId") Long categorieId);
 
     // Livres disponibles
     List<Livre> findByNbExemplairesGreaterThan(int min);
 
     // Comptage
     long count();
-}
\ No newline at end of file
+
+    // Ids des livres dont la couverture est encore une image base64 inline ou une URL absolue du stockage (migration)
+    @Query("SELECT l.id FROM Livre l WHERE l.cover LIKE 'data:%' OR l.cover LIKE 'http%/api/couvertures/%'")
+    List<Long> findIdsCouverturesAMigrer();
+
+    // Réservation atomique d'un exemplaire : échoue (0 ligne) si le stock est épuisé.
+    // Met à jour les compteurs d'emprunts dans la même instruction.
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Livre l SET l.nbExemplaires = l.nbExemplaires - 1,
+                               l.nbEmprunts = l.nbEmprunts + 1,
+                               l.nbEmpruntsEnCours = l.nbEmpruntsEnCours + 1
+            WHERE l.id = :id AND l.nbExemplaires > 0
+            """)
+    int reserverExemplaire(@Param("id") Long id);
+
+    // Retour d'un exemplaire en stock
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Livre l SET l.nbExemplaires = l.nbExemplaires + 1,
+                               l.nbEmpruntsEnCours = CASE WHEN l.nbEmpruntsEnCours > 0
+                                                          THEN l.nbEmpruntsEnCours - 1 ELSE 0 END
+            WHERE l.id = :id
+            """)
+    int restituerExemplaire(@Param("id") Long id);
+
+    // Exemplaire mis de côté pour une réservation : sort du stock sans compter comme emprunt
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Livre l SET l.nbExemplaires = l.nbExemplaires - 1 WHERE l.id = :id AND l.nbExemplaires > 0")
+    int retenirExemplaire(@Param("id") Long id);
+
+    // Mise de côté expirée ou annulée sans lecteur suivant : l'exemplaire revient en stock
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Livre l SET l.nbExemplaires = l.nbExemplaires + 1 WHERE l.id = :id")
+    int libererExemplaire(@Param("id") Long id);
+
+    // Emprunt validé sur l'exemplaire mis de côté : le stock a déjà été décrémenté
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Livre l SET l.nbEmprunts = l.nbEmprunts + 1,
+                               l.nbEmpruntsEnCours = l.nbEmpruntsEnCours + 1
+            WHERE l.id = :id
+            """)
+    int emprunterExemplaireRetenu(@Param("id") Long id);
+
+    // Réconciliation : recalcule les compteurs depuis la table emprunts
+    @Modifying
+    @Query("""
+            UPDATE Livre l SET
+                l.nbEmprunts = (SELECT COUNT(e) FROM Emprunt e WHERE e.livre = l
+                                AND e.statut IN (sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE,
+                                                 sn.unchk.bibliotheque.entity.StatutEmprunt.TERMINE)),
+                l.nbEmpruntsEnCours = (SELECT COUNT(e) FROM Emprunt e WHERE e.livre = l
+                                AND e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.VALIDE
+                                AND e.rendu = false)
+            """)
+    int recalculerCompteursEmprunts();
+
+    // Export du catalogue en flux
+    @Query("SELECT l FROM Livre l LEFT JOIN FETCH l.auteur a LEFT JOIN FETCH a.creePar LEFT JOIN FETCH l.categorie ORDER BY l.id")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Livre> streamPourExport();
+}
@@ -0,0 +1,59 @@
+package sn.unchk.bibliotheque.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import sn.unchk.bibliotheque.entity.Livre;
+
+import java.time.LocalDate;
+
+/**
+ * Critères combinables pour le catalogue paginé.
+ * Chaque méthode retourne null quand le filtre est absent, ce que Specification.where/and ignore.
+ */
+public final class LivreSpecifications {
+
+    private LivreSpecifications() {
+    }
+
+    // Keyset : uniquement les livres situés après le dernier id de la page précédente
+    public static Specification<Livre> idApres(Long dernierId) {
+        if (dernierId == null) return null;
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), dernierId);
+    }
+
+    public static Specification<Livre> titreContient(String titre) {
+        if (titre == null || titre.isBlank()) return null;
+        String motif = "%" + titre.trim().toLowerCase() + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("titre")), motif);
+    }
+
+    public static Specification<Livre> categorie(Long categorieId) {
+        if (categorieId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("categorie").get("id"), categorieId);
+    }
+
+    public static Specification<Livre> auteur(Long auteurId) {
+        if (auteurId == null) return null;
+        return (root, query, cb) -> cb.equal(root.get("auteur").get("id"), auteurId);
+    }
+
+    public static Specification<Livre> langue(String langue) {
+        if (langue == null || langue.isBlank()) return null;
+        return (root, query, cb) -> cb.equal(root.get("langue"), langue.trim());
+    }
+
+    // Décennie de publication : [decennie, decennie + 10)
+    public static Specification<Livre> decennie(Integer decennie) {
+        if (decennie == null) return null;
+        LocalDate debut = LocalDate.of(decennie, 1, 1);
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("datePublication"), debut),
+                cb.lessThan(root.get("datePublication"), debut.plusYears(10)));
+    }
+
+    public static Specification<Livre> disponible(Boolean disponible) {
+        if (disponible == null) return null;
+        return (root, query, cb) -> disponible
+                ? cb.greaterThan(root.get("nbExemplaires"), 0)
+                : cb.lessThanOrEqualTo(root.get("nbExemplaires"), 0);
+    }
+}
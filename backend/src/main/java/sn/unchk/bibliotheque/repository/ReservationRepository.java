@@ -0,0 +1,85 @@
+package sn.unchk.bibliotheque.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import sn.unchk.bibliotheque.entity.Reservation;
+import sn.unchk.bibliotheque.entity.StatutReservation;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    List<Reservation> findByUtilisateurIdAndStatutInOrderById(Long utilisateurId, Collection<StatutReservation> statuts);
+
+    List<Reservation> findByLivreIdAndStatutInOrderById(Long livreId, Collection<StatutReservation> statuts);
+
+    Optional<Reservation> findFirstByUtilisateurIdAndLivreIdAndStatutIn(Long utilisateurId, Long livreId,
+                                                                        Collection<StatutReservation> statuts);
+
+    long countByUtilisateurIdAndStatutIn(Long utilisateurId, Collection<StatutReservation> statuts);
+
+    long countByLivreIdAndStatut(Long livreId, StatutReservation statut);
+
+    // File d'un livre, dans l'ordre d'arrivée
+    @Query("""
+            SELECT r.id FROM Reservation r
+            WHERE r.livre.id = :livreId AND r.statut = sn.unchk.bibliotheque.entity.StatutReservation.EN_FILE
+            ORDER BY r.id
+            """)
+    List<Long> findFile(@Param("livreId") Long livreId);
+
+    // Toutes les files : (livreId, reservationId) dans l'ordre d'arrivée
+    @Query("""
+            SELECT r.livre.id, r.id FROM Reservation r
+            WHERE r.statut = sn.unchk.bibliotheque.entity.StatutReservation.EN_FILE
+            ORDER BY r.id
+            """)
+    List<Object[]> findFiles();
+
+    // Mises de côté dépassées, sauf si le titulaire a déjà déposé sa demande d'emprunt
+    @Query("""
+            SELECT r FROM Reservation r
+            WHERE r.statut = sn.unchk.bibliotheque.entity.StatutReservation.DISPONIBLE
+              AND r.dateLimiteRetrait < :maintenant
+              AND NOT EXISTS (SELECT e.id FROM Emprunt e
+                              WHERE e.utilisateur = r.utilisateur AND e.livre = r.livre
+                                AND e.statut = sn.unchk.bibliotheque.entity.StatutEmprunt.EN_ATTENTE)
+            """)
+    List<Reservation> findExpirees(@Param("maintenant") LocalDateTime maintenant);
+
+    // Lecteurs ayant un exemplaire mis de côté, pour un lot de validations
+    @Query("""
+            SELECT r.livre.id, r.utilisateur.id FROM Reservation r
+            WHERE r.statut = sn.unchk.bibliotheque.entity.StatutReservation.DISPONIBLE AND r.livre.id IN :livreIds
+            """)
+    List<Object[]> findRetenues(@Param("livreIds") Collection<Long> livreIds);
+
+    // Livres remis en stock (modification du nombre d'exemplaires) alors que des lecteurs attendent
+    @Query("""
+            SELECT DISTINCT r.livre.id FROM Reservation r
+            WHERE r.statut = sn.unchk.bibliotheque.entity.StatutReservation.EN_FILE AND r.livre.nbExemplaires > 0
+            """)
+    List<Long> findLivresAServir();
+
+    // Transitions conditionnelles : une seule gagne si le retour, le balayage et l'annulation se croisent
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Reservation r SET r.statut = sn.unchk.bibliotheque.entity.StatutReservation.DISPONIBLE,
+                                     r.dateDisponibilite = :maintenant, r.dateLimiteRetrait = :limite
+            WHERE r.id = :id AND r.statut = sn.unchk.bibliotheque.entity.StatutReservation.EN_FILE
+            """)
+    int mettreDeCote(@Param("id") Long id,
+                     @Param("maintenant") LocalDateTime maintenant,
+                     @Param("limite") LocalDateTime limite);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Reservation r SET r.statut = :vers WHERE r.id = :id AND r.statut = :de")
+    int changerStatut(@Param("id") Long id,
+                      @Param("de") StatutReservation de,
+                      @Param("vers") StatutReservation vers);
+}
@@ -0,0 +1,66 @@
+package sn.unchk.bibliotheque.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import sn.unchk.bibliotheque.entity.DimensionStatistique;
+import sn.unchk.bibliotheque.entity.StatistiqueEmprunt;
+
+import java.util.List;
+
+public interface StatistiqueEmpruntRepository extends JpaRepository<StatistiqueEmprunt, Long> {
+
+    // Lecture du dashboard : quelques lignes, indépendamment du volume d'emprunts
+    List<StatistiqueEmprunt> findByDimensionAndAnneeAndMois(DimensionStatistique dimension, int annee, int mois);
+
+    List<StatistiqueEmprunt> findByDimensionAndCleAndAnnee(DimensionStatistique dimension, long cle, int annee);
+
+    boolean existsByDimensionAndCleAndAnneeAndMois(DimensionStatistique dimension, long cle, int annee, int mois);
+
+    @Modifying
+    @Query("""
+            UPDATE StatistiqueEmprunt s SET s.nbEmprunts = s.nbEmprunts + :emprunts, s.nbRetours = s.nbRetours + :retours
+            WHERE s.dimension = :dimension AND s.cle = :cle AND s.annee = :annee AND s.mois = :mois
+            """)
+    int incrementer(@Param("dimension") DimensionStatistique dimension,
+                    @Param("cle") long cle,
+                    @Param("annee") int annee,
+                    @Param("mois") int mois,
+                    @Param("emprunts") long emprunts,
+                    @Param("retours") long retours);
+
+    @Modifying
+    @Query("DELETE FROM StatistiqueEmprunt s")
+    void supprimerTout();
+
+    // ===== Reconstruction depuis l'historique =====
+    @Query("""
+            SELECT YEAR(e.dateEmprunt), MONTH(e.dateEmprunt), COUNT(e) FROM Emprunt e
+            WHERE e.dateEmprunt IS NOT NULL
+            GROUP BY YEAR(e.dateEmprunt), MONTH(e.dateEmprunt)
+            """)
+    List<Object[]> agregerEmpruntsParMois();
+
+    @Query("""
+            SELECT YEAR(e.dateRetour), MONTH(e.dateRetour), COUNT(e) FROM Emprunt e
+            WHERE e.dateRetour IS NOT NULL
+            GROUP BY YEAR(e.dateRetour), MONTH(e.dateRetour)
+            """)
+    List<Object[]> agregerRetoursParMois();
+
+    @Query("""
+            SELECT c.id, YEAR(e.dateEmprunt), MONTH(e.dateEmprunt), COUNT(e) FROM Emprunt e
+            JOIN e.livre l LEFT JOIN l.categorie c
+            WHERE e.dateEmprunt IS NOT NULL
+            GROUP BY c.id, YEAR(e.dateEmprunt), MONTH(e.dateEmprunt)
+            """)
+    List<Object[]> agregerEmpruntsParCategorie();
+
+    @Query("""
+            SELECT e.livre.id, YEAR(e.dateEmprunt), MONTH(e.dateEmprunt), COUNT(e) FROM Emprunt e
+            WHERE e.dateEmprunt IS NOT NULL
+            GROUP BY e.livre.id, YEAR(e.dateEmprunt), MONTH(e.dateEmprunt)
+            """)
+    List<Object[]> agregerEmpruntsParLivre();
+}
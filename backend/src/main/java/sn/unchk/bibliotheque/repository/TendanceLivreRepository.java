@@ -0,0 +1,7 @@
+package sn.unchk.bibliotheque.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import sn.unchk.bibliotheque.entity.TendanceLivre;
+
+public interface TendanceLivreRepository extends JpaRepository<TendanceLivre, Long> {
+}
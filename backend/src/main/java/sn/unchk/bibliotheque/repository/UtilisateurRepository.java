@@ -1,6 +1,7 @@
 package sn.unchk.bibliotheque.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import sn.unchk.bibliotheque.entity.Role;
 import sn.unchk.bibliotheque.entity.Utilisateur;
 
 import java.util.List;
@@ -20,4 +21,7 @@ public interface UtilisateurRepository extends JpaRepository<Utilisateur, Long>
     // ✅ Recherche par statut (actif/inactif)
     List<Utilisateur> findByActif(boolean actif);
 
+    // ✅ Test d'existence sans charger la table (DataInitializer)
+    boolean existsByRole(Role role);
+
 }
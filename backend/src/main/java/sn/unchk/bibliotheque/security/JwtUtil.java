@@ -1,6 +1,7 @@
 package sn.unchk.bibliotheque.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -18,10 +19,27 @@ import java.util.function.Function;
 public class JwtUtil {
     private final SecretKey key;
     private final long jwtExpirationMs;
+    private final JwtParser parser; // ✅ Construit une seule fois (thread-safe)
+
+    /**
+     * Vue immuable d'un jeton dont la signature a été vérifiée une seule fois.
+     */
+    public record JetonVerifie(String subject, String role, Date expiration) {
+        public boolean isExpire() {
+            return expiration != null && expiration.before(new Date());
+        }
+    }
 
     public JwtUtil(@Value("${app.jwt.secret:change-me}") String secret, @Value("${app.jwt.expiration-ms:86400000}") long jwtExpirationMs) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes());
         this.jwtExpirationMs = jwtExpirationMs;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
+
+    // ✅ Un seul parse + vérification HMAC par requête ; lève JwtException si le jeton est invalide
+    public JetonVerifie verifier(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        return new JetonVerifie(claims.getSubject(), claims.get("role", String.class), claims.getExpiration());
     }
 
     public String extractUsername(String token) {
@@ -29,18 +47,10 @@ public class JwtUtil {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> fn) {
-        final Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        final Claims claims = parser.parseClaimsJws(token).getBody();
         return fn.apply(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", userDetails.getAuthorities().stream().findFirst().map(Object::toString).orElse("ROLE_LECTEUR"));
@@ -48,8 +58,11 @@ public class JwtUtil {
         return Jwts.builder().setClaims(claims).setSubject(userDetails.getUsername()).setIssuedAt(new Date(now)).setExpiration(new Date(now + jwtExpirationMs)).signWith(key, SignatureAlgorithm.HS256).compact();
     }
 
+    public boolean validateToken(JetonVerifie jeton, UserDetails userDetails) {
+        return jeton.subject() != null && jeton.subject().equals(userDetails.getUsername()) && !jeton.isExpire();
+    }
+
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(verifier(token), userDetails);
     }
 }
@@ -15,15 +15,23 @@ import java.util.List;
 @Service
 public class MyUserDetailsService implements UserDetailsService {
     private final UtilisateurRepository repo;
+    private final PrincipalCache cache;
 
-    public MyUserDetailsService(UtilisateurRepository repo) {
+    public MyUserDetailsService(UtilisateurRepository repo, PrincipalCache cache) {
         this.repo = repo;
+        this.cache = cache;
     }
 
+    // Servi depuis PrincipalCache ; la base n'est interrogée qu'en cas d'absence ou d'expiration
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        return cache.get(email, this::charger);
+    }
+
+    private UserDetails charger(String email) {
         Utilisateur u = repo.findByEmail(email).orElseThrow(() -> new UsernameNotFoundException("Utilisateur non trouvé"));
         GrantedAuthority auth = new SimpleGrantedAuthority("ROLE_" + u.getRole().name());
-        return new User(u.getEmail(), u.getPassword(), List.of(auth));
+        // enabled = statut actif du compte
+        return new User(u.getEmail(), u.getPassword(), u.isActif(), true, true, true, List.of(auth));
     }
 }
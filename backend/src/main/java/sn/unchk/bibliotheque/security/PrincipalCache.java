@@ -0,0 +1,124 @@
+package sn.unchk.bibliotheque.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Cache borné des principaux authentifiés (email → UserDetails avec rôle et statut actif).
+ * Évite un findByEmail par requête dans JwtAuthenticationFilter.
+ * Éviction LRU au-delà de la taille maximale, expiration après le TTL,
+ * invalidation explicite par UtilisateurService à chaque modification du compte.
+ * Une invalidation qui tombe pendant un chargement en cours l'empêche d'être mis en cache
+ * (génération par email, suivie tant qu'un chargement est en vol).
+ */
+@Component
+public class PrincipalCache {
+
+    private record Entree(UserDetails userDetails, long expireA) {}
+
+    // Chargements en vol pour un email : génération incrémentée par chaque invalidation
+    private static final class Chargement {
+        private int generation;
+        private int enVol;
+    }
+
+    private final int tailleMax;
+    private final long ttlMs;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LinkedHashMap<String, Entree> entrees;
+    private final Map<String, Chargement> chargements = new HashMap<>(); // gardé par entrees
+
+    public PrincipalCache(@Value("${app.securite.principal-cache.taille-max:10000}") int tailleMax,
+                          @Value("${app.securite.principal-cache.ttl-ms:300000}") long ttlMs) {
+        this.tailleMax = tailleMax;
+        this.ttlMs = ttlMs;
+        this.entrees = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+                boolean plein = size() > PrincipalCache.this.tailleMax;
+                if (plein) evictions.increment();
+                return plein;
+            }
+        };
+    }
+
+    public UserDetails get(String email, Function<String, UserDetails> chargeur) {
+        long maintenant = System.currentTimeMillis();
+        Chargement chargement;
+        int generation;
+        synchronized (entrees) {
+            Entree e = entrees.get(email);
+            if (e != null && e.expireA() > maintenant) {
+                hits.increment();
+                return copie(e.userDetails());
+            }
+            chargement = chargements.computeIfAbsent(email, k -> new Chargement());
+            chargement.enVol++;
+            generation = chargement.generation;
+        }
+        misses.increment();
+        UserDetails userDetails = null;
+        try {
+            // Chargement hors verrou : un accès base lent ne bloque pas les autres requêtes
+            userDetails = chargeur.apply(email);
+            return userDetails;
+        } finally {
+            synchronized (entrees) {
+                // ⚠️ Invalidé pendant le chargement : la valeur lue est peut-être déjà périmée
+                if (userDetails != null && chargement.generation == generation) {
+                    entrees.put(email, new Entree(copie(userDetails), maintenant + ttlMs));
+                }
+                if (--chargement.enVol == 0) chargements.remove(email);
+            }
+        }
+    }
+
+    // ProviderManager efface le mot de passe du UserDetails retourné après un login :
+    // l'instance en cache n'est donc jamais exposée directement
+    private static UserDetails copie(UserDetails u) {
+        return User.withUserDetails(u).build();
+    }
+
+    public void invalider(String email) {
+        if (email == null) return;
+        synchronized (entrees) {
+            entrees.remove(email);
+            Chargement chargement = chargements.get(email);
+            if (chargement != null) chargement.generation++;
+        }
+    }
+
+    public void invaliderTout() {
+        synchronized (entrees) {
+            entrees.clear();
+            chargements.values().forEach(c -> c.generation++);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        int taille;
+        synchronized (entrees) {
+            taille = entrees.size();
+        }
+        return Map.of(
+                "hits", h,
+                "misses", m,
+                "evictions", evictions.sum(),
+                "taille", taille,
+                "tailleMax", tailleMax,
+                "tauxHit", h + m > 0 ? Math.round(h * 1000.0 / (h + m)) / 10.0 : 0.0
+        );
+    }
+}
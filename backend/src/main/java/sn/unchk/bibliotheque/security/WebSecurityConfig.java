@@ -1,5 +1,6 @@
 package sn.unchk.bibliotheque.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -56,6 +57,8 @@ public class WebSecurityConfig {
                 .cors(cors -> {}) // Use CORS bean
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // Fin d'une réponse en flux (exports) : la requête initiale a déjà été autorisée
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/", "/health").permitAll()
                         // Endpoints publics (auth, GETs)
                         .requestMatchers("/api/auth/register", "/api/auth/login").permitAll()
@@ -64,13 +67,19 @@ public class WebSecurityConfig {
                                 "/api/livres",
                                 "/api/livres/nouveaux",
                                 "/api/livres/populaires",
+                                "/api/livres/tendances",
                                 "/api/avis",
                                 "/api/auteurs",
                                 "/api/auteurs/vedette",
                                 "/api/genres",
                                 "/api/stats",
+                                "/api/accueil",
+                                "/api/sync",
                                 "/api/user/status",
-                                "/api/livres/**"
+                                "/api/livres/**",
+                                "/api/recherche",
+                                "/api/recherche/suggestions",
+                                "/api/couvertures/**"
                         ).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Preflight requests
                         // Tous les autres endpoints nécessitent authentification
@@ -90,7 +99,8 @@ public class WebSecurityConfig {
         config.setAllowCredentials(true);
         config.setAllowedOrigins(List.of("http://localhost:3000", "http://localhost:3001")); // Frontend
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Cache-Control", "Content-Type"));
+        config.setAllowedHeaders(List.of("Authorization", "Cache-Control", "Content-Type", "If-None-Match", "Idempotency-Key"));
+        config.setExposedHeaders(List.of("ETag"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
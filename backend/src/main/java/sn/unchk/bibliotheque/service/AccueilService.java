@@ -0,0 +1,139 @@
+package sn.unchk.bibliotheque.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.mapper.AuteurMapper;
+import sn.unchk.bibliotheque.mapper.CategorieMapper;
+import sn.unchk.bibliotheque.mapper.LivreMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Page d'accueil publique en une seule réponse. Les six blocs (statistiques, nouveautés,
+ * populaires, auteurs en vedette, avis, genres) sont assemblés en arrière-plan et gardés en
+ * octets JSON UTF-8 et gzip : servir une requête revient à copier un tableau.
+ * <p>
+ * Un changement de catalogue ou d'emprunt marque le contenu périmé ; il est reconstruit au plus
+ * une fois par intervalle minimal, quel que soit le nombre de changements entre-temps.
+ */
+@Service
+public class AccueilService {
+
+    public record Contenu(byte[] json, byte[] gzip, long genereA) {}
+
+    private final LivreService livreService;
+    private final AuteurService auteurService;
+    private final CategorieService categorieService;
+    private final EmpruntService empruntService;
+    private final AvisService avisService;
+    private final ClassementLivresService classementService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate lecture;
+
+    private final AtomicBoolean perime = new AtomicBoolean(true);
+    private volatile Contenu contenu;
+
+    public AccueilService(LivreService livreService,
+                          AuteurService auteurService,
+                          CategorieService categorieService,
+                          EmpruntService empruntService,
+                          AvisService avisService,
+                          ClassementLivresService classementService,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager) {
+        this.livreService = livreService;
+        this.auteurService = auteurService;
+        this.categorieService = categorieService;
+        this.empruntService = empruntService;
+        this.avisService = avisService;
+        this.classementService = classementService;
+        this.objectMapper = objectMapper;
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+    }
+
+    public Contenu contenu() {
+        Contenu c = contenu;
+        return c != null ? c : rafraichir(); // requête arrivée avant la première construction
+    }
+
+    // ==========================
+    // Invalidation
+    // ==========================
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmprunt(EmpruntEvent event) {
+        if (event.type() == EmpruntEvent.Type.RETARD) return;
+        perime.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogue(CatalogueEvent event) {
+        perime.set(true);
+    }
+
+    // ==========================
+    // Construction en arrière-plan
+    // ==========================
+    // Reconstruction forcée une fois les données d'initialisation en place (CommandLineRunner)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        perime.set(false);
+        rafraichir();
+    }
+
+    @Scheduled(fixedDelayString = "${app.accueil.intervalle-min-ms:5000}")
+    public void rafraichirSiPerime() {
+        if (!perime.getAndSet(false)) return;
+        try {
+            rafraichir();
+        } catch (RuntimeException e) {
+            perime.set(true); // nouvelle tentative au prochain passage, l'ancien contenu reste servi
+            throw e;
+        }
+    }
+
+    public synchronized Contenu rafraichir() {
+        Map<String, Object> accueil = lecture.execute(s -> {
+            Map<String, Object> blocs = new LinkedHashMap<>();
+            blocs.put("stats", Map.of(
+                    "livres", livreService.count(),
+                    "auteurs", auteurService.count(),
+                    "lecteurs", empruntService.countUtilisateurs()));
+            blocs.put("nouveaux", livreService.findLatest(4).stream().map(LivreMapper::toDTO).toList());
+            blocs.put("populaires", classementService.livres(ClassementLivresService.Periode.TOUT, 3).stream()
+                    .map(LivreMapper::toDTO).toList());
+            blocs.put("auteurs", auteurService.findFeatured(3).stream().map(AuteurMapper::toDTO).toList());
+            blocs.put("avis", avisService.findRecentReviews(3));
+            blocs.put("genres", categorieService.findAll().stream().map(CategorieMapper::toDTO).toList());
+            return blocs;
+        });
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(accueil);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+            Contenu c = new Contenu(json, gzip.toByteArray(), System.currentTimeMillis());
+            contenu = c;
+            return c;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation de la page d'accueil impossible", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
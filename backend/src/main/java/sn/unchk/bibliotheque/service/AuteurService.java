@@ -1,5 +1,6 @@
 package sn.unchk.bibliotheque.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import sn.unchk.bibliotheque.dto.LivreDTO;
@@ -18,10 +19,15 @@ import java.util.Optional;
 public class AuteurService {
     private final AuteurRepository repo;
     private final LivreRepository livreRepository;
+    private final RechercheService rechercheService;
+    private final ApplicationEventPublisher events;
 
-    public AuteurService(AuteurRepository repo, LivreRepository livreRepository) {
+    public AuteurService(AuteurRepository repo, LivreRepository livreRepository, RechercheService rechercheService,
+                         ApplicationEventPublisher events) {
         this.repo = repo;
         this.livreRepository = livreRepository;
+        this.rechercheService = rechercheService;
+        this.events = events;
     }
 
     // ✅ CORRECTION : Méthode findById manquante
@@ -65,7 +71,14 @@ public class AuteurService {
 
     // ✅ Créer un auteur
     public Auteur save(Auteur a) {
-        return repo.save(a);
+        boolean existant = a.getId() != null;
+        Auteur saved = repo.save(a);
+        if (existant) {
+            rechercheService.reindexerAuteur(saved.getId()); // le nom a pu changer
+        }
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.AUTEUR, saved.getId(),
+                existant ? livreRepository.findIdsByAuteurId(saved.getId()) : List.of()));
+        return saved;
     }
 
     // ✅ Modifier un auteur
@@ -77,12 +90,19 @@ public class AuteurService {
         existing.setNationalite(auteurMaj.getNationalite());
         existing.setBiographie(auteurMaj.getBiographie()); // Correction: biography au lieu de biographie
 
-        return repo.save(existing);
+        Auteur saved = repo.save(existing);
+        rechercheService.reindexerAuteur(saved.getId());
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.AUTEUR, saved.getId(),
+                livreRepository.findIdsByAuteurId(saved.getId())));
+        return saved;
     }
 
-    // ✅ Supprimer un auteur
+    // ✅ Supprimer un auteur (ses livres sont supprimés en cascade)
     public void delete(Long id) {
+        List<Long> livres = livreRepository.findIdsByAuteurId(id); // relevés avant la cascade
         repo.deleteById(id);
+        rechercheService.supprimerAuteur(id);
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.AUTEUR, id, livres));
     }
 
     // ✅ Compter le nombre d'auteurs
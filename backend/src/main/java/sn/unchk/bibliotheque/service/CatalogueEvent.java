@@ -0,0 +1,21 @@
+package sn.unchk.bibliotheque.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Événement publié à chaque modification du catalogue (livre, auteur, catégorie, lot d'import) et
+ * après les recalculs planifiés qui changent ce qu'il affiche (classements, livres similaires).
+ * Les vues précalculées s'y abonnent pour se rafraîchir ; id est null pour un import ou un recalcul.
+ * <p>
+ * livres : livres dont la représentation change aussi (nom d'auteur ou de catégorie dénormalisé,
+ * suppression en cascade, lot d'import).
+ */
+public record CatalogueEvent(Type type, Long id, Collection<Long> livres) {
+
+    public enum Type { LIVRE, AUTEUR, CATEGORIE, IMPORT, RECALCUL }
+
+    public CatalogueEvent(Type type, Long id) {
+        this(type, id, List.of());
+    }
+}
@@ -1,8 +1,10 @@
 package sn.unchk.bibliotheque.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import sn.unchk.bibliotheque.entity.Categorie;
 import sn.unchk.bibliotheque.repository.CategorieRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,9 +13,13 @@ import java.util.Optional;
 public class CategorieService {
 
     private final CategorieRepository repo;
+    private final LivreRepository livreRepository;
+    private final ApplicationEventPublisher events;
 
-    public CategorieService(CategorieRepository repo) {
+    public CategorieService(CategorieRepository repo, LivreRepository livreRepository, ApplicationEventPublisher events) {
         this.repo = repo;
+        this.livreRepository = livreRepository;
+        this.events = events;
     }
 
     public List<Categorie> getAll() {
@@ -25,11 +31,16 @@ public class CategorieService {
     }
 
     public Categorie save(Categorie categorie) {
-        return repo.save(categorie);
+        boolean existante = categorie.getId() != null;
+        Categorie saved = repo.save(categorie);
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.CATEGORIE, saved.getId(),
+                existante ? livreRepository.findIdsByCategorieId(saved.getId()) : List.of())); // le nom a pu changer
+        return saved;
     }
 
     public void delete(Long id) {
         repo.deleteById(id);
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.CATEGORIE, id));
     }
 
     public List<Categorie> findAll() {
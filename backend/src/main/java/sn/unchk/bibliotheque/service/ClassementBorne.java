@@ -0,0 +1,63 @@
+package sn.unchk.bibliotheque.service;
+
+import java.util.*;
+
+/**
+ * Les K meilleurs identifiants d'un ensemble de scores qui ne font que croître entre deux
+ * reconstructions. Les écritures sont sérialisées par le service propriétaire ; les lectures
+ * prennent la liste triée publiée (immuable) sans verrou.
+ */
+final class ClassementBorne {
+
+    record Entree(Long id, double score) {}
+
+    // Meilleur score d'abord, puis id croissant pour un ordre stable
+    private static final Comparator<Entree> ORDRE = Comparator.comparingDouble(Entree::score).reversed()
+            .thenComparing(Entree::id);
+
+    private final int taille;
+    private final Map<Long, Double> membres = new HashMap<>();
+    private volatile List<Entree> trie = List.of();
+
+    ClassementBorne(int taille) {
+        this.taille = taille;
+    }
+
+    List<Entree> trie() {
+        return trie;
+    }
+
+    // Le score d'un élément n'a pu que croître : il entre s'il dépasse le dernier, sinon rien ne change
+    void proposer(Long id, double score) {
+        if (score <= 0) return;
+        if (membres.containsKey(id) || membres.size() < taille) {
+            membres.merge(id, score, Math::max);
+        } else {
+            Entree dernier = trie.get(trie.size() - 1);
+            if (ORDRE.compare(new Entree(id, score), dernier) >= 0) return;
+            membres.remove(dernier.id());
+            membres.put(id, score);
+        }
+        publier();
+    }
+
+    // Tas min borné à K éléments : O(n log K) quel que soit le nombre de candidats
+    void reconstruire(Collection<Entree> candidats) {
+        PriorityQueue<Entree> tas = new PriorityQueue<>(taille + 1, ORDRE.reversed());
+        for (Entree e : candidats) {
+            if (e.score() <= 0) continue;
+            tas.offer(e);
+            if (tas.size() > taille) tas.poll();
+        }
+        membres.clear();
+        tas.forEach(e -> membres.put(e.id(), e.score()));
+        publier();
+    }
+
+    private void publier() {
+        trie = membres.entrySet().stream()
+                .map(e -> new Entree(e.getKey(), e.getValue()))
+                .sorted(ORDRE)
+                .toList();
+    }
+}
@@ -0,0 +1,215 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.repository.EmpruntRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Classements des livres les plus empruntés : depuis toujours, sur 7 jours et sur 30 jours.
+ * Chaque classement ne conserve que ses K premiers livres, déjà triés ; une validation d'emprunt
+ * ne met à jour que le livre concerné et la lecture renvoie directement la liste triée.
+ * <p>
+ * Depuis toujours : compteurs persistés {@code livres.nb_emprunts}. Fenêtres glissantes : compteurs
+ * journaliers en mémoire, rechargés au démarrage (et chaque nuit) par un GROUP BY sur 30 jours.
+ */
+@Service
+public class ClassementLivresService {
+
+    private static final int JOURS_CONSERVES = 30;
+
+    public enum Periode {
+        TOUT(0), SEPT_JOURS(7), TRENTE_JOURS(30);
+
+        private final int jours;
+
+        Periode(int jours) {
+            this.jours = jours;
+        }
+
+        public static Periode depuis(String valeur) {
+            if (valeur == null || valeur.isBlank()) return TOUT;
+            return switch (valeur.trim().toLowerCase(Locale.ROOT)) {
+                case "tout" -> TOUT;
+                case "7j", "7", "semaine", "sept_jours" -> SEPT_JOURS;
+                case "30j", "30", "mois", "trente_jours" -> TRENTE_JOURS;
+                default -> throw new IllegalArgumentException("Période inconnue : " + valeur);
+            };
+        }
+    }
+
+    public record Entree(Long livreId, long emprunts) {}
+
+    private final LivreRepository livreRepo;
+    private final EmpruntRepository empruntRepo;
+    private final ApplicationEventPublisher events;
+    private final int taille;
+    private final Map<Periode, ClassementBorne> classements = new EnumMap<>(Periode.class);
+
+    // Emprunts par livre et par jour sur les 30 derniers jours (indice = jour epoch modulo 30)
+    private final Map<Long, int[]> parJour = new HashMap<>();
+    private volatile long jourCourant = LocalDate.now().toEpochDay();
+
+    public ClassementLivresService(LivreRepository livreRepo,
+                                   EmpruntRepository empruntRepo,
+                                   ApplicationEventPublisher events,
+                                   @Value("${app.classement.taille:50}") int taille) {
+        this.livreRepo = livreRepo;
+        this.empruntRepo = empruntRepo;
+        this.events = events;
+        this.taille = taille;
+        for (Periode p : Periode.values()) {
+            classements.put(p, new ClassementBorne(taille));
+        }
+    }
+
+    // ==========================
+    // Lecture
+    // ==========================
+    public List<Entree> top(Periode periode, int limite) {
+        if (LocalDate.now().toEpochDay() != jourCourant) {
+            avancerJour();
+        }
+        return classements.get(periode).trie().stream()
+                .limit(Math.max(0, limite))
+                .map(e -> new Entree(e.id(), (long) e.score()))
+                .toList();
+    }
+
+    // Livres dans l'ordre du classement : au plus K lectures par clé primaire
+    public List<Livre> livres(Periode periode, int limite) {
+        List<Entree> top = top(periode, limite);
+        Map<Long, Livre> parId = livreRepo.findAllById(top.stream().map(Entree::livreId).toList()).stream()
+                .collect(Collectors.toMap(Livre::getId, Function.identity()));
+        return top.stream().map(e -> parId.get(e.livreId())).filter(Objects::nonNull).toList();
+    }
+
+    // Format attendu par TopBooksChart
+    public List<Map<String, Object>> topLivres(Periode periode, int limite) {
+        List<Entree> top = top(periode, limite);
+        Map<Long, Livre> parId = livreRepo.findAllById(top.stream().map(Entree::livreId).toList()).stream()
+                .collect(Collectors.toMap(Livre::getId, Function.identity()));
+
+        List<Map<String, Object>> resultat = new ArrayList<>();
+        for (Entree e : top) {
+            Livre l = parId.get(e.livreId());
+            if (l == null) continue;
+            Map<String, Object> livre = new HashMap<>();
+            livre.put("id", l.getId());
+            livre.put("titre", l.getTitre());
+            livre.put("auteur", l.getAuteur() != null ? l.getAuteur().getNomComplet() : "Inconnu");
+            livre.put("emprunts", (int) e.emprunts());
+            resultat.add(livre);
+        }
+        return resultat;
+    }
+
+    // ==========================
+    // Mise à jour incrémentale
+    // ==========================
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmprunt(EmpruntEvent event) {
+        if (event.type() != EmpruntEvent.Type.VALIDATION || event.livreId() == null) return;
+        livreRepo.findNbEmpruntsById(event.livreId())
+                .ifPresent(total -> enregistrerEmprunt(event.livreId(), total, LocalDate.now()));
+    }
+
+    /**
+     * Comptabilise un emprunt validé : un compteur journalier et au plus trois classements à retoucher.
+     */
+    public synchronized void enregistrerEmprunt(Long livreId, long totalPersiste, LocalDate jour) {
+        if (jour.toEpochDay() != jourCourant) avancerJour();
+        long ecart = jourCourant - jour.toEpochDay();
+        if (ecart >= 0 && ecart < JOURS_CONSERVES) {
+            parJour.computeIfAbsent(livreId, id -> new int[JOURS_CONSERVES])[indice(jour.toEpochDay())]++;
+        }
+
+        classements.get(Periode.TOUT).proposer(livreId, totalPersiste);
+        for (Periode p : List.of(Periode.SEPT_JOURS, Periode.TRENTE_JOURS)) {
+            classements.get(p).proposer(livreId, compter(parJour.get(livreId), p.jours));
+        }
+    }
+
+    // ==========================
+    // Reconstruction
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0) // avant la page d'accueil précalculée, qui lit ce classement
+    public void initialiser() {
+        reconstruire();
+    }
+
+    /**
+     * Recharge les classements depuis la base : top-K des compteurs persistés (index sur nb_emprunts)
+     * et emprunts des 30 derniers jours. Planifié chaque nuit après la réconciliation des compteurs,
+     * pour rattraper les suppressions et modifications faites hors EmpruntService.
+     */
+    @Scheduled(cron = "${app.classement.reconstruction-cron:0 45 3 * * *}")
+    public synchronized void reconstruire() {
+        classements.get(Periode.TOUT).reconstruire(livreRepo.findClassement(PageRequest.of(0, taille)).stream()
+                .map(r -> new ClassementBorne.Entree((Long) r[0], ((Number) r[1]).doubleValue()))
+                .toList());
+
+        LocalDate aujourdhui = LocalDate.now();
+        parJour.clear();
+        jourCourant = aujourdhui.toEpochDay();
+        for (Object[] r : empruntRepo.compterEmpruntsParLivreEtJour(aujourdhui.minusDays(JOURS_CONSERVES - 1))) {
+            long jour = ((LocalDate) r[1]).toEpochDay();
+            if (jour > jourCourant) continue;
+            parJour.computeIfAbsent((Long) r[0], id -> new int[JOURS_CONSERVES])[indice(jour)] += ((Number) r[2]).intValue();
+        }
+        reconstruireFenetres();
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.RECALCUL, null));
+    }
+
+    // Changement de jour : les compteurs sortis de la fenêtre sont remis à zéro, puis les fenêtres recalculées
+    private synchronized void avancerJour() {
+        long aujourdhui = LocalDate.now().toEpochDay();
+        if (aujourdhui <= jourCourant) return;
+        long jours = Math.min(aujourdhui - jourCourant, JOURS_CONSERVES);
+        Iterator<int[]> it = parJour.values().iterator();
+        while (it.hasNext()) {
+            int[] compteurs = it.next();
+            for (long j = aujourdhui - jours + 1; j <= aujourdhui; j++) {
+                compteurs[indice(j)] = 0;
+            }
+            if (Arrays.stream(compteurs).allMatch(n -> n == 0)) it.remove();
+        }
+        jourCourant = aujourdhui;
+        reconstruireFenetres();
+    }
+
+    private void reconstruireFenetres() {
+        for (Periode p : List.of(Periode.SEPT_JOURS, Periode.TRENTE_JOURS)) {
+            classements.get(p).reconstruire(parJour.entrySet().stream()
+                    .map(e -> new ClassementBorne.Entree(e.getKey(), compter(e.getValue(), p.jours)))
+                    .toList());
+        }
+    }
+
+    private long compter(int[] compteurs, int jours) {
+        if (compteurs == null) return 0;
+        long total = 0;
+        for (int j = 0; j < jours; j++) {
+            total += compteurs[indice(jourCourant - j)];
+        }
+        return total;
+    }
+
+    private static int indice(long jourEpoch) {
+        return (int) Math.floorMod(jourEpoch, (long) JOURS_CONSERVES);
+    }
+}
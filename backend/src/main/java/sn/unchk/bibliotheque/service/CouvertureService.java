@@ -0,0 +1,200 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stockage des images de couverture sur disque, adressé par contenu (SHA-256).
+ * Une même image n'est écrite qu'une fois ; la ligne `livres` ne garde que le chemin relatif
+ * /api/couvertures/&lt;sha256&gt;.&lt;ext&gt;, l'hôte n'étant ajouté qu'à la sortie (DTO).
+ * Seules les images matricielles sont acceptées : un SVG peut porter du script, et les
+ * couvertures sont servies publiquement depuis notre propre origine.
+ */
+@Service
+public class CouvertureService {
+
+    public static final String CHEMIN_API = "/api/couvertures/";
+
+    private static final Pattern NOM_VALIDE = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,5}");
+    private static final Pattern ESPACES = Pattern.compile("\\s+");
+    // URL absolue vers le stockage, quel que soit l'hôte (renvoyée par le front ou stockée avant le passage au relatif)
+    private static final Pattern URL_ABSOLUE = Pattern.compile("https?://[^/]+" + CHEMIN_API + "([0-9a-f]{64}\\.[a-z0-9]{1,5})");
+
+    // Base publique pour les mappers statiques ; changer d'hôte ne demande aucune migration
+    private static volatile String urlBasePublique = "";
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/png", "png",
+            "image/jpeg", "jpg",
+            "image/jpg", "jpg",
+            "image/gif", "gif",
+            "image/webp", "webp"
+    );
+
+    private static final Map<String, String> TYPES = Map.of(
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "gif", "image/gif",
+            "webp", "image/webp"
+    );
+
+    private final Path racine;
+    private final boolean migrerAuDemarrage;
+    private final LivreRepository livreRepository;
+
+    public CouvertureService(@Value("${app.couvertures.dir:covers}") String dir,
+                             @Value("${app.couvertures.url-base:http://localhost:8080}") String urlBase,
+                             @Value("${app.couvertures.migrer-au-demarrage:false}") boolean migrerAuDemarrage,
+                             LivreRepository livreRepository) {
+        this.racine = Path.of(dir).toAbsolutePath();
+        urlBasePublique = urlBase.endsWith("/") ? urlBase.substring(0, urlBase.length() - 1) : urlBase;
+        this.migrerAuDemarrage = migrerAuDemarrage;
+        this.livreRepository = livreRepository;
+    }
+
+    /**
+     * Référence stockée → URL servie aux clients : les chemins du stockage reçoivent la base
+     * publique (app.couvertures.url-base), les autres valeurs sont retournées telles quelles.
+     */
+    public static String urlPublique(String cover) {
+        return cover != null && cover.startsWith(CHEMIN_API) ? urlBasePublique + cover : cover;
+    }
+
+    /**
+     * Enregistre les octets et retourne la référence stockée (chemin relatif).
+     * Si le contenu existe déjà, rien n'est réécrit.
+     */
+    public String stocker(byte[] contenu, String contentType) {
+        String extension = EXTENSIONS.get(contentType != null ? contentType.trim().toLowerCase() : "");
+        if (extension == null) {
+            throw new IllegalArgumentException("Type d'image non accepté : " + contentType + " (PNG, JPEG, GIF ou WebP)");
+        }
+        String nom = sha256(contenu) + "." + extension;
+        Path cible = chemin(nom);
+        try {
+            if (!Files.exists(cible)) {
+                Files.createDirectories(cible.getParent());
+                Path temp = Files.createTempFile(cible.getParent(), "upload-", ".tmp");
+                Files.write(temp, contenu);
+                try {
+                    Files.move(temp, cible, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    Files.deleteIfExists(temp); // écrit en parallèle par une autre requête
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, cible, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return CHEMIN_API + nom;
+    }
+
+    /**
+     * Convertit une couverture « data:image/...;base64,... » en référence vers le stockage, et une
+     * URL absolue d'une image du stockage en chemin relatif. Les autres URL et chemins sont
+     * retournés tels quels.
+     */
+    public String normaliser(String cover) {
+        if (cover == null) return null;
+        Matcher absolue = URL_ABSOLUE.matcher(cover);
+        if (absolue.matches() && lire(absolue.group(1)).isPresent()) return CHEMIN_API + absolue.group(1);
+        if (!cover.startsWith("data:")) return cover;
+        int virgule = cover.indexOf(',');
+        int pointVirgule = cover.indexOf(';');
+        if (virgule < 0 || pointVirgule < 0 || pointVirgule > virgule || !cover.substring(0, virgule).endsWith(";base64")) {
+            throw new IllegalArgumentException("Couverture inline invalide");
+        }
+        String contentType = cover.substring("data:".length(), pointVirgule);
+        byte[] contenu;
+        try {
+            // Décodeur strict (le décodeur MIME ignore les caractères invalides) ; retours à la ligne tolérés
+            contenu = Base64.getDecoder().decode(ESPACES.matcher(cover.substring(virgule + 1)).replaceAll(""));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Couverture inline invalide : base64 illisible");
+        }
+        if (contenu.length == 0) throw new IllegalArgumentException("Couverture inline vide");
+        return stocker(contenu, contentType);
+    }
+
+    public Optional<Path> lire(String nom) {
+        if (nom == null || !NOM_VALIDE.matcher(nom).matches()) return Optional.empty();
+        Path fichier = chemin(nom);
+        return Files.exists(fichier) ? Optional.of(fichier) : Optional.empty();
+    }
+
+    public String contentType(String nom) {
+        String extension = nom.substring(nom.lastIndexOf('.') + 1);
+        return TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    // ✅ Migration unique : extrait les couvertures base64 et raccourcit les URL absolues du stockage
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrerSiDemande() {
+        if (migrerAuDemarrage) {
+            int n = migrerCouverturesInline();
+            System.out.println("✅ Couvertures migrées vers le stockage : " + n);
+        }
+    }
+
+    /**
+     * Livre par livre (seuls les ids sont chargés d'abord) pour ne jamais garder
+     * plus d'une image base64 en mémoire.
+     */
+    public int migrerCouverturesInline() {
+        List<Long> ids = livreRepository.findIdsCouverturesAMigrer();
+        int migres = 0;
+        for (Long id : ids) {
+            Optional<Livre> livre = livreRepository.findById(id);
+            if (livre.isEmpty()) continue;
+            Livre l = livre.get();
+            String avant = l.getCover();
+            try {
+                l.setCover(normaliser(avant));
+            } catch (IllegalArgumentException e) {
+                // SVG ou base64 illisible : laissée en place, à corriger à la main
+                System.out.println("⚠️ Couverture du livre " + id + " non migrée : " + e.getMessage());
+                continue;
+            }
+            if (Objects.equals(avant, l.getCover())) continue; // URL absolue d'une image absente du stockage
+            livreRepository.save(l);
+            migres++;
+        }
+        return migres;
+    }
+
+    // Répartition sur deux niveaux (ab/cd/abcd...) pour éviter les répertoires trop gros
+    private Path chemin(String nom) {
+        return racine.resolve(nom.substring(0, 2)).resolve(nom.substring(2, 4)).resolve(nom);
+    }
+
+    private static String sha256(byte[] contenu) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenu));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package sn.unchk.bibliotheque.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Agrégation du dashboard admin : les widgets sont calculés en parallèle sur un pool borné
+ * (threads et file d'attente), chacun avec son délai maximal et son cache à durée de vie courte.
+ * Un seul calcul en vol par widget, partagé par les rafraîchissements concurrents.
+ * Un widget lent, en erreur ou refusé par le pool renvoie sa dernière valeur connue
+ * au lieu de faire échouer la réponse.
+ */
+@Service
+public class DashboardService {
+
+    private final Map<String, Supplier<Object>> widgets = new LinkedHashMap<>();
+    private final Map<String, Valeur> cache = new ConcurrentHashMap<>();
+    private final Map<String, Calcul> calculs = new ConcurrentHashMap<>();
+    // Incrémentée à chaque changement d'emprunt : une valeur d'une version antérieure est invalidée
+    private final AtomicLong version = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final long ttlMs;
+
+    private record Valeur(Object donnees, long calculeeA, long version) {}
+
+    private record Calcul(long version, CompletableFuture<Object> future) {}
+
+    public DashboardService(LivreService livreService,
+                            AuteurService auteurService,
+                            EmpruntService empruntService,
+                            ClassementLivresService classementService,
+                            @Value("${app.dashboard.threads:8}") int threads,
+                            @Value("${app.dashboard.file-max:32}") int fileMax,
+                            @Value("${app.dashboard.widget-timeout-ms:2000}") long timeoutMs,
+                            @Value("${app.dashboard.cache-ttl-ms:15000}") long ttlMs) {
+        this.timeoutMs = timeoutMs;
+        this.ttlMs = ttlMs;
+
+        AtomicInteger compteur = new AtomicInteger();
+        // ✅ File bornée : au-delà, le calcul est refusé et le widget servi en mode dégradé
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fileMax), r -> {
+            Thread t = new Thread(r, "dashboard-" + compteur.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        widgets.put("booksCount", livreService::count);
+        widgets.put("authorsCount", auteurService::count);
+        widgets.put("loansInProgress", empruntService::countEnCours);
+        widgets.put("pendingCount", empruntService::countDemandesEnAttente);
+        widgets.put("monthlyStats", empruntService::getStatsMensuels);
+        widgets.put("topBooks", () -> classementService.topLivres(ClassementLivresService.Periode.TOUT, 5));
+        widgets.put("genreStats", empruntService::getRepartitionParGenre);
+        widgets.put("recentLoans", () -> empruntService.getEmpruntsRecents(5));
+        widgets.put("pendingRequests", empruntService::getDemandesEnAttente);
+    }
+
+    public Map<String, Object> getDashboardComplet() {
+        long maintenant = System.currentTimeMillis();
+        long versionCourante = version.get();
+        Map<String, CompletableFuture<Object>> enCours = new LinkedHashMap<>();
+        Map<String, Object> valeurs = new HashMap<>();
+        List<String> degrades = new ArrayList<>();
+
+        // 1) Lancer (ou rejoindre) uniquement les widgets absents, expirés ou invalidés
+        widgets.forEach((nom, calcul) -> {
+            Valeur v = cache.get(nom);
+            if (v != null && v.version() == versionCourante && maintenant - v.calculeeA() < ttlMs) {
+                valeurs.put(nom, v.donnees());
+                return;
+            }
+            try {
+                enCours.put(nom, calculer(nom, calcul, versionCourante));
+            } catch (RejectedExecutionException e) {
+                valeurs.put(nom, v != null ? v.donnees() : null);
+                degrades.add(nom);
+            }
+        });
+
+        // 2) Attendre chaque widget jusqu'à l'échéance commune ; sinon, valeur périmée
+        long echeance = maintenant + timeoutMs;
+        enCours.forEach((nom, future) -> {
+            try {
+                long restant = Math.max(0, echeance - System.currentTimeMillis());
+                valeurs.put(nom, future.get(restant, TimeUnit.MILLISECONDS));
+            } catch (ExecutionException | TimeoutException | CancellationException | InterruptedException e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                Valeur ancienne = cache.get(nom);
+                valeurs.put(nom, ancienne != null ? ancienne.donnees() : null);
+                degrades.add(nom);
+            }
+        });
+
+        Map<String, Object> dashboardData = new HashMap<>();
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("booksCount", valeurs.get("booksCount"));
+        metrics.put("authorsCount", valeurs.get("authorsCount"));
+        metrics.put("loansInProgress", valeurs.get("loansInProgress"));
+        metrics.put("pendingRequests", valeurs.get("pendingCount"));
+        dashboardData.put("metrics", metrics);
+
+        dashboardData.put("monthlyStats", valeurs.get("monthlyStats"));
+        dashboardData.put("topBooks", valeurs.get("topBooks"));
+        dashboardData.put("genreStats", valeurs.get("genreStats"));
+        dashboardData.put("recentLoans", valeurs.get("recentLoans"));
+        dashboardData.put("pendingRequests", valeurs.get("pendingRequests"));
+        dashboardData.put("widgetsDegrades", degrades);
+        return dashboardData;
+    }
+
+    // Calcul partagé : on rejoint celui en vol s'il part de la même version, sinon on en lance un
+    private CompletableFuture<Object> calculer(String nom, Supplier<Object> calcul, long versionCalcul) {
+        return calculs.compute(nom, (k, c) -> {
+            if (c != null && c.version() == versionCalcul && !c.future().isDone()) return c;
+            CompletableFuture<Object> future = CompletableFuture.supplyAsync(calcul, executor);
+            future.thenAccept(donnees -> cache.merge(nom,
+                    new Valeur(donnees, System.currentTimeMillis(), versionCalcul),
+                    // ⚠️ Un calcul lancé avant une invalidation n'écrase jamais une valeur plus récente
+                    (ancienne, nouvelle) -> nouvelle.version() >= ancienne.version() ? nouvelle : ancienne));
+            return new Calcul(versionCalcul, future);
+        }).future();
+    }
+
+    // ✅ Tout changement d'emprunt invalide les widgets (la valeur reste disponible en secours)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmprunt(EmpruntEvent event) {
+        version.incrementAndGet();
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executor.shutdownNow();
+    }
+}
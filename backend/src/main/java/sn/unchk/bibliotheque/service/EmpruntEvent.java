@@ -0,0 +1,11 @@
+package sn.unchk.bibliotheque.service;
+
+/**
+ * Événement publié par EmpruntService à chaque changement d'état d'un emprunt (RETARD : par la
+ * détection planifiée des retards, une fois par emprunt).
+ * Les caches et agrégats en mémoire s'y abonnent au lieu de dépendre d'EmpruntService.
+ */
+public record EmpruntEvent(Long empruntId, Long livreId, Long utilisateurId, Type type) {
+
+    public enum Type { DEMANDE, VALIDATION, REJET, RETOUR, PROLONGATION, SUPPRESSION, RETARD }
+}
@@ -1,7 +1,10 @@
 package sn.unchk.bibliotheque.service;
 
 import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import sn.unchk.bibliotheque.entity.Emprunt;
 import sn.unchk.bibliotheque.entity.Livre;
@@ -13,7 +16,6 @@ import sn.unchk.bibliotheque.repository.AuteurRepository;
 import sn.unchk.bibliotheque.repository.CategorieRepository;
 
 import java.time.LocalDate;
-import java.time.Month;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -24,13 +26,22 @@ public class EmpruntService {
     private final LivreRepository livreRepo;
     private final AuteurRepository auteurRepo;
     private final CategorieRepository categorieRepo;
+    private final StatistiqueEmpruntService statistiqueService;
+    private final ReservationService reservationService;
+    private final ApplicationEventPublisher events;
 
     public EmpruntService(EmpruntRepository repo, LivreRepository livreRepo,
-                          AuteurRepository auteurRepo, CategorieRepository categorieRepo) {
+                          AuteurRepository auteurRepo, CategorieRepository categorieRepo,
+                          StatistiqueEmpruntService statistiqueService,
+                          ReservationService reservationService,
+                          ApplicationEventPublisher events) {
         this.repo = repo;
         this.livreRepo = livreRepo;
         this.auteurRepo = auteurRepo;
         this.categorieRepo = categorieRepo;
+        this.statistiqueService = statistiqueService;
+        this.reservationService = reservationService;
+        this.events = events;
     }
 
     // ==========================
@@ -50,12 +61,28 @@ public class EmpruntService {
     }
 
     public Emprunt demander(Utilisateur u, Livre l) {
-        if (!l.isDisponible()) {
+        return demander(u, l, null);
+    }
+
+    /**
+     * @param cleIdempotence en-tête Idempotency-Key, null sinon. Une demande déjà enregistrée avec
+     *                       cette clé est renvoyée telle quelle, sans nouvelle vérification ni événement ;
+     *                       la contrainte unique (utilisateur, clé) départage deux envois simultanés.
+     */
+    public Emprunt demander(Utilisateur u, Livre l, String cleIdempotence) {
+        Optional<Emprunt> enregistree = demandeEnregistree(u, l, cleIdempotence);
+        if (enregistree.isPresent()) return enregistree.get();
+
+        // Un exemplaire mis de côté pour ce lecteur n'est plus compté dans le stock
+        if (!l.isDisponible() && !reservationService.aUnExemplaireDeCote(u.getId(), l.getId())) {
             throw new IllegalStateException("Livre non disponible");
         }
 
         boolean dejaEmprunte = repo.existsByUtilisateurAndLivreAndRenduFalse(u, l);
         if (dejaEmprunte) {
+            // Envoi simultané de la même demande : celle qui vient d'être enregistrée est renvoyée
+            enregistree = demandeEnregistree(u, l, cleIdempotence);
+            if (enregistree.isPresent()) return enregistree.get();
             throw new IllegalStateException("L'utilisateur a déjà emprunté ce livre et ne l'a pas encore rendu");
         }
 
@@ -65,9 +92,32 @@ public class EmpruntService {
         e.setRendu(false);
         e.setStatut(StatutEmprunt.EN_ATTENTE);
         e.setDateDemande(LocalDate.now());
-        return repo.save(e);
+        e.setCleIdempotence(cleIdempotence);
+        Emprunt saved;
+        try {
+            saved = repo.saveAndFlush(e);
+        } catch (DataIntegrityViolationException ex) {
+            return demandeEnregistree(u, l, cleIdempotence).orElseThrow(() -> ex);
+        }
+        publier(saved, EmpruntEvent.Type.DEMANDE);
+        return saved;
+    }
+
+    // Demande déjà créée avec cette clé ; la clé ne peut pas resservir pour un autre livre
+    private Optional<Emprunt> demandeEnregistree(Utilisateur u, Livre l, String cleIdempotence) {
+        if (cleIdempotence == null) return Optional.empty();
+        Optional<Emprunt> existante = repo.findByUtilisateurIdAndCleIdempotence(u.getId(), cleIdempotence);
+        if (existante.isPresent() && !existante.get().getLivre().getId().equals(l.getId())) {
+            throw new IllegalArgumentException("Cette clé d'idempotence a déjà servi pour une autre requête");
+        }
+        return existante;
     }
 
+    /**
+     * Validation sans lecture-modification-écriture : la transition EN_ATTENTE → VALIDE et la
+     * réservation d'un exemplaire sont deux UPDATE conditionnels. Si le stock est épuisé,
+     * l'exception annule la transaction (et donc la transition).
+     */
     @Transactional
     public Emprunt valider(Long empruntId, int jours) {
         Emprunt e = getById(empruntId);
@@ -75,27 +125,33 @@ public class EmpruntService {
         if (e.getStatut() != StatutEmprunt.EN_ATTENTE) {
             throw new IllegalStateException("Cet emprunt a déjà été traité");
         }
+        Long livreId = e.getLivre().getId();
+        Long categorieId = e.getLivre().getCategorie() != null ? e.getLivre().getCategorie().getId() : null;
 
-        Livre livre = e.getLivre();
-        if (!livre.isDisponible()) {
-            throw new IllegalStateException("Livre non disponible");
+        LocalDate aujourdhui = LocalDate.now();
+        if (repo.validerSiEnAttente(empruntId, aujourdhui, aujourdhui.plusDays(jours)) == 0) {
+            throw new IllegalStateException("Cet emprunt a déjà été traité");
         }
 
-        // Décrémenter le stock
-        livre.setNbExemplaires(livre.getNbExemplaires() - 1);
-        livreRepo.save(livre);
-
-        e.setStatut(StatutEmprunt.VALIDE);
-        e.setDateEmprunt(LocalDate.now());
-        e.setDateLimiteRetour(LocalDate.now().plusDays(jours));
+        // Exemplaire mis de côté pour ce lecteur : déjà sorti du stock
+        if (reservationService.honorer(e.getUtilisateur().getId(), livreId)) {
+            livreRepo.emprunterExemplaireRetenu(livreId);
+        } else if (livreRepo.reserverExemplaire(livreId) == 0) { // Décrémenter le stock (WHERE nbExemplaires > 0)
+            throw new IllegalStateException("Livre non disponible");
+        }
+        statistiqueService.enregistrerValidation(livreId, categorieId, aujourdhui);
 
-        return repo.save(e);
+        Emprunt valide = getById(empruntId);
+        publier(valide, EmpruntEvent.Type.VALIDATION);
+        return valide;
     }
 
     public Emprunt rejeter(Long empruntId) {
         Emprunt e = getById(empruntId);
         e.setStatut(StatutEmprunt.REJETE);
-        return repo.save(e);
+        Emprunt saved = repo.save(e);
+        publier(saved, EmpruntEvent.Type.REJET);
+        return saved;
     }
 
     @Transactional
@@ -105,21 +161,26 @@ public class EmpruntService {
         if (e.getStatut() != StatutEmprunt.VALIDE || e.isRendu()) {
             throw new IllegalStateException("Cet emprunt ne peut pas être rendu");
         }
+        Long livreId = e.getLivre().getId();
 
-        // Incrémenter le stock
-        Livre livre = e.getLivre();
-        livre.setNbExemplaires(livre.getNbExemplaires() + 1);
-        livreRepo.save(livre);
+        LocalDate aujourdhui = LocalDate.now();
+        if (repo.rendreSiEnCours(empruntId, aujourdhui) == 0) {
+            throw new IllegalStateException("Cet emprunt ne peut pas être rendu");
+        }
 
-        e.setRendu(true);
-        e.setDateRetour(LocalDate.now());
-        e.setStatut(StatutEmprunt.TERMINE);
+        // Incrémenter le stock, puis le mettre de côté pour le premier lecteur en file d'attente
+        livreRepo.restituerExemplaire(livreId);
+        reservationService.servir(livreId);
+        statistiqueService.enregistrerRetour(aujourdhui);
 
-        return repo.save(e);
+        Emprunt rendu = getById(empruntId);
+        publier(rendu, EmpruntEvent.Type.RETOUR);
+        return rendu;
     }
 
     public void delete(Long id) {
         repo.deleteById(id);
+        events.publishEvent(new EmpruntEvent(id, null, null, EmpruntEvent.Type.SUPPRESSION));
     }
 
     public Optional<Livre> getLivreById(Long id) {
@@ -178,7 +239,20 @@ public class EmpruntService {
         System.out.println("Emprunt #" + empruntId + " prolongé de " + joursSupplementaires + " jours. " +
                 "Nouvelle date de retour: " + nouvelleDate);
 
-        return repo.save(e);
+        Emprunt saved = repo.save(e);
+        publier(saved, EmpruntEvent.Type.PROLONGATION);
+        return saved;
+    }
+
+    // ==========================
+    // Réconciliation des compteurs d'emprunts
+    // ==========================
+    // Recalcule nbEmprunts / nbEmpruntsEnCours depuis la table emprunts (dérive après
+    // suppression manuelle, import, etc.). Planifié chaque nuit, déclenchable par l'admin.
+    @Scheduled(cron = "${app.compteurs.reconciliation-cron:0 30 3 * * *}")
+    @Transactional
+    public int reconcilierCompteurs() {
+        return livreRepo.recalculerCompteursEmprunts();
     }
 
     // ==========================
@@ -196,82 +270,13 @@ public class EmpruntService {
         return repo.countDistinctByUtilisateur();
     }
 
+    // Lus depuis les agrégats maintenus par StatistiqueEmpruntService
     public List<Map<String, Object>> getStatsMensuels() {
-        List<Emprunt> empruntsCetteAnnee = repo.findByDateEmpruntYear(LocalDate.now().getYear())
-                .stream()
-                .filter(e -> e.getDateEmprunt() != null)
-                .collect(Collectors.toList());
-
-        Map<Month, Long> statsParMois = empruntsCetteAnnee.stream()
-                .filter(e -> e.getDateEmprunt() != null)
-                .collect(Collectors.groupingBy(
-                        e -> e.getDateEmprunt().getMonth(),
-                        Collectors.counting()
-                ));
-
-        List<Map<String, Object>> stats = new ArrayList<>();
-        String[] nomsMois = {"Janvier", "Février", "Mars", "Avril", "Mai", "Juin",
-                "Juillet", "Août", "Septembre", "Octobre", "Novembre", "Décembre"};
-
-        for (int i = 0; i < nomsMois.length; i++) {
-            Map<String, Object> stat = new HashMap<>();
-            stat.put("mois", nomsMois[i]);
-            stat.put("nombre", statsParMois.getOrDefault(Month.of(i + 1), 0L).intValue());
-            stats.add(stat);
-        }
-
-        return stats;
-    }
-
-    public List<Map<String, Object>> getTopLivresEmpruntes(int limit) {
-        List<Emprunt> empruntsValides = repo.findByStatut(StatutEmprunt.VALIDE);
-
-        Map<Livre, Long> livresAvecCount = empruntsValides.stream()
-                .collect(Collectors.groupingBy(Emprunt::getLivre, Collectors.counting()));
-
-        return livresAvecCount.entrySet().stream()
-                .sorted((e1, e2) -> Long.compare(e2.getValue(), e1.getValue()))
-                .limit(limit)
-                .map(entry -> {
-                    Map<String, Object> livre = new HashMap<>();
-                    livre.put("titre", entry.getKey().getTitre());
-                    livre.put("auteur", entry.getKey().getAuteur() != null ?
-                            entry.getKey().getAuteur().getNomComplet() : "Inconnu");
-                    livre.put("emprunts", entry.getValue().intValue());
-                    return livre;
-                })
-                .collect(Collectors.toList());
+        return statistiqueService.getStatsMensuels(LocalDate.now().getYear());
     }
 
     public List<Map<String, Object>> getRepartitionParGenre() {
-        List<Emprunt> empruntsCetteAnnee = repo.findByDateEmpruntYear(LocalDate.now().getYear())
-                .stream()
-                .filter(e -> e.getDateEmprunt() != null)
-                .collect(Collectors.toList());
-
-        Map<String, Long> countParCategorie = empruntsCetteAnnee.stream()
-                .filter(e -> e.getDateEmprunt() != null)
-                .collect(Collectors.groupingBy(
-                        e -> e.getLivre().getCategorie() != null ?
-                                e.getLivre().getCategorie().getNom() : "Non spécifié",
-                        Collectors.counting()
-                ));
-
-        long total = empruntsCetteAnnee.stream()
-                .filter(e -> e.getDateEmprunt() != null)
-                .count();
-
-        return countParCategorie.entrySet().stream()
-                .map(entry -> {
-                    Map<String, Object> genre = new HashMap<>();
-                    genre.put("genre", entry.getKey());
-                    genre.put("count", entry.getValue().intValue());
-                    genre.put("pourcentage", total > 0 ?
-                            Math.round((entry.getValue() * 100.0 / total) * 10.0) / 10.0 : 0.0);
-                    return genre;
-                })
-                .sorted((g1, g2) -> Integer.compare((Integer) g2.get("count"), (Integer) g1.get("count")))
-                .collect(Collectors.toList());
+        return statistiqueService.getRepartitionParGenre(LocalDate.now().getYear());
     }
 
     public List<Map<String, Object>> getEmpruntsRecents(int limit) {
@@ -322,6 +327,15 @@ public class EmpruntService {
                 .collect(Collectors.toList());
     }
 
+    // Les abonnés transactionnels reçoivent l'événement après le commit
+    private void publier(Emprunt e, EmpruntEvent.Type type) {
+        events.publishEvent(new EmpruntEvent(
+                e.getId(),
+                e.getLivre() != null ? e.getLivre().getId() : null,
+                e.getUtilisateur() != null ? e.getUtilisateur().getId() : null,
+                type));
+    }
+
     // Utilitaire pour formater les dates
     private String formatDate(LocalDate date) {
         if (date == null) return "N/A";
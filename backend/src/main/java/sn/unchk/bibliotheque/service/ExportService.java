@@ -0,0 +1,173 @@
+package sn.unchk.bibliotheque.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.dto.EmpruntDTO;
+import sn.unchk.bibliotheque.dto.LivreDTO;
+import sn.unchk.bibliotheque.entity.StatutEmprunt;
+import sn.unchk.bibliotheque.mapper.EmpruntMapper;
+import sn.unchk.bibliotheque.mapper.LivreMapper;
+import sn.unchk.bibliotheque.repository.EmpruntRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Exports admin (emprunts, catalogue) écrits directement dans la réponse, ligne par ligne.
+ * Les lignes sont lues via un curseur en avant seulement et le contexte de persistance est vidé
+ * régulièrement : la mémoire reste constante quel que soit le volume exporté.
+ */
+@Service
+public class ExportService {
+
+    private static final int LIGNES_PAR_VIDAGE = 500;
+
+    private static final List<String> COLONNES_EMPRUNTS = List.of("id", "utilisateurId", "utilisateurNom",
+            "livreId", "livreTitre", "auteurNom", "dateDemande", "dateEmprunt", "dateLimiteRetour",
+            "dateRetour", "rendu", "statut");
+
+    // Mêmes noms de colonnes que l'import CSV : un export du catalogue peut être réimporté tel quel
+    private static final List<String> COLONNES_LIVRES = List.of("titre", "isbn", "auteur", "categorie", "langue",
+            "datePublication", "nbPages", "nbExemplaires", "description", "cover", "id", "nbEmprunts");
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(String mediaType, String extension) {
+            this.mediaType = MediaType.parseMediaType(mediaType + ";charset=UTF-8");
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format depuis(String valeur) {
+            return valeur == null ? NDJSON : Format.valueOf(valeur.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final EmpruntRepository empruntRepository;
+    private final LivreRepository livreRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate lecture;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExportService(EmpruntRepository empruntRepository,
+                         LivreRepository livreRepository,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager) {
+        this.empruntRepository = empruntRepository;
+        this.livreRepository = livreRepository;
+        this.objectMapper = objectMapper;
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+    }
+
+    public long exporterEmprunts(OutputStream out, Format format, LocalDate debut, LocalDate fin,
+                                 StatutEmprunt statut, Long utilisateurId) {
+        return exporter(out, format, COLONNES_EMPRUNTS,
+                () -> empruntRepository.streamPourExport(debut, fin, statut, utilisateurId),
+                EmpruntMapper::toDTO,
+                ExportService::ligneEmprunt);
+    }
+
+    public long exporterCatalogue(OutputStream out, Format format) {
+        return exporter(out, format, COLONNES_LIVRES,
+                livreRepository::streamPourExport,
+                LivreMapper::toDTO,
+                ExportService::ligneLivre);
+    }
+
+    private <E, D> long exporter(OutputStream out, Format format, List<String> colonnes,
+                                 Supplier<Stream<E>> source,
+                                 Function<E, D> versDTO,
+                                 Function<D, List<Object>> versLigne) {
+        Long n = lecture.execute(s -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            long lignes = 0;
+            try (Stream<E> flux = source.get()) {
+                if (format == Format.CSV) ecrireCsv(writer, colonnes);
+                Iterator<E> it = flux.iterator();
+                while (it.hasNext()) {
+                    D dto = versDTO.apply(it.next());
+                    if (format == Format.CSV) {
+                        ecrireCsv(writer, versLigne.apply(dto));
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(dto));
+                        writer.write('\n');
+                    }
+                    // Entités détachées par paquets : rien ne s'accumule dans la session
+                    if (++lignes % LIGNES_PAR_VIDAGE == 0) {
+                        entityManager.clear();
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // client déconnecté : le curseur est fermé avec le flux
+            }
+            return lignes;
+        });
+        return n != null ? n : 0;
+    }
+
+    private static List<Object> ligneEmprunt(EmpruntDTO e) {
+        return Arrays.asList(e.id(), e.utilisateurId(), e.utilisateurNom(), e.livreId(), e.livreTitre(),
+                e.auteurNom(), e.dateDemande(), e.dateEmprunt(), e.dateLimiteRetour(), e.dateRetour(),
+                e.rendu(), e.statut());
+    }
+
+    private static List<Object> ligneLivre(LivreDTO l) {
+        return Arrays.asList(l.titre(), l.isbn(), l.auteurId() != null ? l.auteurNom() : null,
+                l.categorieId() != null ? l.categorieNom() : null, l.langue(), l.datePublication(), l.nbPages(),
+                l.nbExemplaires(), l.description(), l.cover(), l.id(), l.nbEmprunts());
+    }
+
+    // CSV RFC 4180 : guillemets si nécessaire, guillemets internes doublés
+    private static void ecrireCsv(Writer writer, List<?> valeurs) throws IOException {
+        for (int i = 0; i < valeurs.size(); i++) {
+            if (i > 0) writer.write(',');
+            Object v = valeurs.get(i);
+            if (v == null) continue;
+            String texte = v.toString();
+            if (texte.indexOf(',') >= 0 || texte.indexOf('"') >= 0 || texte.indexOf('\n') >= 0 || texte.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(texte.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(texte);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,439 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.dto.FacettesDTO;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Index de facettes du catalogue en mémoire, sur l'ordinal dense de chaque livre (ordre des ids).
+ * Les valeurs denses (langue, décennie de publication, disponibilité) ont un bitmap chacune ; les
+ * valeurs creuses (auteur, catégorie) une liste triée d'ordinaux, dont la taille suit le nombre de
+ * livres de la valeur et non le plus grand ordinal : un BitSet par auteur coûterait
+ * auteurs × livres bits. Un filtre combiné est un ET ; les comptes de chaque facette accompagnent
+ * la page, et la base n'est lue que pour charger les livres de la page.
+ * <p>
+ * Mis à jour livre par livre après chaque écriture (catalogue, validation ou retour d'emprunt),
+ * reconstruit au démarrage et chaque nuit. Un livre supprimé garde son ordinal (bits à zéro)
+ * jusqu'à la reconstruction suivante.
+ */
+@Service
+public class FacettesLivresService {
+
+    public record Filtres(Long categorieId, Long auteurId, String langue, Integer decennie, Boolean disponible) {}
+
+    public record Page(List<Long> ids, boolean suivante, FacettesDTO facettes) {}
+
+    private enum Facette { CATEGORIE, LANGUE, DECENNIE, DISPONIBILITE }
+
+    private record Ligne(long id, Long categorieId, Long auteurId, String langue, Integer decennie, boolean disponible) {}
+
+    private static final String SQL_LIVRES =
+            "SELECT id, categorie_id, auteur_id, langue, date_publication, nb_exemplaires FROM livres";
+    private static final int TAILLE_LOT = 1000;
+    private static final BitSet VIDE = new BitSet();
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate lecture;
+
+    // Lectures concurrentes ; les écritures (sérialisées par le moniteur du service) prennent le verrou exclusif
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+    private Index index;
+    private volatile Map<Long, String> nomsCategories = Map.of();
+
+    public FacettesLivresService(JdbcTemplate jdbc, NamedParameterJdbcTemplate namedJdbc,
+                                 PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        // ⚠️ Écouteurs appelés hors transaction pendant une requête : la lecture réutilise la connexion
+        // déjà tenue par la requête au lieu d'en demander une seconde au pool sous le moniteur
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+    }
+
+    // ==========================
+    // Lecture
+    // ==========================
+    /**
+     * Ids de la page (keyset : après apresId, par id croissant) et comptes par facette.
+     * Vide tant que l'index n'est pas construit : l'appelant filtre alors en SQL.
+     *
+     * @param idsTitre livres retenus par le filtre sur le titre, null si absent
+     */
+    public Optional<Page> rechercher(Filtres f, Collection<Long> idsTitre, Long apresId, int taille) {
+        verrou.readLock().lock();
+        try {
+            Index ix = index;
+            if (ix == null) return Optional.empty();
+
+            // Filtres qui ne sont pas des facettes : s'appliquent aussi aux comptes
+            BitSet communs = (BitSet) ix.vivants.clone();
+            if (idsTitre != null) communs.and(ix.bitmap(idsTitre));
+            if (f.auteurId() != null) communs = ix.postings(ix.auteurs, f.auteurId()).restreindre(communs);
+
+            Map<Facette, BitSet> filtres = new EnumMap<>(Facette.class);
+            if (f.categorieId() != null) {
+                filtres.put(Facette.CATEGORIE, ix.postings(ix.categories, f.categorieId()).restreindre(ix.vivants));
+            }
+            if (f.langue() != null && !f.langue().isBlank()) filtres.put(Facette.LANGUE, ix.langues.getOrDefault(f.langue().trim(), VIDE));
+            if (f.decennie() != null) filtres.put(Facette.DECENNIE, ix.decennies.getOrDefault(f.decennie(), VIDE));
+            if (f.disponible() != null) {
+                BitSet dispo = (BitSet) ix.vivants.clone();
+                if (f.disponible()) dispo.and(ix.disponibles); else dispo.andNot(ix.disponibles);
+                filtres.put(Facette.DISPONIBILITE, dispo);
+            }
+            BitSet resultat = restreindre(communs, filtres, null);
+
+            // Page : premier ordinal dont l'id suit le curseur, puis taille + 1 bits
+            int debut = 0;
+            if (apresId != null) {
+                int i = Arrays.binarySearch(ix.ids, 0, ix.taille, apresId);
+                debut = i >= 0 ? i + 1 : -(i + 1);
+            }
+            List<Long> ids = new ArrayList<>(taille + 1);
+            for (int o = resultat.nextSetBit(debut); o >= 0 && ids.size() <= taille; o = resultat.nextSetBit(o + 1)) {
+                ids.add(ix.ids[o]);
+            }
+            boolean suivante = ids.size() > taille;
+            if (suivante) ids = ids.subList(0, taille);
+
+            Map<Long, String> noms = nomsCategories;
+            BitSet baseDispo = restreindre(communs, filtres, Facette.DISPONIBILITE);
+            int disponibles = et(baseDispo, ix.disponibles, new BitSet(ix.taille));
+            int indisponibles = baseDispo.cardinality() - disponibles;
+            List<FacettesDTO.Valeur> disponibilite = new ArrayList<>(2);
+            if (disponibles > 0) disponibilite.add(new FacettesDTO.Valeur("true", "Disponible", disponibles));
+            if (indisponibles > 0) disponibilite.add(new FacettesDTO.Valeur("false", "Indisponible", indisponibles));
+
+            return Optional.of(new Page(ids, suivante, new FacettesDTO(
+                    resultat.cardinality(),
+                    compter(restreindre(communs, filtres, Facette.CATEGORIE), ix.categorieDe,
+                            id -> noms.getOrDefault(id, "Catégorie " + id)),
+                    compter(restreindre(communs, filtres, Facette.LANGUE), ix.langues, l -> l),
+                    compter(restreindre(communs, filtres, Facette.DECENNIE), ix.decennies, d -> "Années " + d),
+                    disponibilite)));
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // ET des filtres, sauf celui de la facette dont on calcule les comptes (sélection multiple)
+    private static BitSet restreindre(BitSet communs, Map<Facette, BitSet> filtres, Facette sauf) {
+        BitSet b = (BitSet) communs.clone();
+        filtres.forEach((facette, bits) -> {
+            if (facette != sauf) b.and(bits);
+        });
+        return b;
+    }
+
+    // Un ET par valeur dans un tampon réutilisé ; valeurs absentes du résultat omises
+    private static <K> List<FacettesDTO.Valeur> compter(BitSet base, Map<K, BitSet> bitmaps, Function<K, String> libelle) {
+        BitSet tampon = new BitSet(base.length());
+        List<FacettesDTO.Valeur> valeurs = new ArrayList<>();
+        bitmaps.forEach((cle, bits) -> {
+            if (!base.intersects(bits)) return;
+            valeurs.add(new FacettesDTO.Valeur(String.valueOf(cle), libelle.apply(cle), et(base, bits, tampon)));
+        });
+        valeurs.sort(Comparator.comparingInt(FacettesDTO.Valeur::nombre).reversed()
+                .thenComparing(FacettesDTO.Valeur::libelle));
+        return valeurs;
+    }
+
+    // Facette creuse : un passage sur les bits du résultat, compté par la valeur de chaque ordinal
+    private static <K> List<FacettesDTO.Valeur> compter(BitSet base, K[] valeurDe, Function<K, String> libelle) {
+        Map<K, Integer> comptes = new HashMap<>();
+        for (int o = base.nextSetBit(0); o >= 0; o = base.nextSetBit(o + 1)) {
+            K cle = valeurDe[o];
+            if (cle != null) comptes.merge(cle, 1, Integer::sum);
+        }
+        List<FacettesDTO.Valeur> valeurs = new ArrayList<>(comptes.size());
+        comptes.forEach((cle, n) -> valeurs.add(new FacettesDTO.Valeur(String.valueOf(cle), libelle.apply(cle), n)));
+        valeurs.sort(Comparator.comparingInt(FacettesDTO.Valeur::nombre).reversed()
+                .thenComparing(FacettesDTO.Valeur::libelle));
+        return valeurs;
+    }
+
+    private static int et(BitSet a, BitSet b, BitSet tampon) {
+        tampon.clear();
+        tampon.or(a);
+        tampon.and(b);
+        return tampon.cardinality();
+    }
+
+    // ==========================
+    // Mise à jour incrémentale
+    // ==========================
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogue(CatalogueEvent event) {
+        List<Long> ids = new ArrayList<>(event.livres());
+        if (event.type() == CatalogueEvent.Type.LIVRE && event.id() != null) ids.add(event.id());
+        if (event.type() == CatalogueEvent.Type.CATEGORIE) nomsCategories = lecture.execute(s -> chargerNomsCategories());
+        rafraichir(ids);
+    }
+
+    // Validation ou retour : le stock du livre a changé
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmprunt(EmpruntEvent event) {
+        if (event.livreId() == null) return;
+        if (event.type() == EmpruntEvent.Type.VALIDATION || event.type() == EmpruntEvent.Type.RETOUR) {
+            rafraichir(List.of(event.livreId()));
+        }
+    }
+
+    /**
+     * Relit les livres donnés (une requête par lot de 1000) et remplace leurs bits ; un livre
+     * absent de la table est retiré de l'index.
+     */
+    public synchronized void rafraichir(Collection<Long> ids) {
+        if (ids.isEmpty() || index == null) return;
+        List<Long> tries = new ArrayList<>(new TreeSet<>(ids)); // nouveaux livres ajoutés dans l'ordre des ids
+        Map<Long, Ligne> lignes = new HashMap<>();
+        lecture.executeWithoutResult(s -> {
+            for (int i = 0; i < tries.size(); i += TAILLE_LOT) {
+                namedJdbc.query(SQL_LIVRES + " WHERE id IN (:ids)",
+                        Map.of("ids", tries.subList(i, Math.min(i + TAILLE_LOT, tries.size()))),
+                        rs -> {
+                            Ligne l = ligne(rs);
+                            lignes.put(l.id(), l);
+                        });
+            }
+        });
+
+        boolean horsOrdre = false;
+        verrou.writeLock().lock();
+        try {
+            for (Long id : tries) {
+                Ligne l = lignes.get(id);
+                if (l == null) index.supprimer(id);
+                else if (!index.placer(l)) horsOrdre = true;
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        if (horsOrdre) reconstruire(); // id inférieur au dernier ordinal : l'ordre des ordinaux serait rompu
+    }
+
+    // ==========================
+    // Reconstruction
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        reconstruire();
+    }
+
+    // Construite à part puis publiée d'un bloc : les lectures continuent sur l'ancienne
+    @Scheduled(cron = "${app.facettes.reconstruction-cron:0 50 3 * * *}")
+    public synchronized void reconstruire() {
+        long t0 = System.currentTimeMillis();
+        Index nouveau = new Index();
+        nomsCategories = lecture.execute(s -> {
+            jdbc.query(SQL_LIVRES + " ORDER BY id", rs -> {
+                nouveau.placer(ligne(rs));
+            });
+            return chargerNomsCategories();
+        });
+        nouveau.compacter();
+
+        verrou.writeLock().lock();
+        try {
+            index = nouveau;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        System.out.println("✅ Facettes du catalogue : " + nouveau.vivants.cardinality() + " livres, "
+                + nouveau.categories.size() + " catégories, " + nouveau.langues.size() + " langues ("
+                + (System.currentTimeMillis() - t0) + " ms)");
+    }
+
+    private Map<Long, String> chargerNomsCategories() {
+        Map<Long, String> noms = new HashMap<>();
+        jdbc.query("SELECT id, nom FROM categories", rs -> {
+            noms.put(rs.getLong(1), rs.getString(2));
+        });
+        return noms;
+    }
+
+    private static Ligne ligne(ResultSet rs) throws SQLException {
+        String langue = rs.getString(4);
+        Date date = rs.getDate(5);
+        return new Ligne(
+                rs.getLong(1),
+                rs.getObject(2, Long.class),
+                rs.getObject(3, Long.class),
+                langue != null && !langue.isBlank() ? langue.trim() : null,
+                date != null ? date.toLocalDate().getYear() / 10 * 10 : null,
+                rs.getInt(6) > 0);
+    }
+
+    /**
+     * Ordinaux et bitmaps. Modifié uniquement sous le verrou d'écriture (ou avant publication).
+     */
+    private static final class Index {
+        long[] ids = new long[1024];
+        int taille;
+        final Map<Long, Integer> ordinaux = new HashMap<>();
+
+        // Valeurs courantes par ordinal, pour effacer les anciens bits lors d'une modification
+        Long[] categorieDe = new Long[1024];
+        Long[] auteurDe = new Long[1024];
+        String[] langueDe = new String[1024];
+        Integer[] decennieDe = new Integer[1024];
+
+        final BitSet vivants = new BitSet();
+        final BitSet disponibles = new BitSet();
+        final Map<Long, Postings> categories = new HashMap<>();
+        final Map<Long, Postings> auteurs = new HashMap<>();
+        final Map<String, BitSet> langues = new HashMap<>();
+        final Map<Integer, BitSet> decennies = new HashMap<>();
+
+        // false si le livre est nouveau mais d'id inférieur au dernier ordinal attribué
+        boolean placer(Ligne l) {
+            Integer ord = ordinaux.get(l.id());
+            if (ord == null) {
+                if (taille > 0 && l.id() < ids[taille - 1]) return false;
+                ord = nouvelOrdinal(l.id());
+            } else {
+                retirer(ord);
+            }
+            categorieDe[ord] = l.categorieId();
+            auteurDe[ord] = l.auteurId();
+            langueDe[ord] = l.langue();
+            decennieDe[ord] = l.decennie();
+            ajouter(categories, l.categorieId(), ord);
+            ajouter(auteurs, l.auteurId(), ord);
+            poser(langues, l.langue(), ord);
+            poser(decennies, l.decennie(), ord);
+            if (l.disponible()) disponibles.set(ord);
+            vivants.set(ord);
+            return true;
+        }
+
+        Postings postings(Map<Long, Postings> valeurs, Long cle) {
+            return valeurs.getOrDefault(cle, Postings.VIDE);
+        }
+
+        // Après reconstruction : rend la marge de croissance des listes
+        void compacter() {
+            categories.values().forEach(Postings::compacter);
+            auteurs.values().forEach(Postings::compacter);
+        }
+
+        void supprimer(Long id) {
+            Integer ord = ordinaux.get(id);
+            if (ord != null) retirer(ord);
+        }
+
+        BitSet bitmap(Collection<Long> livres) {
+            BitSet b = new BitSet(taille);
+            for (Long id : livres) {
+                Integer ord = ordinaux.get(id);
+                if (ord != null) b.set(ord);
+            }
+            return b;
+        }
+
+        private int nouvelOrdinal(long id) {
+            if (taille == ids.length) {
+                int capacite = taille * 2;
+                ids = Arrays.copyOf(ids, capacite);
+                categorieDe = Arrays.copyOf(categorieDe, capacite);
+                auteurDe = Arrays.copyOf(auteurDe, capacite);
+                langueDe = Arrays.copyOf(langueDe, capacite);
+                decennieDe = Arrays.copyOf(decennieDe, capacite);
+            }
+            ids[taille] = id;
+            ordinaux.put(id, taille);
+            return taille++;
+        }
+
+        private void retirer(int ord) {
+            if (!vivants.get(ord)) return;
+            enlever(categories, categorieDe[ord], ord);
+            enlever(auteurs, auteurDe[ord], ord);
+            effacer(langues, langueDe[ord], ord);
+            effacer(decennies, decennieDe[ord], ord);
+            disponibles.clear(ord);
+            vivants.clear(ord);
+        }
+
+        private static <K> void poser(Map<K, BitSet> bitmaps, K cle, int ord) {
+            if (cle != null) bitmaps.computeIfAbsent(cle, k -> new BitSet()).set(ord);
+        }
+
+        private static <K> void effacer(Map<K, BitSet> bitmaps, K cle, int ord) {
+            if (cle == null) return;
+            BitSet b = bitmaps.get(cle);
+            if (b == null) return;
+            b.clear(ord);
+            if (b.isEmpty()) bitmaps.remove(cle);
+        }
+
+        private static void ajouter(Map<Long, Postings> valeurs, Long cle, int ord) {
+            if (cle != null) valeurs.computeIfAbsent(cle, k -> new Postings()).ajouter(ord);
+        }
+
+        private static void enlever(Map<Long, Postings> valeurs, Long cle, int ord) {
+            if (cle == null) return;
+            Postings p = valeurs.get(cle);
+            if (p == null) return;
+            p.retirer(ord);
+            if (p.taille == 0) valeurs.remove(cle);
+        }
+    }
+
+    /**
+     * Ordinaux triés d'une valeur creuse. Les ordinaux arrivent presque toujours en fin de liste
+     * (reconstruction dans l'ordre des ids, nouveaux livres) ; une modification isolée décale le tableau.
+     */
+    private static final class Postings {
+        static final Postings VIDE = new Postings();
+
+        int[] ords = new int[4];
+        int taille;
+
+        void ajouter(int ord) {
+            int i = taille > 0 && ords[taille - 1] < ord ? -(taille + 1) : Arrays.binarySearch(ords, 0, taille, ord);
+            if (i >= 0) return;
+            i = -(i + 1);
+            if (taille == ords.length) ords = Arrays.copyOf(ords, taille * 2);
+            System.arraycopy(ords, i, ords, i + 1, taille - i);
+            ords[i] = ord;
+            taille++;
+        }
+
+        void retirer(int ord) {
+            int i = Arrays.binarySearch(ords, 0, taille, ord);
+            if (i < 0) return;
+            System.arraycopy(ords, i + 1, ords, i, taille - i - 1);
+            taille--;
+        }
+
+        void compacter() {
+            if (ords.length > taille) ords = Arrays.copyOf(ords, Math.max(taille, 1));
+        }
+
+        // Bits de base dont l'ordinal est dans la liste : coût en taille de la liste
+        BitSet restreindre(BitSet base) {
+            BitSet b = new BitSet(taille > 0 ? ords[taille - 1] + 1 : 0);
+            for (int i = 0; i < taille; i++) {
+                if (base.get(ords[i])) b.set(ords[i]);
+            }
+            return b;
+        }
+    }
+}
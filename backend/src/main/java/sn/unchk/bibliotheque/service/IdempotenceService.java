@@ -0,0 +1,109 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Réponses des requêtes portant un en-tête Idempotency-Key, par utilisateur et par clé.
+ * Une nouvelle tentative reçoit la réponse enregistrée sans refaire le traitement ; une tentative
+ * arrivée pendant le traitement attend son résultat, deux envois simultanés n'en font donc qu'un.
+ * Un échec libère la clé : la tentative suivante relance le traitement.
+ * <p>
+ * Magasin borné (éviction LRU) avec expiration après le TTL. Au-delà, ou après un redémarrage,
+ * la contrainte unique de l'appelant en base prend le relais.
+ */
+@Service
+public class IdempotenceService {
+
+    public static final int LONGUEUR_CLE_MAX = 64;
+
+    private record Entree(Object empreinte, CompletableFuture<Object> reponse, long expireA) {}
+
+    private final int tailleMax;
+    private final long ttlMs;
+    private final LongAdder executees = new LongAdder();
+    private final LongAdder rejouees = new LongAdder();
+    private final LinkedHashMap<String, Entree> entrees;
+
+    public IdempotenceService(@Value("${app.idempotence.taille-max:10000}") int tailleMax,
+                              @Value("${app.idempotence.ttl-ms:600000}") long ttlMs) {
+        this.tailleMax = tailleMax;
+        this.ttlMs = ttlMs;
+        this.entrees = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entree> eldest) {
+                return size() > IdempotenceService.this.tailleMax;
+            }
+        };
+    }
+
+    public static boolean cleValide(String cle) {
+        return cle != null && !cle.isBlank() && cle.length() <= LONGUEUR_CLE_MAX;
+    }
+
+    /**
+     * @param portee     propriétaire de la clé (email de l'utilisateur connecté)
+     * @param empreinte  contenu de la requête : une clé réutilisée pour une autre requête est refusée
+     * @throws IllegalArgumentException si la clé est déjà associée à une autre requête
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executer(String portee, String cle, Object empreinte, Supplier<T> traitement) {
+        String id = portee + '\n' + cle;
+        long maintenant = System.currentTimeMillis();
+        Entree nouvelle = new Entree(empreinte, new CompletableFuture<>(), maintenant + ttlMs);
+        Entree existante;
+        synchronized (entrees) {
+            existante = entrees.get(id);
+            if (existante == null || existante.expireA() <= maintenant) {
+                existante = null;
+                entrees.put(id, nouvelle);
+            }
+        }
+
+        if (existante != null) {
+            if (!Objects.equals(existante.empreinte(), empreinte)) {
+                throw new IllegalArgumentException("Cette clé d'idempotence a déjà servi pour une autre requête");
+            }
+            rejouees.increment();
+            try {
+                return (T) existante.reponse().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException r ? r : e;
+            }
+        }
+
+        executees.increment();
+        try {
+            T reponse = traitement.get();
+            nouvelle.reponse().complete(reponse);
+            return reponse;
+        } catch (RuntimeException e) {
+            synchronized (entrees) {
+                entrees.remove(id, nouvelle);
+            }
+            nouvelle.reponse().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int taille;
+        synchronized (entrees) {
+            taille = entrees.size();
+        }
+        return Map.of(
+                "executees", executees.sum(),
+                "rejouees", rejouees.sum(),
+                "taille", taille,
+                "tailleMax", tailleMax
+        );
+    }
+}
@@ -0,0 +1,462 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.dto.ImportRapportDTO;
+import sn.unchk.bibliotheque.entity.Auteur;
+import sn.unchk.bibliotheque.entity.Categorie;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.repository.AuteurRepository;
+import sn.unchk.bibliotheque.repository.CategorieRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Import en masse du catalogue depuis un CSV (en-tête obligatoire, séparateur « , » ou « ; »).
+ * Le fichier est lu ligne à ligne ; les livres sont insérés ou mis à jour (clé : isbn) par lots
+ * JDBC, une transaction par lot. Auteurs et catégories sont résolus par nom via un dictionnaire
+ * en mémoire et créés s'ils n'existent pas.
+ * Une ligne illisible (guillemet non fermé, champ démesuré) est rejetée comme les autres erreurs
+ * de ligne ; si la lecture s'interrompt, le rapport indique quand même ce qui a été validé.
+ */
+@Service
+public class ImportCatalogueService {
+
+    static final List<String> COLONNES = List.of("titre", "isbn", "auteur", "categorie", "langue",
+            "datePublication", "nbPages", "nbExemplaires", "description", "cover");
+
+    private static final int ERREURS_MAX = 500;
+
+    private static final String SQL_INSERT = """
+            INSERT INTO livres (titre, isbn, langue, date_publication, nb_pages, nb_exemplaires, description, cover,
+                                auteur_id, categorie_id, nb_emprunts, nb_emprunts_en_cours)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0)
+            """;
+
+    // Les colonnes absentes du fichier (NULL) gardent leur valeur ; nb_emprunts et nb_emprunts_en_cours ne sont
+    // jamais touchés. nbExemplaires du fichier est le total : le stock disponible en retire les exemplaires
+    // prêtés (VALIDE, non rendus) et mis de côté (réservations DISPONIBLE), sans descendre sous 0
+    private static final String SQL_UPDATE = """
+            UPDATE livres SET titre = ?, langue = COALESCE(?, langue), date_publication = COALESCE(?, date_publication),
+                nb_pages = COALESCE(?, nb_pages),
+                nb_exemplaires = CASE WHEN CAST(? AS INTEGER) IS NULL THEN nb_exemplaires ELSE GREATEST(0, CAST(? AS INTEGER)
+                    - (SELECT COUNT(*) FROM emprunts e WHERE e.livre_id = livres.id AND e.statut = 'VALIDE' AND e.rendu = FALSE)
+                    - (SELECT COUNT(*) FROM reservations r WHERE r.livre_id = livres.id AND r.statut = 'DISPONIBLE')) END,
+                description = COALESCE(?, description), cover = COALESCE(?, cover),
+                auteur_id = COALESCE(?, auteur_id), categorie_id = COALESCE(?, categorie_id)
+            WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate transaction;
+    private final AuteurRepository auteurRepository;
+    private final CategorieRepository categorieRepository;
+    private final RechercheService rechercheService;
+    private final CouvertureService couvertureService;
+    private final ApplicationEventPublisher events;
+    private final int tailleLot;
+    private final int champMax;
+
+    private record LigneLivre(long numero, String titre, String isbn, Long auteurId, Long categorieId, String langue,
+                              LocalDate datePublication, Integer nbPages, Integer nbExemplaires,
+                              String description, String cover) {}
+
+    public ImportCatalogueService(JdbcTemplate jdbc,
+                                  NamedParameterJdbcTemplate namedJdbc,
+                                  PlatformTransactionManager transactionManager,
+                                  AuteurRepository auteurRepository,
+                                  CategorieRepository categorieRepository,
+                                  RechercheService rechercheService,
+                                  CouvertureService couvertureService,
+                                  ApplicationEventPublisher events,
+                                  @Value("${app.import.taille-lot:1000}") int tailleLot,
+                                  @Value("${app.import.champ-max:100000}") int champMax) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.auteurRepository = auteurRepository;
+        this.categorieRepository = categorieRepository;
+        this.rechercheService = rechercheService;
+        this.couvertureService = couvertureService;
+        this.events = events;
+        this.tailleLot = tailleLot;
+        this.champMax = champMax;
+    }
+
+    public ImportRapportDTO importer(InputStream in) throws IOException {
+        return importer(in, r -> {});
+    }
+
+    /**
+     * @param progression appelé après chaque lot avec le rapport intermédiaire
+     */
+    public synchronized ImportRapportDTO importer(InputStream in, Consumer<ImportRapportDTO> progression) throws IOException {
+        long debut = System.currentTimeMillis();
+        Compteurs compteurs = new Compteurs();
+        Map<String, Long> auteurs = dictionnaire("SELECT id, nom_complet FROM auteurs");
+        Map<String, Long> categories = dictionnaire("SELECT id, nom FROM categories");
+
+        try (LecteurCsv csv = new LecteurCsv(new InputStreamReader(in, StandardCharsets.UTF_8), champMax)) {
+            Map<String, Integer> entete = lireEntete(csv);
+            List<LigneLivre> lot = new ArrayList<>(tailleLot);
+            try {
+                while (true) {
+                    List<String> champs;
+                    try {
+                        champs = csv.ligneSuivante();
+                    } catch (LecteurCsv.EnregistrementInvalide e) {
+                        // La lecture reprend à la ligne suivante du fichier
+                        compteurs.lues++;
+                        compteurs.erreur(e.ligne(), e.getMessage());
+                        continue;
+                    }
+                    if (champs == null) break;
+                    long numero = csv.numeroLigne();
+                    compteurs.lues++;
+                    try {
+                        lot.add(analyser(numero, champs, entete, auteurs, categories));
+                    } catch (IllegalArgumentException e) {
+                        compteurs.erreur(numero, e.getMessage());
+                    }
+                    if (lot.size() == tailleLot) {
+                        ecrireLot(lot, compteurs);
+                        lot.clear();
+                        progression.accept(compteurs.rapport(debut));
+                    }
+                }
+                if (!lot.isEmpty()) {
+                    ecrireLot(lot, compteurs);
+                    progression.accept(compteurs.rapport(debut));
+                }
+            } catch (IOException | RuntimeException e) {
+                // ❌ Les lots précédents sont déjà validés : on rend le rapport au lieu de le perdre
+                System.out.println("⚠️ Import interrompu après " + compteurs.lues + " lignes : " + e);
+                compteurs.interruption = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+        }
+        return compteurs.rapport(debut);
+    }
+
+    // ==========================
+    // Écriture d'un lot
+    // ==========================
+    private void ecrireLot(List<LigneLivre> lot, Compteurs compteurs) {
+        // Un isbn présent plusieurs fois dans le lot : la dernière ligne l'emporte
+        Map<String, LigneLivre> parIsbn = new LinkedHashMap<>();
+        lot.forEach(l -> parIsbn.put(l.isbn(), l));
+
+        Map<String, Long> existants = new HashMap<>();
+        namedJdbc.query("SELECT id, isbn FROM livres WHERE isbn IN (:isbns)", Map.of("isbns", parIsbn.keySet()),
+                rs -> { existants.put(rs.getString(2), rs.getLong(1)); });
+
+        List<LigneLivre> nouvelles = new ArrayList<>();
+        List<LigneLivre> modifiees = new ArrayList<>();
+        parIsbn.values().forEach(l -> (existants.containsKey(l.isbn()) ? modifiees : nouvelles).add(l));
+
+        try {
+            ecrire(nouvelles, modifiees, existants);
+            compteurs.crees += nouvelles.size();
+            compteurs.misAJour += modifiees.size();
+        } catch (DataAccessException e) {
+            // Lot refusé par la base (valeur trop longue…) : on rejoue ligne par ligne pour isoler les fautives
+            for (LigneLivre l : parIsbn.values()) {
+                boolean nouvelle = !existants.containsKey(l.isbn());
+                try {
+                    ecrire(nouvelle ? List.of(l) : List.of(), nouvelle ? List.of() : List.of(l), existants);
+                    if (nouvelle) compteurs.crees++; else compteurs.misAJour++;
+                } catch (DataAccessException ex) {
+                    compteurs.erreur(l.numero(), "Rejetée par la base : " + ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        List<Livre> ecrits = pourIndex(parIsbn.keySet());
+        rechercheService.indexer(ecrits);
+        // Un événement par lot validé : les vues dérivées suivent l'avancement de l'import
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.IMPORT, null,
+                ecrits.stream().map(Livre::getId).toList()));
+    }
+
+    private void ecrire(List<LigneLivre> nouvelles, List<LigneLivre> modifiees, Map<String, Long> existants) {
+        transaction.executeWithoutResult(s -> {
+            jdbc.batchUpdate(SQL_INSERT, nouvelles, nouvelles.size(), (ps, l) -> {
+                ps.setString(1, l.titre());
+                ps.setString(2, l.isbn());
+                ps.setString(3, l.langue());
+                ps.setObject(4, l.datePublication() != null ? Date.valueOf(l.datePublication()) : null, Types.DATE);
+                ps.setInt(5, l.nbPages() != null ? l.nbPages() : 0);
+                ps.setInt(6, l.nbExemplaires() != null ? l.nbExemplaires() : 0);
+                ps.setString(7, l.description());
+                ps.setString(8, l.cover());
+                ps.setObject(9, l.auteurId(), Types.BIGINT);
+                ps.setObject(10, l.categorieId(), Types.BIGINT);
+            });
+            jdbc.batchUpdate(SQL_UPDATE, modifiees, modifiees.size(), (ps, l) -> {
+                ps.setString(1, l.titre());
+                ps.setString(2, l.langue());
+                ps.setObject(3, l.datePublication() != null ? Date.valueOf(l.datePublication()) : null, Types.DATE);
+                ps.setObject(4, l.nbPages(), Types.INTEGER);
+                ps.setObject(5, l.nbExemplaires(), Types.INTEGER);
+                ps.setObject(6, l.nbExemplaires(), Types.INTEGER);
+                ps.setString(7, l.description());
+                ps.setString(8, l.cover());
+                ps.setObject(9, l.auteurId(), Types.BIGINT);
+                ps.setObject(10, l.categorieId(), Types.BIGINT);
+                ps.setLong(11, existants.get(l.isbn()));
+            });
+        });
+    }
+
+    // Projection JDBC des seuls champs indexés : pas d'entités gérées, pas de chargement des relations
+    private List<Livre> pourIndex(Collection<String> isbns) {
+        return namedJdbc.query("""
+                SELECT l.id, l.titre, l.description, a.id, a.nom_complet FROM livres l
+                LEFT JOIN auteurs a ON a.id = l.auteur_id WHERE l.isbn IN (:isbns)
+                """, Map.of("isbns", isbns), (rs, i) -> {
+            Livre l = new Livre();
+            l.setId(rs.getLong(1));
+            l.setTitre(rs.getString(2));
+            l.setDescription(rs.getString(3));
+            long auteurId = rs.getLong(4);
+            if (!rs.wasNull()) {
+                Auteur a = new Auteur();
+                a.setId(auteurId);
+                a.setNomComplet(rs.getString(5));
+                l.setAuteur(a);
+            }
+            return l;
+        });
+    }
+
+    // ==========================
+    // Analyse d'une ligne
+    // ==========================
+    private LigneLivre analyser(long numero, List<String> champs, Map<String, Integer> entete,
+                                Map<String, Long> auteurs, Map<String, Long> categories) {
+        String titre = champ(champs, entete, "titre");
+        String isbn = champ(champs, entete, "isbn");
+        if (isbn == null) throw new IllegalArgumentException("isbn manquant");
+        if (titre == null) throw new IllegalArgumentException("titre manquant");
+
+        String nomAuteur = champ(champs, entete, "auteur");
+        String nomCategorie = champ(champs, entete, "categorie");
+        return new LigneLivre(
+                numero,
+                titre,
+                isbn,
+                nomAuteur != null ? auteurs.computeIfAbsent(cle(nomAuteur), k -> creerAuteur(nomAuteur)) : null,
+                nomCategorie != null ? categories.computeIfAbsent(cle(nomCategorie), k -> creerCategorie(nomCategorie)) : null,
+                champ(champs, entete, "langue"),
+                date(champ(champs, entete, "datePublication")),
+                entier(champ(champs, entete, "nbPages"), "nbPages"),
+                entier(champ(champs, entete, "nbExemplaires"), "nbExemplaires"),
+                champ(champs, entete, "description"),
+                couvertureService.normaliser(champ(champs, entete, "cover"))
+        );
+    }
+
+    private Long creerAuteur(String nom) {
+        Auteur a = new Auteur();
+        a.setNomComplet(nom);
+        Long id = auteurRepository.save(a).getId();
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.AUTEUR, id));
+        return id;
+    }
+
+    private Long creerCategorie(String nom) {
+        Categorie c = new Categorie();
+        c.setNom(nom);
+        Long id = categorieRepository.save(c).getId();
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.CATEGORIE, id));
+        return id;
+    }
+
+    private Map<String, Long> dictionnaire(String sql) {
+        Map<String, Long> noms = new HashMap<>();
+        jdbc.query(sql, rs -> {
+            if (rs.getString(2) != null) noms.putIfAbsent(cle(rs.getString(2)), rs.getLong(1));
+        });
+        return noms;
+    }
+
+    private static Map<String, Integer> lireEntete(LecteurCsv csv) throws IOException {
+        List<String> noms = csv.ligneSuivante();
+        if (noms == null) throw new IllegalArgumentException("Fichier vide");
+        Map<String, Integer> entete = new HashMap<>();
+        for (int i = 0; i < noms.size(); i++) {
+            String nom = noms.get(i).trim().replace("\uFEFF", ""); // BOM éventuel (Excel)
+            for (String c : COLONNES) {
+                if (c.equalsIgnoreCase(nom)) entete.put(c, i);
+            }
+        }
+        if (!entete.containsKey("isbn") || !entete.containsKey("titre")) {
+            throw new IllegalArgumentException("En-tête invalide : colonnes titre et isbn obligatoires");
+        }
+        return entete;
+    }
+
+    private static String champ(List<String> champs, Map<String, Integer> entete, String nom) {
+        Integer i = entete.get(nom);
+        if (i == null || i >= champs.size()) return null;
+        String v = champs.get(i).trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static Integer entier(String v, String nom) {
+        if (v == null) return null;
+        try {
+            int n = Integer.parseInt(v);
+            if (n < 0) throw new IllegalArgumentException(nom + " négatif : " + v);
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(nom + " invalide : " + v);
+        }
+    }
+
+    // Date ISO (2020-05-17) ou année seule (2020)
+    private static LocalDate date(String v) {
+        if (v == null) return null;
+        try {
+            return v.length() == 4 ? LocalDate.of(Integer.parseInt(v), 1, 1) : LocalDate.parse(v);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("datePublication invalide : " + v);
+        }
+    }
+
+    private static String cle(String nom) {
+        return nom.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Compteurs {
+        long lues, crees, misAJour, enErreur;
+        String interruption;
+        final List<ImportRapportDTO.ErreurLigne> erreurs = new ArrayList<>();
+
+        void erreur(long ligne, String message) {
+            enErreur++;
+            if (erreurs.size() < ERREURS_MAX) erreurs.add(new ImportRapportDTO.ErreurLigne(ligne, message));
+        }
+
+        ImportRapportDTO rapport(long debut) {
+            return new ImportRapportDTO(lues, crees, misAJour, enErreur, List.copyOf(erreurs),
+                    System.currentTimeMillis() - debut, interruption);
+        }
+    }
+
+    /**
+     * Lecteur CSV en flux (RFC 4180 : champs entre guillemets, guillemets doublés, retours à la
+     * ligne dans un champ). Le séparateur est détecté sur la première ligne.
+     * Un champ entre guillemets est borné à champMax caractères : un guillemet non fermé ne fait
+     * pas charger le reste du fichier en mémoire.
+     */
+    static final class LecteurCsv implements AutoCloseable {
+        private final BufferedReader reader;
+        private final int champMax;
+        private char separateur;
+        private long ligne;
+        private long debutEnregistrement;
+
+        // Enregistrement illisible : les lignes déjà consommées sont abandonnées, le lecteur reste utilisable
+        static final class EnregistrementInvalide extends IllegalArgumentException {
+            private final long ligne;
+
+            EnregistrementInvalide(long ligne, String message) {
+                super(message);
+                this.ligne = ligne;
+            }
+
+            long ligne() {
+                return ligne;
+            }
+        }
+
+        LecteurCsv(Reader reader, int champMax) {
+            this.reader = new BufferedReader(reader, 64 * 1024);
+            this.champMax = champMax;
+        }
+
+        long numeroLigne() {
+            return debutEnregistrement;
+        }
+
+        List<String> ligneSuivante() throws IOException {
+            String texte = reader.readLine();
+            if (texte == null) return null;
+            ligne++;
+            if (separateur == 0) {
+                separateur = texte.indexOf(';') >= 0 && texte.indexOf(',') < 0 ? ';' : ',';
+            }
+            debutEnregistrement = ligne;
+            if (texte.isBlank()) return ligneSuivante();
+
+            List<String> champs = new ArrayList<>();
+            StringBuilder courant = new StringBuilder();
+            boolean entreGuillemets = false;
+            int i = 0;
+            while (true) {
+                if (i == texte.length()) {
+                    if (!entreGuillemets) break;
+                    // Retour à la ligne à l'intérieur d'un champ entre guillemets
+                    texte = reader.readLine();
+                    if (texte == null) {
+                        throw new EnregistrementInvalide(debutEnregistrement, "Guillemet non fermé jusqu'à la fin du fichier");
+                    }
+                    ligne++;
+                    courant.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = texte.charAt(i++);
+                if (entreGuillemets) {
+                    if (c == '"') {
+                        if (i < texte.length() && texte.charAt(i) == '"') {
+                            courant.append('"');
+                            i++;
+                        } else {
+                            entreGuillemets = false;
+                        }
+                    } else {
+                        courant.append(c);
+                        if (courant.length() > champMax) {
+                            throw new EnregistrementInvalide(debutEnregistrement, "Champ entre guillemets de plus de "
+                                    + champMax + " caractères (guillemet non fermé ?), lignes " + debutEnregistrement
+                                    + " à " + ligne + " ignorées");
+                        }
+                    }
+                } else if (c == '"') {
+                    entreGuillemets = true;
+                } else if (c == separateur) {
+                    champs.add(courant.toString());
+                    courant.setLength(0);
+                } else {
+                    courant.append(c);
+                }
+            }
+            champs.add(courant.toString());
+            return champs;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -1,19 +1,49 @@
 package sn.unchk.bibliotheque.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import sn.unchk.bibliotheque.dto.LivreDTO;
+import sn.unchk.bibliotheque.dto.LivrePageDTO;
 import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.mapper.LivreMapper;
 import sn.unchk.bibliotheque.repository.LivreRepository;
+import sn.unchk.bibliotheque.repository.LivreSpecifications;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class LivreService {
 
-    private final LivreRepository repo;
+    public static final int TAILLE_PAGE_DEFAUT = 20;
+    public static final int TAILLE_PAGE_MAX = 100;
+    private static final String PREFIXE_CURSEUR = "v1:";
 
-    public LivreService(LivreRepository repo) {
+    private final LivreRepository repo;
+    private final RechercheService rechercheService;
+    private final CouvertureService couvertureService;
+    private final FacettesLivresService facettesService;
+    private final ApplicationEventPublisher events;
+    private final int titreMax;
+
+    public LivreService(LivreRepository repo, RechercheService rechercheService, CouvertureService couvertureService,
+                        FacettesLivresService facettesService, ApplicationEventPublisher events,
+                        @Value("${app.catalogue.titre-max:10000}") int titreMax) {
         this.repo = repo;
+        this.rechercheService = rechercheService;
+        this.couvertureService = couvertureService;
+        this.facettesService = facettesService;
+        this.events = events;
+        this.titreMax = titreMax;
     }
 
     // CRUD de base
@@ -21,16 +51,93 @@ public class LivreService {
         return repo.findAll();
     }
 
+    /**
+     * Page du catalogue en pagination keyset (tri par id croissant), avec les comptes par facette.
+     * Les filtres sont des ET de bitmaps en mémoire (FacettesLivresService), le titre passe par
+     * l'index de recherche ; seuls les livres de la page sont lus en base.
+     */
+    public LivrePageDTO getPage(String titre, Long categorieId, Long auteurId, String langue, Integer decennie,
+                                Boolean disponible, String cursor, Integer limit) {
+        int taille = limit == null ? TAILLE_PAGE_DEFAUT : Math.max(1, Math.min(limit, TAILLE_PAGE_MAX));
+        if (decennie != null && decennie % 10 != 0) {
+            throw new IllegalArgumentException("Décennie invalide : " + decennie);
+        }
+        Long apres = decoderCurseur(cursor);
+
+        // Titre : mots (dernier en préfixe) cherchés dans l'index Lucene, au plus titreMax livres
+        List<Long> idsTitre = titre == null || titre.isBlank() ? null
+                : rechercheService.idsParTitre(titre, titreMax);
+        Optional<FacettesLivresService.Page> facettee = facettesService.rechercher(
+                new FacettesLivresService.Filtres(categorieId, auteurId, langue, decennie, disponible),
+                idsTitre, apres, taille);
+        if (facettee.isPresent()) {
+            FacettesLivresService.Page page = facettee.get();
+            Map<Long, Livre> parId = repo.findAllById(page.ids()).stream()
+                    .collect(Collectors.toMap(Livre::getId, Function.identity()));
+            List<LivreDTO> items = page.ids().stream().map(parId::get).filter(Objects::nonNull)
+                    .map(LivreMapper::toDTO).toList();
+            String nextCursor = page.suivante() ? encoderCurseur(page.ids().get(page.ids().size() - 1)) : null;
+            return new LivrePageDTO(items, nextCursor, taille, page.facettes());
+        }
+
+        // Index de facettes pas encore construit (démarrage) : filtres SQL, sans comptes.
+        // On lit limit + 1 lignes pour savoir s'il existe une page suivante, sans requête COUNT.
+        Specification<Livre> spec = Specification.allOf(
+                LivreSpecifications.idApres(apres),
+                LivreSpecifications.titreContient(titre),
+                LivreSpecifications.categorie(categorieId),
+                LivreSpecifications.auteur(auteurId),
+                LivreSpecifications.langue(langue),
+                LivreSpecifications.decennie(decennie),
+                LivreSpecifications.disponible(disponible)
+        );
+
+        List<Livre> lignes = repo.findBy(spec, q -> q.sortBy(Sort.by("id")).limit(taille + 1).all());
+
+        boolean pageSuivante = lignes.size() > taille;
+        List<Livre> page = pageSuivante ? lignes.subList(0, taille) : lignes;
+        List<LivreDTO> items = page.stream().map(LivreMapper::toDTO).toList();
+        String nextCursor = pageSuivante ? encoderCurseur(page.get(page.size() - 1).getId()) : null;
+
+        return new LivrePageDTO(items, nextCursor, taille, null);
+    }
+
+    // Curseur opaque : "v1:<dernier id>" encodé en Base64 URL-safe
+    static String encoderCurseur(Long dernierId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIXE_CURSEUR + dernierId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Long decoderCurseur(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String brut = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!brut.startsWith(PREFIXE_CURSEUR)) {
+                throw new IllegalArgumentException("Curseur invalide");
+            }
+            return Long.parseLong(brut.substring(PREFIXE_CURSEUR.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+    }
+
     public Optional<Livre> getById(Long id) {
         return repo.findById(id);
     }
 
     public Livre save(Livre livre) {
-        return repo.save(livre);
+        // Les images base64 envoyées par le front partent dans le stockage de couvertures
+        livre.setCover(couvertureService.normaliser(livre.getCover()));
+        Livre saved = repo.save(livre);
+        rechercheService.indexer(saved);
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.LIVRE, saved.getId()));
+        return saved;
     }
 
     public void delete(Long id) {
         repo.deleteById(id);
+        rechercheService.supprimer(id);
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.LIVRE, id));
     }
 
     public long count() {
@@ -42,10 +149,6 @@ public class LivreService {
         return repo.findLatest(limit);
     }
 
-    public List<Livre> findMostBorrowed(int limit) {
-        return repo.findMostBorrowed(limit);
-    }
-
     // Recherches
     public List<Livre> searchByTitre(String titre) {
         return repo.findByTitreContainingIgnoreCase(titre);
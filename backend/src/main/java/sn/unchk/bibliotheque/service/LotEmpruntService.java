@@ -0,0 +1,403 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.dto.LotEmpruntRapportDTO;
+import sn.unchk.bibliotheque.dto.LotEmpruntRapportDTO.Resultat;
+import sn.unchk.bibliotheque.entity.StatutEmprunt;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Opérations de guichet par lot (rentrée, fin de semestre) : validations, rejets, retours et
+ * prolongations. Chaque lot de {@code app.emprunts.lot.taille-lot} opérations est une transaction ;
+ * les états sont lus en une requête, puis chaque type d'opération est un seul batch JDBC d'UPDATE
+ * conditionnels, comme les transitions unitaires d'EmpruntService. Le nombre de lignes touchées par
+ * chaque instruction du batch dit quelles opérations ont abouti.
+ * <p>
+ * Une opération refusée n'empêche pas les autres ; si un lot échoue entièrement (erreur SQL),
+ * seules ses opérations sont marquées en échec, les lots déjà validés restent acquis.
+ */
+@Service
+public class LotEmpruntService {
+
+    public enum TypeOperation { VALIDER, REJETER, RENDRE, PROLONGER }
+
+    public record Operation(String type, Long empruntId, Integer jours) {}
+
+    private static final String SQL_ETATS = """
+            SELECT e.id, e.statut, e.rendu, e.date_emprunt, e.date_limite_retour,
+                   e.livre_id, e.utilisateur_id, l.categorie_id
+            FROM emprunts e JOIN livres l ON l.id = e.livre_id
+            WHERE e.id IN (:ids)
+            """;
+
+    private static final String SQL_VALIDER =
+            "UPDATE emprunts SET statut = 'VALIDE', date_emprunt = ?, date_limite_retour = ? WHERE id = ? AND statut = 'EN_ATTENTE'";
+
+    // Stock épuisé : la validation est défaite dans la même transaction
+    private static final String SQL_ANNULER_VALIDATION =
+            "UPDATE emprunts SET statut = 'EN_ATTENTE', date_emprunt = ?, date_limite_retour = ? WHERE id = ?";
+
+    private static final String SQL_REJETER =
+            "UPDATE emprunts SET statut = 'REJETE' WHERE id = ? AND statut = 'EN_ATTENTE'";
+
+    private static final String SQL_RENDRE = """
+            UPDATE emprunts SET statut = 'TERMINE', rendu = TRUE, date_retour = ?
+            WHERE id = ? AND statut = 'VALIDE' AND rendu = FALSE
+            """;
+
+    // La date limite lue sert de garde : une prolongation concurrente fait échouer celle-ci
+    private static final String SQL_PROLONGER = """
+            UPDATE emprunts SET date_limite_retour = ?
+            WHERE id = ? AND statut = 'VALIDE' AND rendu = FALSE AND date_limite_retour = ?
+            """;
+
+    private static final String SQL_RESERVER_EXEMPLAIRE = """
+            UPDATE livres SET nb_exemplaires = nb_exemplaires - 1, nb_emprunts = nb_emprunts + 1,
+                              nb_emprunts_en_cours = nb_emprunts_en_cours + 1
+            WHERE id = ? AND nb_exemplaires > 0
+            """;
+
+    private static final String SQL_EMPRUNTER_RETENU = """
+            UPDATE livres SET nb_emprunts = nb_emprunts + 1, nb_emprunts_en_cours = nb_emprunts_en_cours + 1
+            WHERE id = ?
+            """;
+
+    private static final String SQL_RESTITUER = """
+            UPDATE livres SET nb_exemplaires = nb_exemplaires + 1,
+                              nb_emprunts_en_cours = CASE WHEN nb_emprunts_en_cours > 0
+                                                          THEN nb_emprunts_en_cours - 1 ELSE 0 END
+            WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate transaction;
+    private final ReservationService reservationService;
+    private final StatistiqueEmpruntService statistiqueService;
+    private final ApplicationEventPublisher events;
+    private final int tailleLot;
+    private final int operationsMax;
+
+    // Opération contrôlée, prête à être exécutée
+    private record Tache(int index, TypeOperation type, Etat etat, int jours) {}
+
+    private record Etat(Long id, StatutEmprunt statut, boolean rendu, LocalDate dateEmprunt,
+                        LocalDate dateLimiteRetour, Long livreId, Long utilisateurId, Long categorieId) {}
+
+    public LotEmpruntService(JdbcTemplate jdbc,
+                             NamedParameterJdbcTemplate namedJdbc,
+                             PlatformTransactionManager transactionManager,
+                             ReservationService reservationService,
+                             StatistiqueEmpruntService statistiqueService,
+                             ApplicationEventPublisher events,
+                             @Value("${app.emprunts.lot.taille-lot:100}") int tailleLot,
+                             @Value("${app.emprunts.lot.operations-max:2000}") int operationsMax) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.reservationService = reservationService;
+        this.statistiqueService = statistiqueService;
+        this.events = events;
+        this.tailleLot = tailleLot;
+        this.operationsMax = operationsMax;
+    }
+
+    public LotEmpruntRapportDTO executer(List<Operation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("Aucune opération à traiter");
+        }
+        if (operations.size() > operationsMax) {
+            throw new IllegalArgumentException("Un lot ne peut pas dépasser " + operationsMax + " opérations");
+        }
+        long debut = System.currentTimeMillis();
+        Resultat[] resultats = new Resultat[operations.size()];
+
+        // Un emprunt ne figure qu'une fois par requête : les contrôles portent sur son état initial
+        Set<Long> vus = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            Operation op = operations.get(i);
+            if (op == null || op.empruntId() == null) {
+                resultats[i] = echec(i, op, "Identifiant d'emprunt manquant", null);
+            } else if (!vus.add(op.empruntId())) {
+                resultats[i] = echec(i, op, "Emprunt déjà présent dans le lot", null);
+            }
+        }
+
+        for (int i = 0; i < operations.size(); i += tailleLot) {
+            int fin = Math.min(i + tailleLot, operations.size());
+            executerLot(operations, i, fin, resultats);
+        }
+
+        int reussies = (int) Arrays.stream(resultats).filter(Resultat::succes).count();
+        return new LotEmpruntRapportDTO(operations.size(), reussies, operations.size() - reussies,
+                List.of(resultats), System.currentTimeMillis() - debut);
+    }
+
+    // ==========================
+    // Un lot = une transaction
+    // ==========================
+    private void executerLot(List<Operation> operations, int debut, int fin, Resultat[] resultats) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = debut; i < fin; i++) {
+            if (resultats[i] == null) indices.add(i);
+        }
+        if (indices.isEmpty()) return;
+
+        Map<Integer, Resultat> lot = new HashMap<>();
+        try {
+            transaction.executeWithoutResult(s -> traiter(operations, indices, lot));
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Lot d'emprunts annulé (" + indices.size() + " opérations) : " + e.getMessage());
+            String motif = "Lot annulé, aucune opération appliquée : "
+                    + (e instanceof IllegalStateException ? e.getMessage() : "erreur technique (" + e.getClass().getSimpleName() + ")");
+            lot.clear();
+            indices.forEach(i -> lot.put(i, echec(i, operations.get(i), motif, null)));
+        }
+        lot.forEach((i, r) -> resultats[i] = r);
+    }
+
+    private void traiter(List<Operation> operations, List<Integer> indices, Map<Integer, Resultat> lot) {
+        Map<Long, Etat> etats = charger(indices.stream().map(i -> operations.get(i).empruntId()).toList());
+        LocalDate aujourdhui = LocalDate.now();
+
+        Map<TypeOperation, List<Tache>> taches = new EnumMap<>(TypeOperation.class);
+        for (int i : indices) {
+            Operation op = operations.get(i);
+            Etat etat = etats.get(op.empruntId());
+            try {
+                Tache t = controler(i, op, etat, aujourdhui);
+                taches.computeIfAbsent(t.type(), k -> new ArrayList<>()).add(t);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                lot.put(i, echec(i, op, e.getMessage(), etat));
+            }
+        }
+
+        // Retours d'abord : les exemplaires rentrés servent aux validations du même lot
+        rendre(taches.getOrDefault(TypeOperation.RENDRE, List.of()), aujourdhui, lot);
+        valider(taches.getOrDefault(TypeOperation.VALIDER, List.of()), aujourdhui, lot);
+        rejeter(taches.getOrDefault(TypeOperation.REJETER, List.of()), lot);
+        prolonger(taches.getOrDefault(TypeOperation.PROLONGER, List.of()), lot);
+    }
+
+    // Mêmes règles que les opérations unitaires, vérifiées sur l'état lu ; l'UPDATE conditionnel tranche
+    private Tache controler(int index, Operation op, Etat etat, LocalDate aujourdhui) {
+        TypeOperation type;
+        try {
+            type = TypeOperation.valueOf(String.valueOf(op.type()).trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Type d'opération inconnu : " + op.type());
+        }
+        if (etat == null) {
+            throw new IllegalArgumentException("Emprunt non trouvé");
+        }
+        int jours = op.jours() != null ? op.jours() : 0;
+
+        switch (type) {
+            case VALIDER -> {
+                if (jours <= 0) throw new IllegalArgumentException("Le nombre de jours doit être positif");
+                if (etat.statut() != StatutEmprunt.EN_ATTENTE) throw new IllegalStateException("Cet emprunt a déjà été traité");
+            }
+            case REJETER -> {
+                if (etat.statut() != StatutEmprunt.EN_ATTENTE) throw new IllegalStateException("Cet emprunt a déjà été traité");
+            }
+            case RENDRE -> {
+                if (etat.statut() != StatutEmprunt.VALIDE || etat.rendu()) {
+                    throw new IllegalStateException("Cet emprunt ne peut pas être rendu");
+                }
+            }
+            case PROLONGER -> {
+                if (jours <= 0) throw new IllegalArgumentException("Le nombre de jours supplémentaires doit être positif");
+                if (jours > 30) throw new IllegalArgumentException("La prolongation ne peut pas dépasser 30 jours");
+                if (etat.statut() != StatutEmprunt.VALIDE) throw new IllegalStateException("Seuls les emprunts validés peuvent être prolongés");
+                if (etat.rendu()) throw new IllegalStateException("Impossible de prolonger un emprunt déjà rendu");
+                if (etat.dateLimiteRetour() == null) throw new IllegalStateException("Date de retour prévue non définie");
+                if (etat.dateLimiteRetour().isBefore(aujourdhui)) throw new IllegalStateException("Impossible de prolonger un emprunt en retard");
+                if (etat.dateEmprunt() != null
+                        && etat.dateLimiteRetour().plusDays(jours).isAfter(etat.dateEmprunt().plusMonths(3))) {
+                    throw new IllegalStateException("La durée totale de l'emprunt ne peut pas dépasser 3 mois");
+                }
+            }
+        }
+        return new Tache(index, type, etat, jours);
+    }
+
+    // ==========================
+    // Exécution par type (un batch JDBC chacun)
+    // ==========================
+    private void valider(List<Tache> taches, LocalDate aujourdhui, Map<Integer, Resultat> lot) {
+        if (taches.isEmpty()) return;
+        boolean[] n = appliquer(SQL_VALIDER, taches, (ps, t) -> {
+            ps.setDate(1, Date.valueOf(aujourdhui));
+            ps.setDate(2, Date.valueOf(aujourdhui.plusDays(t.jours())));
+            ps.setLong(3, t.etat().id());
+        });
+        List<Tache> validees = new ArrayList<>();
+        for (int i = 0; i < taches.size(); i++) {
+            Tache t = taches.get(i);
+            if (!n[i]) lot.put(t.index(), echec(t, "Cet emprunt a déjà été traité"));
+            else validees.add(t);
+        }
+
+        // Exemplaire mis de côté pour ce lecteur : déjà sorti du stock
+        Map<Long, Set<Long>> retenues = reservationService.retenues(
+                validees.stream().map(t -> t.etat().livreId()).distinct().toList());
+        List<Tache> surRetenue = new ArrayList<>();
+        List<Tache> surStock = new ArrayList<>();
+        for (Tache t : validees) {
+            boolean retenue = retenues.getOrDefault(t.etat().livreId(), Set.of()).contains(t.etat().utilisateurId())
+                    && reservationService.honorer(t.etat().utilisateurId(), t.etat().livreId());
+            (retenue ? surRetenue : surStock).add(t);
+        }
+        appliquer(SQL_EMPRUNTER_RETENU, surRetenue, (ps, t) -> ps.setLong(1, t.etat().livreId()));
+
+        // Décrémenter le stock (WHERE nb_exemplaires > 0), dans l'ordre du lot pour un même livre
+        boolean[] stock = appliquer(SQL_RESERVER_EXEMPLAIRE, surStock, (ps, t) -> ps.setLong(1, t.etat().livreId()));
+        List<Tache> indisponibles = new ArrayList<>();
+        List<Tache> reussies = new ArrayList<>(surRetenue);
+        for (int i = 0; i < surStock.size(); i++) {
+            (stock[i] ? reussies : indisponibles).add(surStock.get(i));
+        }
+        appliquer(SQL_ANNULER_VALIDATION, indisponibles, (ps, t) -> {
+            ps.setObject(1, t.etat().dateEmprunt() != null ? Date.valueOf(t.etat().dateEmprunt()) : null, Types.DATE);
+            ps.setObject(2, t.etat().dateLimiteRetour() != null ? Date.valueOf(t.etat().dateLimiteRetour()) : null, Types.DATE);
+            ps.setLong(3, t.etat().id());
+        });
+        indisponibles.forEach(t -> lot.put(t.index(), echec(t, "Livre non disponible")));
+
+        statistiqueService.enregistrerValidations(reussies.stream()
+                .map(t -> new StatistiqueEmpruntService.Validation(t.etat().livreId(), t.etat().categorieId(), aujourdhui))
+                .toList());
+        for (Tache t : reussies) {
+            lot.put(t.index(), succes(t, StatutEmprunt.VALIDE, aujourdhui.plusDays(t.jours())));
+            publier(t, EmpruntEvent.Type.VALIDATION);
+        }
+    }
+
+    private void rejeter(List<Tache> taches, Map<Integer, Resultat> lot) {
+        if (taches.isEmpty()) return;
+        boolean[] n = appliquer(SQL_REJETER, taches, (ps, t) -> ps.setLong(1, t.etat().id()));
+        for (int i = 0; i < taches.size(); i++) {
+            Tache t = taches.get(i);
+            if (!n[i]) {
+                lot.put(t.index(), echec(t, "Cet emprunt a déjà été traité"));
+            } else {
+                lot.put(t.index(), succes(t, StatutEmprunt.REJETE, t.etat().dateLimiteRetour()));
+                publier(t, EmpruntEvent.Type.REJET);
+            }
+        }
+    }
+
+    private void rendre(List<Tache> taches, LocalDate aujourdhui, Map<Integer, Resultat> lot) {
+        if (taches.isEmpty()) return;
+        boolean[] n = appliquer(SQL_RENDRE, taches, (ps, t) -> {
+            ps.setDate(1, Date.valueOf(aujourdhui));
+            ps.setLong(2, t.etat().id());
+        });
+        List<Tache> rendus = new ArrayList<>();
+        for (int i = 0; i < taches.size(); i++) {
+            Tache t = taches.get(i);
+            if (!n[i]) lot.put(t.index(), echec(t, "Cet emprunt ne peut pas être rendu"));
+            else rendus.add(t);
+        }
+        appliquer(SQL_RESTITUER, rendus, (ps, t) -> ps.setLong(1, t.etat().livreId()));
+
+        // Chaque exemplaire rentré est mis de côté pour le premier lecteur en file d'attente
+        for (Tache t : rendus) {
+            if (reservationService.tailleFile(t.etat().livreId()) > 0) reservationService.servir(t.etat().livreId());
+        }
+        statistiqueService.enregistrerRetours(aujourdhui, rendus.size());
+        for (Tache t : rendus) {
+            lot.put(t.index(), succes(t, StatutEmprunt.TERMINE, t.etat().dateLimiteRetour()));
+            publier(t, EmpruntEvent.Type.RETOUR);
+        }
+    }
+
+    private void prolonger(List<Tache> taches, Map<Integer, Resultat> lot) {
+        if (taches.isEmpty()) return;
+        boolean[] n = appliquer(SQL_PROLONGER, taches, (ps, t) -> {
+            ps.setDate(1, Date.valueOf(t.etat().dateLimiteRetour().plusDays(t.jours())));
+            ps.setLong(2, t.etat().id());
+            ps.setDate(3, Date.valueOf(t.etat().dateLimiteRetour()));
+        });
+        for (int i = 0; i < taches.size(); i++) {
+            Tache t = taches.get(i);
+            if (!n[i]) {
+                lot.put(t.index(), echec(t, "L'emprunt a été modifié entre-temps"));
+            } else {
+                lot.put(t.index(), succes(t, StatutEmprunt.VALIDE, t.etat().dateLimiteRetour().plusDays(t.jours())));
+                publier(t, EmpruntEvent.Type.PROLONGATION);
+            }
+        }
+    }
+
+    // ==========================
+    // Utilitaires
+    // ==========================
+    private Map<Long, Etat> charger(List<Long> ids) {
+        Map<Long, Etat> etats = new HashMap<>();
+        namedJdbc.query(SQL_ETATS, Map.of("ids", ids), rs -> {
+            Date dateEmprunt = rs.getDate(4);
+            Date dateLimite = rs.getDate(5);
+            Etat e = new Etat(rs.getLong(1), StatutEmprunt.valueOf(rs.getString(2)), rs.getBoolean(3),
+                    dateEmprunt != null ? dateEmprunt.toLocalDate() : null,
+                    dateLimite != null ? dateLimite.toLocalDate() : null,
+                    rs.getLong(6), rs.getLong(7), rs.getObject(8, Long.class));
+            etats.put(e.id(), e);
+        });
+        return etats;
+    }
+
+    /**
+     * Une instruction par tâche, envoyées en un batch ; true pour celles qui ont touché leur ligne.
+     * Seul un compteur exact (0 ou 1) fait foi : un pilote qui renvoie SUCCESS_NO_INFO (-2) ne dit
+     * pas si la garde de l'UPDATE a joué, le lot entier est alors annulé plutôt que deviné.
+     */
+    private boolean[] appliquer(String sql, List<Tache> taches, ParameterizedPreparedStatementSetter<Tache> parametres) {
+        boolean[] appliquees = new boolean[taches.size()];
+        if (taches.isEmpty()) return appliquees;
+        int[][] n = jdbc.batchUpdate(sql, taches, taches.size(), parametres);
+        for (int i = 0; i < appliquees.length; i++) {
+            int lignes = n[0][i];
+            if (lignes < 0 || lignes > 1) {
+                throw new IllegalStateException("Nombre de lignes modifiées inconnu (" + lignes
+                        + ") : le pilote JDBC doit renvoyer un compteur par instruction");
+            }
+            appliquees[i] = lignes == 1;
+        }
+        return appliquees;
+    }
+
+    // Les abonnés transactionnels reçoivent l'événement après le commit du lot
+    private void publier(Tache t, EmpruntEvent.Type type) {
+        events.publishEvent(new EmpruntEvent(t.etat().id(), t.etat().livreId(), t.etat().utilisateurId(), type));
+    }
+
+    private static Resultat succes(Tache t, StatutEmprunt statut, LocalDate dateLimiteRetour) {
+        return new Resultat(t.index(), t.etat().id(), t.type().name(), true, null, statut.name(), dateLimiteRetour);
+    }
+
+    private static Resultat echec(Tache t, String message) {
+        return echec(t.index(), t.type().name(), t.etat().id(), message, t.etat());
+    }
+
+    private static Resultat echec(int index, Operation op, String message, Etat etat) {
+        return echec(index, op != null ? op.type() : null, op != null ? op.empruntId() : null, message, etat);
+    }
+
+    private static Resultat echec(int index, String type, Long empruntId, String message, Etat etat) {
+        return new Resultat(index, empruntId, type, false, message,
+                etat != null ? etat.statut().name() : null,
+                etat != null ? etat.dateLimiteRetour() : null);
+    }
+}
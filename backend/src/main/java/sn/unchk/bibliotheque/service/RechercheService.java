@@ -0,0 +1,437 @@
+package sn.unchk.bibliotheque.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.fr.FrenchAnalyzer;
+import org.apache.lucene.analysis.fr.FrenchLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.util.ElisionFilter;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import sn.unchk.bibliotheque.dto.RechercheResultatDTO;
+import sn.unchk.bibliotheque.entity.Auteur;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.repository.AuteurRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index inversé Lucene embarqué sur les titres, descriptions et noms d'auteurs.
+ * Classement BM25 (similarité par défaut de Lucene), racinisation française légère et
+ * suppression des accents. L'index est mis à jour document par document à chaque écriture.
+ */
+@Service
+public class RechercheService {
+
+    private static final String CHAMP_ID = "id";
+    private static final String CHAMP_ID_VALEUR = "idValeur"; // doc values : ids lus sans document stocké
+    private static final String CHAMP_AUTEUR_ID = "auteurId";
+    private static final String CHAMP_TITRE = "titre";
+    private static final String CHAMP_DESCRIPTION = "description";
+    private static final String CHAMP_AUTEUR = "auteur";
+
+    private static final int LIMITE_MAX = 50;
+    private static final int TAILLE_EXTRAIT = 160;
+
+    private final LivreRepository livreRepository;
+    private final AuteurRepository auteurRepository;
+    private final Analyzer analyzer = new AnalyseurFrancais();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public RechercheService(LivreRepository livreRepository,
+                            AuteurRepository auteurRepository,
+                            @Value("${app.recherche.index-dir:${java.io.tmpdir}/bibliotheque-index}") String indexDir)
+            throws IOException {
+        this.livreRepository = livreRepository;
+        this.auteurRepository = auteurRepository;
+        this.directory = FSDirectory.open(Path.of(indexDir));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    // ✅ Au démarrage, on ne reconstruit que si l'index ne correspond plus à la table
+    // (ou s'il date d'avant les ids en doc values)
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        if (writer.getDocStats().numDocs != livreRepository.count() || !idsEnDocValues()) {
+            reconstruire();
+        }
+    }
+
+    private boolean idsEnDocValues() {
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            return searcher.getIndexReader().numDocs() == 0
+                    || FieldInfos.getMergedFieldInfos(searcher.getIndexReader()).fieldInfo(CHAMP_ID_VALEUR) != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            relacher(searcher);
+        }
+    }
+
+    // ✅ Reconstruction complète (commande de secours)
+    public synchronized void reconstruire() {
+        try {
+            writer.deleteAll();
+            for (Livre l : livreRepository.findAll()) {
+                writer.addDocument(versDocument(l));
+            }
+            publier();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ✅ Indexation incrémentale d'un livre (création ou modification)
+    public synchronized void indexer(Livre livre) {
+        if (livre == null || livre.getId() == null) return;
+        try {
+            writer.updateDocument(new Term(CHAMP_ID, livre.getId().toString()), versDocument(livre));
+            publier();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ✅ Indexation d'un lot (import) : un seul commit pour tout le lot
+    public synchronized void indexer(Collection<Livre> livres) {
+        if (livres.isEmpty()) return;
+        try {
+            for (Livre l : livres) {
+                writer.updateDocument(new Term(CHAMP_ID, l.getId().toString()), versDocument(l));
+            }
+            publier();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void supprimer(Long livreId) {
+        try {
+            writer.deleteDocuments(new Term(CHAMP_ID, livreId.toString()));
+            publier();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ✅ Le nom de l'auteur est dénormalisé dans chaque document : on réindexe ses livres
+    public void reindexerAuteur(Long auteurId) {
+        if (auteurId == null) return;
+        livreRepository.findByAuteurId(auteurId).forEach(this::indexer);
+    }
+
+    public synchronized void supprimerAuteur(Long auteurId) {
+        try {
+            writer.deleteDocuments(new Term(CHAMP_AUTEUR_ID, auteurId.toString()));
+            publier();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Recherche classée (BM25) avec extraits surlignés en &lt;mark&gt;.
+     */
+    public List<RechercheResultatDTO> rechercher(String texte, int limit) {
+        if (texte == null || texte.isBlank()) return List.of();
+        int taille = Math.max(1, Math.min(limit, LIMITE_MAX));
+
+        Query query;
+        try {
+            MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                    new String[]{CHAMP_TITRE, CHAMP_AUTEUR, CHAMP_DESCRIPTION}, analyzer,
+                    Map.of(CHAMP_TITRE, 3f, CHAMP_AUTEUR, 2f, CHAMP_DESCRIPTION, 1f));
+            query = parser.parse(QueryParser.escape(texte.trim()));
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Requête de recherche invalide", e);
+        }
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            TopDocs top = searcher.search(query, taille);
+            // Le fragmenteur doit partager le scorer du surligneur (il lit ses termes pondérés)
+            QueryScorer scorer = new QueryScorer(query);
+            Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<mark>", "</mark>"), scorer);
+            highlighter.setTextFragmenter(new SimpleSpanFragmenter(scorer, TAILLE_EXTRAIT));
+
+            List<RechercheResultatDTO> resultats = new ArrayList<>(top.scoreDocs.length);
+            for (ScoreDoc sd : top.scoreDocs) {
+                Document doc = searcher.storedFields().document(sd.doc);
+                String titre = doc.get(CHAMP_TITRE);
+                String description = doc.get(CHAMP_DESCRIPTION);
+                resultats.add(new RechercheResultatDTO(
+                        Long.valueOf(doc.get(CHAMP_ID)),
+                        titre,
+                        doc.get(CHAMP_AUTEUR),
+                        sd.score,
+                        surligner(highlighter, CHAMP_TITRE, titre),
+                        surligner(highlighter, CHAMP_DESCRIPTION, description)
+                ));
+            }
+            return resultats;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Ids des livres dont le titre contient tous les mots saisis, le dernier pouvant être un début
+     * de mot (saisie en cours). Filtre titre du catalogue à facettes : une requête sur l'index au
+     * lieu d'un LIKE '%…%' sur toute la table. Au-delà de max livres, la recherche échoue
+     * (IllegalArgumentException) : une liste tronquée dans l'ordre de l'index ferait sauter des
+     * livres à la pagination keyset.
+     */
+    public List<Long> idsParTitre(String texte, int max) {
+        if (texte == null || texte.isBlank()) return List.of();
+        String[] mots = texte.trim().split("\\s+");
+        BooleanQuery.Builder requete = new BooleanQuery.Builder();
+        for (int i = 0; i < mots.length - 1; i++) {
+            for (String terme : termes(mots[i])) {
+                requete.add(new TermQuery(new Term(CHAMP_TITRE, terme)), BooleanClause.Occur.MUST);
+            }
+        }
+        // Dernier mot : terme racinisé ou préfixe de sa forme normalisée (« miséra » → miserables)
+        String dernier = mots[mots.length - 1];
+        BooleanQuery.Builder fin = new BooleanQuery.Builder();
+        for (String terme : termes(dernier)) {
+            fin.add(new TermQuery(new Term(CHAMP_TITRE, terme)), BooleanClause.Occur.SHOULD);
+        }
+        BytesRef prefixe = analyzer.normalize(CHAMP_TITRE, dernier);
+        if (prefixe.length > 0) fin.add(new PrefixQuery(new Term(CHAMP_TITRE, prefixe)), BooleanClause.Occur.SHOULD);
+        BooleanQuery derniere = fin.build();
+        if (!derniere.clauses().isEmpty()) requete.add(derniere, BooleanClause.Occur.MUST);
+
+        BooleanQuery query = requete.build();
+        if (query.clauses().isEmpty()) return List.of();
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            CollecteurIds.Gestionnaire gestionnaire = new CollecteurIds.Gestionnaire(max);
+            List<Long> ids = searcher.search(query, gestionnaire);
+            if (gestionnaire.depasse()) {
+                throw new IllegalArgumentException("Filtre titre trop large : plus de " + max
+                        + " livres, préciser le titre");
+            }
+            return ids;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            relacher(searcher);
+        }
+    }
+
+    // Collecte des ids (doc values) d'un segment ; le total est partagé pour arrêter au-delà du plafond
+    private static final class CollecteurIds extends SimpleCollector {
+        private final Gestionnaire gestionnaire;
+        private final List<Long> ids = new ArrayList<>();
+        private NumericDocValues valeurs;
+
+        private CollecteurIds(Gestionnaire gestionnaire) {
+            this.gestionnaire = gestionnaire;
+        }
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            if (gestionnaire.depasse()) throw new CollectionTerminatedException();
+            valeurs = DocValues.getNumeric(context.reader(), CHAMP_ID_VALEUR);
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (gestionnaire.total.incrementAndGet() > gestionnaire.max) throw new CollectionTerminatedException();
+            if (valeurs.advanceExact(doc)) ids.add(valeurs.longValue());
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+
+        private static final class Gestionnaire implements CollectorManager<CollecteurIds, List<Long>> {
+            private final int max;
+            private final AtomicInteger total = new AtomicInteger();
+
+            private Gestionnaire(int max) {
+                this.max = max;
+            }
+
+            boolean depasse() {
+                return total.get() > max;
+            }
+
+            @Override
+            public CollecteurIds newCollector() {
+                return new CollecteurIds(this);
+            }
+
+            @Override
+            public List<Long> reduce(Collection<CollecteurIds> collecteurs) {
+                List<Long> ids = new ArrayList<>();
+                collecteurs.forEach(c -> ids.addAll(c.ids));
+                return ids;
+            }
+        }
+    }
+
+    private List<String> termes(String texte) {
+        List<String> termes = new ArrayList<>();
+        try (TokenStream ts = analyzer.tokenStream(CHAMP_TITRE, texte)) {
+            CharTermAttribute terme = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) termes.add(terme.toString());
+            ts.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return termes;
+    }
+
+    private void relacher(IndexSearcher searcher) {
+        if (searcher == null) return;
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException ignored) {}
+    }
+
+    @PreDestroy
+    public void fermer() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private String surligner(Highlighter highlighter, String champ, String texte) throws IOException {
+        if (texte == null || texte.isBlank()) return null;
+        try {
+            String fragment = highlighter.getBestFragment(analyzer, champ, texte);
+            if (fragment != null) return fragment;
+        } catch (InvalidTokenOffsetsException ignored) {}
+        // Aucun terme trouvé dans ce champ : début du texte
+        return texte.length() <= TAILLE_EXTRAIT ? texte : texte.substring(0, TAILLE_EXTRAIT) + "…";
+    }
+
+    private void publier() throws IOException {
+        writer.commit();
+        searcherManager.maybeRefresh();
+    }
+
+    private Document versDocument(Livre l) {
+        Document doc = new Document();
+        doc.add(new StringField(CHAMP_ID, l.getId().toString(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(CHAMP_ID_VALEUR, l.getId()));
+        Long auteurId = l.getAuteur() != null ? l.getAuteur().getId() : null;
+        if (auteurId != null) {
+            doc.add(new StringField(CHAMP_AUTEUR_ID, auteurId.toString(), Field.Store.NO));
+        }
+        doc.add(new TextField(CHAMP_TITRE, valeur(l.getTitre()), Field.Store.YES));
+        doc.add(new TextField(CHAMP_DESCRIPTION, valeur(l.getDescription()), Field.Store.YES));
+        doc.add(new TextField(CHAMP_AUTEUR, valeur(nomAuteur(l.getAuteur())), Field.Store.YES));
+        return doc;
+    }
+
+    // Le contrôleur peut ne fournir qu'un auteur avec son id : on résout alors le nom en base
+    private String nomAuteur(Auteur a) {
+        if (a == null) return null;
+        if (a.getNomComplet() != null) return a.getNomComplet();
+        return a.getId() == null ? null
+                : auteurRepository.findById(a.getId()).map(Auteur::getNomComplet).orElse(null);
+    }
+
+    private static String valeur(String s) {
+        return s != null ? s : "";
+    }
+
+    /**
+     * Chaîne d'analyse : élisions (l', d'…), minuscules, mots vides, suppression des accents
+     * puis racinisation légère. « misérables » et « miserables » donnent le même terme.
+     */
+    static class AnalyseurFrancais extends Analyzer {
+
+        private static final CharArraySet ELISIONS = new CharArraySet(
+                Arrays.asList("l", "m", "t", "qu", "n", "s", "j", "d", "c", "jusqu", "quoiqu", "lorsqu", "puisqu"), true);
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new ElisionFilter(source, ELISIONS);
+            result = new LowerCaseFilter(result);
+            result = new StopFilter(result, FrenchAnalyzer.getDefaultStopSet());
+            result = new ASCIIFoldingFilter(result);
+            result = new FrenchLightStemFilter(result);
+            return new TokenStreamComponents(source, result);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(new ElisionFilter(in, ELISIONS)));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Livres similaires : « les lecteurs qui ont emprunté X ont aussi emprunté Y ».
+ * <p>
+ * La similarité (cosinus sur les co-emprunts) est calculée chaque nuit à partir des couples
+ * (lecteur, livre) distincts, dans des tableaux primitifs creux (index denses, lignes CSR) ;
+ * seuls les meilleurs voisins de chaque livre sont gardés. Une requête fait une recherche
+ * dichotomique et lit une tranche de tableau. Si les co-emprunts ne suffisent pas, la liste
+ * est complétée par les livres les plus empruntés de la même catégorie.
+ */
+@Service
+public class RecommandationService {
+
+    public static final int LIMITE_MAX = 50;
+    private static final long GRAINE_PANIERS = 20240601L;
+
+    private final JdbcTemplate jdbc;
+    private final LivreRepository livreRepo;
+    private final ApplicationEventPublisher events;
+    private final int voisinsParLivre;
+    private final int supportMin;
+    private final int panierMax;
+
+    /**
+     * Table de voisins figée : ids triés (index dense = position), voisins du livre i dans
+     * voisins[debut[i] .. debut[i+1]), par similarité décroissante.
+     */
+    private record TableVoisins(long[] ids, int[] debut, int[] voisins, float[] scores) {
+        static final TableVoisins VIDE = new TableVoisins(new long[0], new int[]{0}, new int[0], new float[0]);
+    }
+
+    private volatile TableVoisins table = TableVoisins.VIDE;
+
+    public RecommandationService(JdbcTemplate jdbc,
+                                 LivreRepository livreRepo,
+                                 ApplicationEventPublisher events,
+                                 @Value("${app.recommandations.voisins:20}") int voisinsParLivre,
+                                 @Value("${app.recommandations.support-min:2}") int supportMin,
+                                 @Value("${app.recommandations.panier-max:200}") int panierMax) {
+        this.jdbc = jdbc;
+        this.livreRepo = livreRepo;
+        this.events = events;
+        this.voisinsParLivre = voisinsParLivre;
+        this.supportMin = supportMin;
+        this.panierMax = panierMax;
+    }
+
+    // ==========================
+    // Lecture
+    // ==========================
+    public Optional<List<Livre>> similaires(Long livreId, int limite) {
+        Optional<Livre> livre = livreRepo.findById(livreId);
+        if (livre.isEmpty()) return Optional.empty();
+        int n = Math.max(1, Math.min(limite, LIMITE_MAX));
+
+        List<Long> ids = voisins(livreId, n);
+        Map<Long, Livre> parId = livreRepo.findAllById(ids).stream()
+                .collect(Collectors.toMap(Livre::getId, Function.identity()));
+        List<Livre> resultat = new ArrayList<>(n);
+        ids.stream().map(parId::get).filter(Objects::nonNull).forEach(resultat::add);
+
+        // Données trop rares : compléter par la catégorie (les plus empruntés d'abord)
+        if (resultat.size() < n && livre.get().getCategorie() != null) {
+            Set<Long> deja = new HashSet<>(ids);
+            livreRepo.findByCategorieIdAndIdNot(livre.get().getCategorie().getId(), livreId,
+                            PageRequest.of(0, n + deja.size(), Sort.by(Sort.Direction.DESC, "nbEmprunts")))
+                    .stream()
+                    .filter(l -> !deja.contains(l.getId()))
+                    .limit(n - resultat.size())
+                    .forEach(resultat::add);
+        }
+        return Optional.of(resultat);
+    }
+
+    // Voisins précalculés : recherche dichotomique puis lecture d'une tranche
+    public List<Long> voisins(Long livreId, int limite) {
+        TableVoisins t = table;
+        int i = Arrays.binarySearch(t.ids(), livreId);
+        if (i < 0) return List.of();
+        int fin = Math.min(t.debut()[i + 1], t.debut()[i] + limite);
+        List<Long> ids = new ArrayList<>(fin - t.debut()[i]);
+        for (int k = t.debut()[i]; k < fin; k++) {
+            ids.add(t.ids()[t.voisins()[k]]);
+        }
+        return ids;
+    }
+
+    // ==========================
+    // Calcul
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        recalculer();
+    }
+
+    /**
+     * Recalcule toute la table de voisins et la publie d'un bloc ; les lectures en cours
+     * continuent sur l'ancienne. Retourne le nombre de livres ayant au moins un voisin.
+     */
+    @Scheduled(cron = "${app.recommandations.cron:0 0 4 * * *}")
+    public synchronized int recalculer() {
+        long t0 = System.currentTimeMillis();
+        // 1) Couples (lecteur, livre) bruts : un simple parcours de table, sans tri ni DISTINCT côté base
+        Couples couples = new Couples();
+        jdbc.query("""
+                SELECT utilisateur_id, livre_id FROM emprunts
+                WHERE statut <> 'REJETE' AND utilisateur_id IS NOT NULL AND livre_id IS NOT NULL
+                """, rs -> {
+            couples.ajouter(rs.getLong(1), rs.getLong(2));
+        });
+
+        // 2) Index denses, puis une clé (lecteur << 32 | livre) par couple : tri primitif et dédoublonnage
+        long[] ids = Arrays.stream(couples.livres, 0, couples.taille).sorted().distinct().toArray();
+        long[] idsLecteurs = Arrays.stream(couples.lecteurs, 0, couples.taille).sorted().distinct().toArray();
+        int nbLivres = ids.length;
+        long[] cles = new long[couples.taille];
+        for (int k = 0; k < couples.taille; k++) {
+            cles[k] = ((long) Arrays.binarySearch(idsLecteurs, couples.lecteurs[k]) << 32)
+                    | Arrays.binarySearch(ids, couples.livres[k]);
+        }
+        Arrays.sort(cles);
+        int nbCouples = 0;
+        for (int k = 0; k < cles.length; k++) {
+            if (k == 0 || cles[k] != cles[k - 1]) cles[nbCouples++] = cles[k];
+        }
+        int[] livreDe = new int[nbCouples];
+        for (int k = 0; k < nbCouples; k++) livreDe[k] = (int) cles[k];
+
+        // 3) Paniers par lecteur (CSR, contigus grâce au tri) et lecteurs par livre (CSR)
+        int[] debutPanier = new int[nbCouples + 1];
+        int nbPaniers = 0;
+        for (int k = 0; k < nbCouples; k++) {
+            if (k == 0 || (cles[k] >>> 32) != (cles[k - 1] >>> 32)) debutPanier[nbPaniers++] = k;
+        }
+        debutPanier[nbPaniers] = nbCouples;
+
+        // Panier plafonné : un gros lecteur ne doit pas rendre le calcul quadratique. On garde
+        // panierMax livres tirés uniformément (Fisher-Yates partiel, graine fixe : table reproductible),
+        // pas les premiers par index dense, et les degrés sont calculés sur l'échantillon retenu
+        int nbEchantillonnes = 0;
+        Random alea = new Random(GRAINE_PANIERS);
+        int garde = 0;
+        for (int p = 0; p < nbPaniers; p++) {
+            int d = debutPanier[p], taillePanier = debutPanier[p + 1] - d;
+            int n = Math.min(taillePanier, panierMax);
+            if (taillePanier > panierMax) {
+                nbEchantillonnes++;
+                for (int k = 0; k < n; k++) {
+                    int r = k + alea.nextInt(taillePanier - k);
+                    int tmp = livreDe[d + k];
+                    livreDe[d + k] = livreDe[d + r];
+                    livreDe[d + r] = tmp;
+                }
+            }
+            debutPanier[p] = garde;
+            System.arraycopy(livreDe, d, livreDe, garde, n);
+            garde += n;
+        }
+        debutPanier[nbPaniers] = garde;
+        nbCouples = garde;
+
+        int[] degre = new int[nbLivres];
+        for (int k = 0; k < nbCouples; k++) degre[livreDe[k]]++;
+        int[] debutLecteurs = new int[nbLivres + 1];
+        for (int i = 0; i < nbLivres; i++) debutLecteurs[i + 1] = debutLecteurs[i] + degre[i];
+        int[] lecteurs = new int[nbCouples];
+        int[] curseur = Arrays.copyOf(debutLecteurs, nbLivres);
+        for (int p = 0; p < nbPaniers; p++) {
+            for (int k = debutPanier[p]; k < debutPanier[p + 1]; k++) {
+                lecteurs[curseur[livreDe[k]]++] = p;
+            }
+        }
+
+        // 4) Co-emprunts livre par livre dans un accumulateur dense réutilisé, top-M par tas borné
+        int[] cooc = new int[nbLivres];
+        int[] touches = new int[nbLivres];
+        int[] debut = new int[nbLivres + 1];
+        int[] voisins = new int[Math.max(16, nbLivres)];
+        float[] scores = new float[voisins.length];
+        int nbVoisins = 0;
+        int avecVoisins = 0;
+        PriorityQueue<long[]> tas = new PriorityQueue<>(Comparator.comparingDouble(v -> Double.longBitsToDouble(v[1])));
+
+        for (int i = 0; i < nbLivres; i++) {
+            int nbTouches = 0;
+            for (int r = debutLecteurs[i]; r < debutLecteurs[i + 1]; r++) {
+                int p = lecteurs[r];
+                for (int k = debutPanier[p]; k < debutPanier[p + 1]; k++) {
+                    int j = livreDe[k];
+                    if (j != i && cooc[j]++ == 0) touches[nbTouches++] = j;
+                }
+            }
+            for (int t = 0; t < nbTouches; t++) {
+                int j = touches[t];
+                if (cooc[j] >= supportMin) {
+                    double similarite = cooc[j] / Math.sqrt((double) degre[i] * degre[j]);
+                    tas.offer(new long[]{j, Double.doubleToLongBits(similarite)});
+                    if (tas.size() > voisinsParLivre) tas.poll();
+                }
+                cooc[j] = 0;
+            }
+
+            int m = tas.size();
+            if (nbVoisins + m > voisins.length) {
+                voisins = Arrays.copyOf(voisins, Math.max(voisins.length * 2, nbVoisins + m));
+                scores = Arrays.copyOf(scores, voisins.length);
+            }
+            // Le tas sort du moins similaire au plus similaire : remplissage à rebours
+            for (int k = m - 1; k >= 0; k--) {
+                long[] v = tas.poll();
+                voisins[nbVoisins + k] = (int) v[0];
+                scores[nbVoisins + k] = (float) Double.longBitsToDouble(v[1]);
+            }
+            nbVoisins += m;
+            debut[i + 1] = nbVoisins;
+            if (m > 0) avecVoisins++;
+        }
+
+        table = new TableVoisins(ids, debut, Arrays.copyOf(voisins, nbVoisins), Arrays.copyOf(scores, nbVoisins));
+        events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.RECALCUL, null));
+        System.out.println("✅ Livres similaires : " + avecVoisins + "/" + nbLivres + " livres avec voisins ("
+                + nbCouples + " couples, " + nbEchantillonnes + " paniers échantillonnés, "
+                + (System.currentTimeMillis() - t0) + " ms)");
+        return avecVoisins;
+    }
+
+    // Tableaux primitifs extensibles pour les couples lus en base
+    private static final class Couples {
+        long[] lecteurs = new long[1024];
+        long[] livres = new long[1024];
+        int taille;
+
+        void ajouter(long lecteur, long livre) {
+            if (taille == lecteurs.length) {
+                lecteurs = Arrays.copyOf(lecteurs, taille * 2);
+                livres = Arrays.copyOf(livres, taille * 2);
+            }
+            lecteurs[taille] = lecteur;
+            livres[taille] = livre;
+            taille++;
+        }
+    }
+}
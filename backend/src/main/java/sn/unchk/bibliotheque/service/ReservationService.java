@@ -0,0 +1,297 @@
+package sn.unchk.bibliotheque.service;
+
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.entity.Reservation;
+import sn.unchk.bibliotheque.entity.StatutReservation;
+import sn.unchk.bibliotheque.entity.Utilisateur;
+import sn.unchk.bibliotheque.repository.EmpruntRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+import sn.unchk.bibliotheque.repository.ReservationRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Files d'attente des livres indisponibles. Un lecteur réserve quand le stock est à zéro ; au
+ * retour d'un exemplaire (dans la transaction du retour), la première réservation passe
+ * DISPONIBLE et l'exemplaire sort du stock pour elle jusqu'à la date limite de retrait. Le
+ * balayage planifié fait passer les mises de côté expirées au lecteur suivant.
+ * <p>
+ * La table fait foi ; chaque file est recopiée en mémoire après le commit, avec le rang de chaque
+ * réservation, pour que la position d'un lecteur se lise sans requête.
+ */
+@Service
+public class ReservationService {
+
+    private static final Set<StatutReservation> ACTIVES =
+            EnumSet.of(StatutReservation.EN_FILE, StatutReservation.DISPONIBLE);
+
+    private final ReservationRepository repo;
+    private final LivreRepository livreRepo;
+    private final EmpruntRepository empruntRepo;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate ecriture;
+    private final Duration delaiRetrait;
+    private final int fileMax;
+    private final int parUtilisateurMax;
+
+    // Miroir des réservations EN_FILE : ids par livre dans l'ordre d'arrivée, et rang de chacune
+    private volatile Map<Long, List<Long>> files = new ConcurrentHashMap<>();
+    private volatile Map<Long, Integer> rangs = new ConcurrentHashMap<>();
+
+    public ReservationService(ReservationRepository repo,
+                              LivreRepository livreRepo,
+                              EmpruntRepository empruntRepo,
+                              ApplicationEventPublisher events,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.reservations.delai-retrait-heures:48}") long delaiRetraitHeures,
+                              @Value("${app.reservations.file-max:50}") int fileMax,
+                              @Value("${app.reservations.max-par-utilisateur:5}") int parUtilisateurMax) {
+        this.repo = repo;
+        this.livreRepo = livreRepo;
+        this.empruntRepo = empruntRepo;
+        this.events = events;
+        this.ecriture = new TransactionTemplate(transactionManager);
+        this.delaiRetrait = Duration.ofHours(delaiRetraitHeures);
+        this.fileMax = fileMax;
+        this.parUtilisateurMax = parUtilisateurMax;
+    }
+
+    // ==========================
+    // Lecture
+    // ==========================
+    public Reservation getById(Long id) {
+        return repo.findById(id)
+                .orElseThrow(() -> new RuntimeException("Réservation non trouvée"));
+    }
+
+    public List<Reservation> getActivesByUtilisateur(Long utilisateurId) {
+        return repo.findByUtilisateurIdAndStatutInOrderById(utilisateurId, ACTIVES);
+    }
+
+    // Mises de côté puis file, dans l'ordre où les lecteurs seront servis
+    public List<Reservation> getActivesByLivre(Long livreId) {
+        List<Reservation> actives = new ArrayList<>(repo.findByLivreIdAndStatutInOrderById(livreId, ACTIVES));
+        actives.sort(Comparator.comparing(r -> r.getStatut() != StatutReservation.DISPONIBLE));
+        return actives;
+    }
+
+    // Position dans la file (1 = prochain servi), null si la réservation n'y est pas
+    public Integer rang(Long reservationId) {
+        return rangs.get(reservationId);
+    }
+
+    public int tailleFile(Long livreId) {
+        List<Long> file = files.get(livreId);
+        return file != null ? file.size() : 0;
+    }
+
+    // ==========================
+    // Réservation et annulation
+    // ==========================
+    @Transactional
+    public Reservation reserver(Utilisateur u, Livre l) {
+        if (l.isDisponible()) {
+            throw new IllegalStateException("Livre disponible : faites directement une demande d'emprunt");
+        }
+        if (empruntRepo.existsByUtilisateurAndLivreAndRenduFalse(u, l)) {
+            throw new IllegalStateException("Vous avez déjà une demande ou un emprunt en cours pour ce livre");
+        }
+        if (repo.findFirstByUtilisateurIdAndLivreIdAndStatutIn(u.getId(), l.getId(), ACTIVES).isPresent()) {
+            throw new IllegalStateException("Vous avez déjà réservé ce livre");
+        }
+        if (repo.countByUtilisateurIdAndStatutIn(u.getId(), ACTIVES) >= parUtilisateurMax) {
+            throw new IllegalStateException("Vous ne pouvez pas avoir plus de " + parUtilisateurMax + " réservations actives");
+        }
+        if (repo.countByLivreIdAndStatut(l.getId(), StatutReservation.EN_FILE) >= fileMax) {
+            throw new IllegalStateException("La file d'attente de ce livre est complète");
+        }
+
+        Reservation r = new Reservation();
+        r.setLivre(l);
+        r.setUtilisateur(u);
+        r.setStatut(StatutReservation.EN_FILE);
+        r.setDateReservation(LocalDateTime.now());
+        Reservation saved = repo.save(r);
+        apresCommit(l.getId());
+        return saved;
+    }
+
+    /**
+     * @param utilisateurId titulaire attendu ; null pour un administrateur
+     */
+    @Transactional
+    public Reservation annuler(Long reservationId, Long utilisateurId) {
+        Reservation r = getById(reservationId);
+        if (utilisateurId != null && !utilisateurId.equals(r.getUtilisateur().getId())) {
+            throw new IllegalArgumentException("Cette réservation appartient à un autre lecteur");
+        }
+        Long livreId = r.getLivre().getId();
+
+        if (repo.changerStatut(reservationId, StatutReservation.EN_FILE, StatutReservation.ANNULEE) == 1) {
+            apresCommit(livreId);
+        } else if (repo.changerStatut(reservationId, StatutReservation.DISPONIBLE, StatutReservation.ANNULEE) == 1) {
+            transmettre(livreId);
+        } else {
+            throw new IllegalStateException("Cette réservation n'est plus active");
+        }
+        return getById(reservationId);
+    }
+
+    // ==========================
+    // Appels d'EmpruntService (dans sa transaction)
+    // ==========================
+    public boolean aUnExemplaireDeCote(Long utilisateurId, Long livreId) {
+        return repo.findFirstByUtilisateurIdAndLivreIdAndStatutIn(
+                utilisateurId, livreId, EnumSet.of(StatutReservation.DISPONIBLE)).isPresent();
+    }
+
+    // Lecteurs ayant un exemplaire mis de côté, par livre : une requête pour tout un lot de validations
+    public Map<Long, Set<Long>> retenues(Collection<Long> livreIds) {
+        Map<Long, Set<Long>> retenues = new HashMap<>();
+        if (livreIds.isEmpty()) return retenues;
+        for (Object[] ligne : repo.findRetenues(livreIds)) {
+            retenues.computeIfAbsent((Long) ligne[0], k -> new HashSet<>()).add((Long) ligne[1]);
+        }
+        return retenues;
+    }
+
+    /**
+     * Validation d'un emprunt : true si le lecteur avait un exemplaire mis de côté (déjà sorti du
+     * stock), la réservation est alors honorée.
+     */
+    public boolean honorer(Long utilisateurId, Long livreId) {
+        return repo.findFirstByUtilisateurIdAndLivreIdAndStatutIn(
+                        utilisateurId, livreId, EnumSet.of(StatutReservation.DISPONIBLE))
+                .map(r -> repo.changerStatut(r.getId(), StatutReservation.DISPONIBLE, StatutReservation.HONOREE) == 1)
+                .orElse(false);
+    }
+
+    /**
+     * Un exemplaire vient de rentrer en stock : il est mis de côté pour le premier de la file.
+     * Le stock et la file sont modifiés dans la transaction de l'appelant.
+     *
+     * @return true si une réservation a été servie
+     */
+    public boolean servir(Long livreId) {
+        if (repo.findFile(livreId).isEmpty()) return false;
+        if (livreRepo.retenirExemplaire(livreId) == 0) return false;
+        if (mettreDeCoteSuivant(livreId)) return true;
+        livreRepo.libererExemplaire(livreId); // file vidée entre-temps
+        return false;
+    }
+
+    // La mise de côté a pris fin sans emprunt : l'exemplaire (hors stock) passe au suivant
+    private void transmettre(Long livreId) {
+        if (!mettreDeCoteSuivant(livreId)) {
+            livreRepo.libererExemplaire(livreId);
+            events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.LIVRE, livreId));
+        }
+    }
+
+    private boolean mettreDeCoteSuivant(Long livreId) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        for (Long id : repo.findFile(livreId)) {
+            if (repo.mettreDeCote(id, maintenant, maintenant.plus(delaiRetrait)) == 1) {
+                apresCommit(livreId);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==========================
+    // Balayage
+    // ==========================
+    @Scheduled(fixedDelayString = "${app.reservations.balayage-ms:60000}")
+    public void balayer() {
+        int expirees = 0;
+        for (Reservation r : repo.findExpirees(LocalDateTime.now())) {
+            Long livreId = r.getLivre().getId();
+            Boolean expiree = ecriture.execute(s -> {
+                if (repo.changerStatut(r.getId(), StatutReservation.DISPONIBLE, StatutReservation.EXPIREE) == 0) {
+                    return false;
+                }
+                transmettre(livreId);
+                return true;
+            });
+            if (Boolean.TRUE.equals(expiree)) expirees++;
+        }
+
+        // Exemplaires ajoutés au stock (modification du livre) alors que des lecteurs attendent
+        for (Long livreId : repo.findLivresAServir()) {
+            ecriture.executeWithoutResult(s -> {
+                boolean servi = false;
+                while (servir(livreId)) servi = true;
+                if (servi) events.publishEvent(new CatalogueEvent(CatalogueEvent.Type.LIVRE, livreId));
+            });
+        }
+
+        if (expirees > 0) {
+            System.out.println("✅ Réservations : " + expirees + " mises de côté expirées, exemplaires transmis");
+        }
+    }
+
+    // ==========================
+    // Miroir en mémoire
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void recharger() {
+        Map<Long, List<Long>> f = new ConcurrentHashMap<>();
+        Map<Long, Integer> r = new ConcurrentHashMap<>();
+        for (Object[] ligne : repo.findFiles()) {
+            List<Long> file = f.computeIfAbsent((Long) ligne[0], k -> new ArrayList<>());
+            file.add((Long) ligne[1]);
+            r.put((Long) ligne[1], file.size());
+        }
+        files = f;
+        rangs = r;
+    }
+
+    // Un livre supprimé emporte ses réservations
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogue(CatalogueEvent event) {
+        if (event.type() == CatalogueEvent.Type.LIVRE && event.id() != null) synchroniser(event.id());
+    }
+
+    // Les rangs ne changent qu'une fois la transaction validée
+    private void apresCommit(Long livreId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchroniser(livreId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchroniser(livreId);
+            }
+        });
+    }
+
+    // Relit la file d'un livre : les nouveaux rangs sont posés avant de retirer les anciens
+    private synchronized void synchroniser(Long livreId) {
+        List<Long> file = List.copyOf(repo.findFile(livreId));
+        Map<Long, Integer> r = rangs;
+        for (int i = 0; i < file.size(); i++) r.put(file.get(i), i + 1);
+
+        List<Long> ancienne = file.isEmpty() ? files.remove(livreId) : files.put(livreId, file);
+        if (ancienne != null) {
+            Set<Long> restantes = new HashSet<>(file);
+            ancienne.stream().filter(id -> !restantes.contains(id)).forEach(r::remove);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.entity.Emprunt;
+import sn.unchk.bibliotheque.repository.EmpruntRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Détection des emprunts en retard. Chaque passage marque (dateConstatRetard) les emprunts en cours
+ * dont la date limite est dépassée et publie un événement RETARD pour chacun, par lots d'une
+ * transaction chacun.
+ * <p>
+ * Un emprunt ne peut pas passer sous une date déjà franchie (validation et prolongation ne font
+ * qu'avancer la date limite) : après un premier passage complet au démarrage, chaque passage ne
+ * parcourt que les dates limites comprises entre le passage précédent et aujourd'hui.
+ */
+@Service
+public class RetardEmpruntService {
+
+    public static final int TAILLE_PAGE_MAX = 200;
+
+    private final EmpruntRepository repo;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate ecriture;
+    private final int tailleLot;
+
+    // Jour du dernier passage terminé ; null : aucun depuis le démarrage, tout l'historique est relu
+    private volatile LocalDate dernierPassage;
+
+    public RetardEmpruntService(EmpruntRepository repo,
+                                ApplicationEventPublisher events,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.retards.taille-lot:500}") int tailleLot) {
+        this.repo = repo;
+        this.events = events;
+        this.ecriture = new TransactionTemplate(transactionManager);
+        this.tailleLot = tailleLot;
+    }
+
+    // ==========================
+    // Lecture
+    // ==========================
+    // Calculé sur la date du jour : à jour même entre deux passages
+    public Page<Emprunt> getEnRetard(int page, int taille) {
+        if (page < 0) throw new IllegalArgumentException("Numéro de page invalide");
+        int n = Math.max(1, Math.min(taille, TAILLE_PAGE_MAX));
+        return repo.findEnRetard(LocalDate.now(), PageRequest.of(page, n));
+    }
+
+    // ==========================
+    // Détection planifiée
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        detecter();
+    }
+
+    /**
+     * @return nombre d'emprunts nouvellement signalés en retard
+     */
+    @Scheduled(cron = "${app.retards.cron:0 5 0 * * *}")
+    public synchronized int detecter() {
+        long t0 = System.currentTimeMillis();
+        LocalDate aujourdhui = LocalDate.now();
+        LocalDate depuis = dernierPassage != null ? dernierPassage : LocalDate.EPOCH;
+
+        // Les emprunts marqués sortent du filtre : on relit toujours la première page
+        int signales = 0;
+        while (true) {
+            List<Object[]> lot = repo.findNouveauxRetards(depuis, aujourdhui, PageRequest.of(0, tailleLot));
+            if (lot.isEmpty()) break;
+            Integer marques = ecriture.execute(s -> {
+                int n = repo.marquerEnRetard(lot.stream().map(l -> (Long) l[0]).toList(), aujourdhui);
+                // Publiés dans la transaction : reçus par les abonnés après le commit du lot
+                lot.forEach(l -> events.publishEvent(
+                        new EmpruntEvent((Long) l[0], (Long) l[1], (Long) l[2], EmpruntEvent.Type.RETARD)));
+                return n;
+            });
+            signales += marques != null ? marques : 0;
+            if (lot.size() < tailleLot) break;
+        }
+
+        dernierPassage = aujourdhui;
+        System.out.println("✅ Retards : " + signales + " emprunts signalés depuis le " + depuis
+                + " (" + (System.currentTimeMillis() - t0) + " ms)");
+        return signales;
+    }
+}
@@ -0,0 +1,198 @@
+package sn.unchk.bibliotheque.service;
+
+import jakarta.transaction.Transactional;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.entity.Categorie;
+import sn.unchk.bibliotheque.entity.DimensionStatistique;
+import sn.unchk.bibliotheque.entity.StatistiqueEmprunt;
+import sn.unchk.bibliotheque.repository.CategorieRepository;
+import sn.unchk.bibliotheque.repository.StatistiqueEmpruntRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Agrégats des emprunts (par mois, par catégorie, par livre) maintenus de façon incrémentale.
+ * Chaque validation / retour incrémente quelques compteurs dans la transaction appelante ;
+ * le dashboard lit un nombre de lignes borné, sans parcourir les emprunts.
+ */
+@Service
+public class StatistiqueEmpruntService {
+
+    private static final String[] NOMS_MOIS = {"Janvier", "Février", "Mars", "Avril", "Mai", "Juin",
+            "Juillet", "Août", "Septembre", "Octobre", "Novembre", "Décembre"};
+
+    private final StatistiqueEmpruntRepository repo;
+    private final CategorieRepository categorieRepo;
+    private final TransactionTemplate nouvelleTransaction;
+    private final Set<List<Object>> lignesConnues = ConcurrentHashMap.newKeySet();
+
+    public StatistiqueEmpruntService(StatistiqueEmpruntRepository repo,
+                                     CategorieRepository categorieRepo,
+                                     PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.categorieRepo = categorieRepo;
+        this.nouvelleTransaction = new TransactionTemplate(transactionManager);
+        this.nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ==========================
+    // Mise à jour incrémentale
+    // ==========================
+    public record Validation(Long livreId, Long categorieId, LocalDate dateEmprunt) {}
+
+    public void enregistrerValidation(Long livreId, Long categorieId, LocalDate dateEmprunt) {
+        enregistrerValidations(List.of(new Validation(livreId, categorieId, dateEmprunt)));
+    }
+
+    // Incréments cumulés par ligne : un lot de validations ne fait qu'un UPDATE par compteur touché
+    public void enregistrerValidations(Collection<Validation> validations) {
+        Map<List<Object>, Long> cumuls = new LinkedHashMap<>();
+        for (Validation v : validations) {
+            int annee = v.dateEmprunt().getYear();
+            int mois = v.dateEmprunt().getMonthValue();
+            long cat = v.categorieId() != null ? v.categorieId() : 0L;
+
+            cumuls.merge(List.of(DimensionStatistique.MOIS, 0L, annee, mois), 1L, Long::sum);
+            cumuls.merge(List.of(DimensionStatistique.CATEGORIE, cat, annee, mois), 1L, Long::sum);
+            cumuls.merge(List.of(DimensionStatistique.CATEGORIE, cat, annee, 0), 1L, Long::sum);
+            cumuls.merge(List.of(DimensionStatistique.LIVRE, v.livreId(), annee, mois), 1L, Long::sum);
+            cumuls.merge(List.of(DimensionStatistique.LIVRE, v.livreId(), annee, 0), 1L, Long::sum);
+        }
+        cumuls.forEach((c, n) -> incrementer((DimensionStatistique) c.get(0), (Long) c.get(1),
+                (Integer) c.get(2), (Integer) c.get(3), n, 0));
+    }
+
+    public void enregistrerRetour(LocalDate dateRetour) {
+        enregistrerRetours(dateRetour, 1);
+    }
+
+    public void enregistrerRetours(LocalDate dateRetour, long nombre) {
+        if (nombre == 0) return;
+        incrementer(DimensionStatistique.MOIS, 0L, dateRetour.getYear(), dateRetour.getMonthValue(), 0, nombre);
+    }
+
+    private void incrementer(DimensionStatistique dimension, long cle, int annee, int mois, long emprunts, long retours) {
+        assurerLigne(dimension, cle, annee, mois);
+        repo.incrementer(dimension, cle, annee, mois, emprunts, retours);
+    }
+
+    /**
+     * Crée la ligne du compteur si besoin, dans une transaction séparée et avant tout UPDATE :
+     * la transaction appelante ne pose ainsi jamais de verrou sur une ligne absente.
+     * Un doublon concurrent est simplement ignoré.
+     */
+    private void assurerLigne(DimensionStatistique dimension, long cle, int annee, int mois) {
+        List<Object> cleLigne = List.of(dimension, cle, annee, mois);
+        if (lignesConnues.contains(cleLigne)) return;
+        if (!repo.existsByDimensionAndCleAndAnneeAndMois(dimension, cle, annee, mois)) {
+            try {
+                nouvelleTransaction.executeWithoutResult(s ->
+                        repo.saveAndFlush(new StatistiqueEmprunt(dimension, cle, annee, mois)));
+            } catch (DataIntegrityViolationException ignored) {}
+        }
+        lignesConnues.add(cleLigne);
+    }
+
+    // ==========================
+    // Lecture pour le dashboard
+    // ==========================
+    public List<Map<String, Object>> getStatsMensuels(int annee) {
+        Map<Integer, Long> parMois = repo.findByDimensionAndCleAndAnnee(DimensionStatistique.MOIS, 0L, annee)
+                .stream()
+                .collect(Collectors.toMap(StatistiqueEmprunt::getMois, StatistiqueEmprunt::getNbEmprunts));
+
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (int i = 0; i < NOMS_MOIS.length; i++) {
+            Map<String, Object> stat = new HashMap<>();
+            stat.put("mois", NOMS_MOIS[i]);
+            stat.put("nombre", parMois.getOrDefault(i + 1, 0L).intValue());
+            stats.add(stat);
+        }
+        return stats;
+    }
+
+    public List<Map<String, Object>> getRepartitionParGenre(int annee) {
+        List<StatistiqueEmprunt> lignes = repo.findByDimensionAndAnneeAndMois(DimensionStatistique.CATEGORIE, annee, 0)
+                .stream()
+                .filter(s -> s.getNbEmprunts() > 0)
+                .toList();
+
+        Map<Long, String> noms = categorieRepo.findAllById(lignes.stream().map(StatistiqueEmprunt::getCle).toList())
+                .stream()
+                .collect(Collectors.toMap(Categorie::getId, Categorie::getNom));
+        long total = lignes.stream().mapToLong(StatistiqueEmprunt::getNbEmprunts).sum();
+
+        return lignes.stream()
+                .map(s -> {
+                    Map<String, Object> genre = new HashMap<>();
+                    genre.put("genre", noms.getOrDefault(s.getCle(), "Non spécifié"));
+                    genre.put("count", (int) s.getNbEmprunts());
+                    genre.put("pourcentage", total > 0 ?
+                            Math.round((s.getNbEmprunts() * 100.0 / total) * 10.0) / 10.0 : 0.0);
+                    return genre;
+                })
+                .sorted((g1, g2) -> Integer.compare((Integer) g2.get("count"), (Integer) g1.get("count")))
+                .collect(Collectors.toList());
+    }
+
+    // ==========================
+    // Reconstruction depuis l'historique
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialiser() {
+        if (repo.count() == 0) {
+            reconstruire();
+        }
+    }
+
+    /**
+     * Régénère tous les agrégats avec quelques GROUP BY sur la table emprunts.
+     */
+    @Transactional
+    public int reconstruire() {
+        repo.supprimerTout();
+        lignesConnues.clear();
+        Map<List<Object>, StatistiqueEmprunt> lignes = new LinkedHashMap<>();
+
+        for (Object[] r : repo.agregerEmpruntsParMois()) {
+            ligne(lignes, DimensionStatistique.MOIS, 0L, r[0], r[1]).setNbEmprunts((Long) r[2]);
+        }
+        for (Object[] r : repo.agregerRetoursParMois()) {
+            ligne(lignes, DimensionStatistique.MOIS, 0L, r[0], r[1]).setNbRetours((Long) r[2]);
+        }
+        for (Object[] r : repo.agregerEmpruntsParCategorie()) {
+            long cle = r[0] != null ? (Long) r[0] : 0L;
+            ajouter(ligne(lignes, DimensionStatistique.CATEGORIE, cle, r[1], r[2]), (Long) r[3]);
+            ajouter(ligne(lignes, DimensionStatistique.CATEGORIE, cle, r[1], 0), (Long) r[3]);
+        }
+        for (Object[] r : repo.agregerEmpruntsParLivre()) {
+            long cle = (Long) r[0];
+            ajouter(ligne(lignes, DimensionStatistique.LIVRE, cle, r[1], r[2]), (Long) r[3]);
+            ajouter(ligne(lignes, DimensionStatistique.LIVRE, cle, r[1], 0), (Long) r[3]);
+        }
+
+        repo.saveAll(lignes.values());
+        return lignes.size();
+    }
+
+    private static StatistiqueEmprunt ligne(Map<List<Object>, StatistiqueEmprunt> lignes,
+                                            DimensionStatistique dimension, long cle, Object annee, Object mois) {
+        int a = ((Number) annee).intValue();
+        int m = ((Number) mois).intValue();
+        return lignes.computeIfAbsent(List.of(dimension, cle, a, m), k -> new StatistiqueEmprunt(dimension, cle, a, m));
+    }
+
+    private static void ajouter(StatistiqueEmprunt s, long n) {
+        s.setNbEmprunts(s.getNbEmprunts() + n);
+    }
+}
@@ -0,0 +1,459 @@
+package sn.unchk.bibliotheque.service;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.FSTCompiler;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.dto.SuggestionDTO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Autocomplétion du catalogue : titres, noms d'auteurs et préfixes d'ISBN, classés par popularité
+ * (emprunts validés du livre, ou de tous les livres de l'auteur).
+ * <p>
+ * Les clés normalisées (minuscules, sans accents ni ponctuation) sont compilées dans un FST Lucene
+ * dont la sortie est le coût de l'entrée : les K meilleures complétions d'un préfixe se lisent
+ * sans parcourir toutes les clés. Un titre ou un nom se complète aussi à partir de ses mots
+ * suivants (« miser » propose « Les Misérables »).
+ * <p>
+ * Le FST est immuable : une écriture du catalogue marque les entrées remplacées comme retirées
+ * et range les nouvelles dans un petit index trié à part, lu avec le FST. Il est reconstruit au
+ * démarrage, chaque nuit (poids à jour) et dès que cet index dépasse sa taille maximale.
+ */
+@Service
+public class SuggestionService {
+
+    public enum Type { TITRE, ISBN, AUTEUR }
+
+    public record Statistiques(int entrees, int cles, long octetsFst, long octetsEntrees,
+                               int clesAjoutees, int entreesRetirees, LocalDateTime construitLe, long dureeMs) {}
+
+    private record Entree(Type type, long id, String libelle, String detail, int poids) {}
+
+    private static final String SQL_LIVRES =
+            "SELECT l.id, l.titre, l.isbn, l.nb_emprunts, a.nom_complet, l.auteur_id "
+                    + "FROM livres l LEFT JOIN auteurs a ON a.id = l.auteur_id";
+    private static final String SQL_AUTEURS =
+            "SELECT a.id, a.nom_complet, COALESCE(SUM(l.nb_emprunts), 0), COUNT(l.id) "
+                    + "FROM auteurs a LEFT JOIN livres l ON l.auteur_id = a.id";
+    private static final String SQL_AUTEURS_GROUPE = " GROUP BY a.id, a.nom_complet";
+
+    public static final int LIMITE_MAX = 20;
+    private static final int LONGUEUR_CLE_MAX = 48; // au-delà, le préfixe est déjà assez sélectif
+    private static final int DEBUTS_MAX = 6;        // mots d'un titre ou d'un nom par lesquels commencer
+    private static final int TAILLE_LOT = 1000;
+    private static final int OCTETS_ENTREE = 64;    // estimation : objet + références + tableaux
+    private static final int OCTETS_AJOUT = 96;     // estimation : nœud du TreeMap + clé
+
+    private static final PositiveIntOutputs SORTIES = PositiveIntOutputs.getSingleton();
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern REQUETE_ISBN = Pattern.compile("[0-9][0-9xX\\- ]*");
+
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate lecture;
+    private final int ajoutsMax;
+
+    // Lectures concurrentes ; les écritures (sérialisées par le moniteur du service) prennent le verrou exclusif
+    private final ReadWriteLock verrou = new ReentrantReadWriteLock();
+    private Base base;
+    // Entrées écrites depuis la construction du FST : clé normalisée + \0 + numéro d'ajout
+    private final TreeMap<String, Entree> ajouts = new TreeMap<>();
+    private final Map<Long, List<String>> clesAjoutees = new HashMap<>();
+    private long numeroAjout;
+
+    public SuggestionService(JdbcTemplate jdbc,
+                             NamedParameterJdbcTemplate namedJdbc,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.suggestions.ajouts-max:5000}") int ajoutsMax) {
+        this.jdbc = jdbc;
+        this.namedJdbc = namedJdbc;
+        // Écouteurs appelés hors transaction pendant une requête : lecture sur la connexion de la requête,
+        // pas une seconde prise au pool en tenant le moniteur
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+        this.ajoutsMax = ajoutsMax;
+    }
+
+    // ==========================
+    // Lecture
+    // ==========================
+    public List<SuggestionDTO> suggerer(String texte, int limite) {
+        String prefixe = cleRequete(texte);
+        if (prefixe.isEmpty()) return List.of();
+        int n = Math.max(1, Math.min(limite, LIMITE_MAX));
+
+        verrou.readLock().lock();
+        try {
+            if (base == null) return List.of();
+            List<Entree> trouvees = new ArrayList<>(base.meilleures(prefixe.getBytes(StandardCharsets.UTF_8), n));
+
+            // Entrées récentes : plusieurs clés peuvent désigner la même (mots du titre)
+            Set<Entree> recentes = Collections.newSetFromMap(new IdentityHashMap<>());
+            recentes.addAll(ajouts.subMap(prefixe, true, prefixe + Character.MAX_VALUE, false).values());
+            trouvees.addAll(recentes);
+
+            trouvees.sort(Comparator.comparingInt(Entree::poids).reversed());
+            return trouvees.stream().limit(n)
+                    .map(e -> new SuggestionDTO(e.type().name(), e.id(), e.libelle(), e.detail()))
+                    .toList();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public Statistiques statistiques() {
+        verrou.readLock().lock();
+        try {
+            if (base == null) return new Statistiques(0, 0, 0, 0, 0, 0, null, 0);
+            return new Statistiques(base.entrees.length, base.cles,
+                    base.fst != null ? base.fst.ramBytesUsed() : 0,
+                    base.octetsEntrees, ajouts.size(), base.retirees.cardinality(),
+                    base.construitLe, base.dureeMs);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // ==========================
+    // Mise à jour incrémentale
+    // ==========================
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogue(CatalogueEvent event) {
+        List<Long> livres = new ArrayList<>(event.livres());
+        List<Long> auteurs = new ArrayList<>();
+        if (event.id() != null) {
+            if (event.type() == CatalogueEvent.Type.LIVRE) livres.add(event.id());
+            if (event.type() == CatalogueEvent.Type.AUTEUR) auteurs.add(event.id());
+        }
+        rafraichir(livres, auteurs);
+    }
+
+    /**
+     * Relit les livres et auteurs donnés et remplace leurs entrées ; un auteur dont un livre a
+     * changé est relu aussi (nombre de livres). Les absents de la table sont retirés.
+     */
+    public synchronized void rafraichir(Collection<Long> livres, Collection<Long> auteurs) {
+        if (base == null || (livres.isEmpty() && auteurs.isEmpty())) return;
+        Map<Long, List<Entree>> parSource = new LinkedHashMap<>();
+        Set<Long> auteursTouches = new TreeSet<>(auteurs);
+
+        lecture.executeWithoutResult(s -> {
+            List<Long> idsLivres = List.copyOf(new TreeSet<>(livres));
+            idsLivres.forEach(id -> parSource.put(sourceLivre(id), new ArrayList<>()));
+            for (int i = 0; i < idsLivres.size(); i += TAILLE_LOT) {
+                namedJdbc.query(SQL_LIVRES + " WHERE l.id IN (:ids)",
+                        Map.of("ids", idsLivres.subList(i, Math.min(i + TAILLE_LOT, idsLivres.size()))),
+                        rs -> {
+                            parSource.get(sourceLivre(rs.getLong(1))).addAll(entreesLivre(rs));
+                            Long auteurId = rs.getObject(6, Long.class);
+                            if (auteurId != null) auteursTouches.add(auteurId);
+                        });
+            }
+
+            List<Long> idsAuteurs = List.copyOf(auteursTouches);
+            idsAuteurs.forEach(id -> parSource.put(sourceAuteur(id), new ArrayList<>()));
+            for (int i = 0; i < idsAuteurs.size(); i += TAILLE_LOT) {
+                namedJdbc.query(SQL_AUTEURS + " WHERE a.id IN (:ids)" + SQL_AUTEURS_GROUPE,
+                        Map.of("ids", idsAuteurs.subList(i, Math.min(i + TAILLE_LOT, idsAuteurs.size()))),
+                        rs -> {
+                            Entree e = entreeAuteur(rs);
+                            if (e != null) parSource.get(sourceAuteur(e.id())).add(e);
+                        });
+            }
+        });
+
+        verrou.writeLock().lock();
+        try {
+            parSource.forEach(this::remplacer);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Sous le verrou d'écriture
+    private void remplacer(long source, List<Entree> entrees) {
+        base.retirer(source);
+        List<String> anciennes = clesAjoutees.remove(source);
+        if (anciennes != null) anciennes.forEach(ajouts::remove);
+        if (entrees.isEmpty()) return;
+
+        List<String> cles = new ArrayList<>();
+        for (Entree e : entrees) {
+            for (String cle : cles(e)) {
+                String c = cle + '\0' + numeroAjout++;
+                ajouts.put(c, e);
+                cles.add(c);
+            }
+        }
+        clesAjoutees.put(source, cles);
+    }
+
+    // ==========================
+    // Reconstruction
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        reconstruire();
+    }
+
+    // L'index des ajouts est borné : au-delà, on recompile le FST
+    @Scheduled(fixedDelayString = "${app.suggestions.verification-ms:10000}")
+    public void reconstruireSiNecessaire() {
+        boolean plein;
+        verrou.readLock().lock();
+        try {
+            plein = ajouts.size() > ajoutsMax;
+        } finally {
+            verrou.readLock().unlock();
+        }
+        if (plein) reconstruire();
+    }
+
+    // Construit à part puis publié d'un bloc : les lectures continuent sur l'ancien FST
+    @Scheduled(cron = "${app.suggestions.reconstruction-cron:0 55 3 * * *}")
+    public synchronized void reconstruire() {
+        long t0 = System.currentTimeMillis();
+        List<Entree> entrees = new ArrayList<>();
+        lecture.executeWithoutResult(s -> {
+            jdbc.query(SQL_LIVRES, rs -> {
+                entrees.addAll(entreesLivre(rs));
+            });
+            jdbc.query(SQL_AUTEURS + SQL_AUTEURS_GROUPE, rs -> {
+                Entree e = entreeAuteur(rs);
+                if (e != null) entrees.add(e);
+            });
+        });
+        Base nouvelle;
+        try {
+            nouvelle = new Base(entrees, t0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        verrou.writeLock().lock();
+        try {
+            base = nouvelle;
+            ajouts.clear();
+            clesAjoutees.clear();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        System.out.println("✅ Suggestions : " + nouvelle.entrees.length + " entrées, " + nouvelle.cles + " clés, "
+                + (nouvelle.fst != null ? nouvelle.fst.ramBytesUsed() / 1024 : 0) + " Ko de FST + "
+                + nouvelle.octetsEntrees / 1024 + " Ko d'entrées (" + nouvelle.dureeMs + " ms)");
+    }
+
+    // ==========================
+    // Entrées et clés
+    // ==========================
+    private static List<Entree> entreesLivre(ResultSet rs) throws SQLException {
+        long id = rs.getLong(1);
+        String titre = rs.getString(2);
+        String isbn = rs.getString(3);
+        int poids = rs.getInt(4);
+        List<Entree> entrees = new ArrayList<>(2);
+        if (titre != null && !titre.isBlank()) {
+            entrees.add(new Entree(Type.TITRE, id, titre, rs.getString(5), poids));
+        }
+        if (isbn != null && !chiffresIsbn(isbn).isEmpty()) {
+            entrees.add(new Entree(Type.ISBN, id, isbn, titre, poids));
+        }
+        return entrees;
+    }
+
+    private static Entree entreeAuteur(ResultSet rs) throws SQLException {
+        String nom = rs.getString(2);
+        if (nom == null || nom.isBlank()) return null;
+        long livres = rs.getLong(4);
+        int poids = (int) Math.min(rs.getLong(3), Integer.MAX_VALUE);
+        return new Entree(Type.AUTEUR, rs.getLong(1), nom, livres + (livres > 1 ? " livres" : " livre"), poids);
+    }
+
+    // Titre et nom : le texte entier puis chaque mot suivant d'au moins deux lettres
+    private static Collection<String> cles(Entree e) {
+        if (e.type() == Type.ISBN) return List.of(tronquer(chiffresIsbn(e.libelle())));
+        String texte = normaliser(e.libelle());
+        Set<String> debuts = new LinkedHashSet<>();
+        if (texte.isEmpty()) return debuts;
+        debuts.add(tronquer(texte));
+        int i = 0;
+        while (debuts.size() < DEBUTS_MAX && (i = texte.indexOf(' ', i) + 1) > 0) {
+            if (i + 1 < texte.length() && texte.charAt(i + 1) != ' ') debuts.add(tronquer(texte.substring(i)));
+        }
+        return debuts;
+    }
+
+    // Une saisie faite de chiffres et de tirets est un début d'ISBN
+    static String cleRequete(String texte) {
+        if (texte == null) return "";
+        String t = texte.trim();
+        return tronquer(REQUETE_ISBN.matcher(t).matches() ? chiffresIsbn(t) : normaliser(t));
+    }
+
+    static String normaliser(String texte) {
+        String s = ACCENTS.matcher(Normalizer.normalize(texte, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                .replace("œ", "oe")
+                .replace("æ", "ae");
+        return SEPARATEURS.matcher(s).replaceAll(" ").trim();
+    }
+
+    private static String chiffresIsbn(String isbn) {
+        return isbn.replaceAll("[^0-9xX]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String tronquer(String cle) {
+        return cle.length() <= LONGUEUR_CLE_MAX ? cle : cle.substring(0, LONGUEUR_CLE_MAX);
+    }
+
+    // Livres et auteurs dans un même espace d'ids, pour un seul tableau trié
+    private static long sourceLivre(long id) {
+        return id * 2;
+    }
+
+    private static long sourceAuteur(long id) {
+        return id * 2 + 1;
+    }
+
+    private static long source(Entree e) {
+        return e.type() == Type.AUTEUR ? sourceAuteur(e.id()) : sourceLivre(e.id());
+    }
+
+    /**
+     * FST compilé et entrées triées par source. Chaque clé est suivie de \0 puis du numéro de son
+     * entrée sur 4 octets ; la sortie est le coût (poids maximal - poids). Seules les entrées
+     * retirées changent après construction, sous le verrou d'écriture.
+     */
+    private static final class Base {
+        final Entree[] entrees;
+        final long[] sources;
+        final BitSet retirees = new BitSet();
+        final FST<Long> fst; // null si le catalogue est vide
+        final int cles;
+        final long octetsEntrees;
+        final LocalDateTime construitLe = LocalDateTime.now();
+        final long dureeMs;
+
+        Base(List<Entree> liste, long debut) throws IOException {
+            liste.sort(Comparator.comparingLong(SuggestionService::source));
+            entrees = liste.toArray(new Entree[0]);
+            sources = new long[entrees.length];
+
+            List<byte[]> cles = new ArrayList<>();
+            long octets = 0;
+            for (int i = 0; i < entrees.length; i++) {
+                Entree e = entrees[i];
+                sources[i] = source(e);
+                octets += OCTETS_ENTREE + longueur(e.libelle()) + longueur(e.detail());
+                for (String cle : SuggestionService.cles(e)) {
+                    byte[] texte = cle.getBytes(StandardCharsets.UTF_8);
+                    byte[] k = Arrays.copyOf(texte, texte.length + 5);
+                    k[texte.length + 1] = (byte) (i >>> 24);
+                    k[texte.length + 2] = (byte) (i >>> 16);
+                    k[texte.length + 3] = (byte) (i >>> 8);
+                    k[texte.length + 4] = (byte) i;
+                    cles.add(k);
+                }
+            }
+            cles.sort(Arrays::compareUnsigned);
+
+            FSTCompiler<Long> compilateur = new FSTCompiler.Builder<>(FST.INPUT_TYPE.BYTE1, SORTIES).build();
+            IntsRefBuilder tampon = new IntsRefBuilder();
+            for (byte[] k : cles) {
+                compilateur.add(Util.toIntsRef(new BytesRef(k), tampon), cout(entrees[numero(k)]));
+            }
+            FST.FSTMetadata<Long> meta = cles.isEmpty() ? null : compilateur.compile();
+            this.fst = meta != null ? FST.fromFSTReader(meta, compilateur.getFSTReader()) : null;
+            this.cles = cles.size();
+            this.octetsEntrees = octets + 8L * sources.length;
+            this.dureeMs = System.currentTimeMillis() - debut;
+        }
+
+        // Les n meilleures entrées non retirées dont une clé commence par le préfixe
+        List<Entree> meilleures(byte[] prefixe, int n) {
+            if (fst == null) return List.of();
+            try {
+                FST.BytesReader lecteur = fst.getBytesReader();
+                FST.Arc<Long> arc = fst.getFirstArc(new FST.Arc<>());
+                Long sortie = SORTIES.getNoOutput();
+                IntsRefBuilder chemin = new IntsRefBuilder();
+                for (byte b : prefixe) {
+                    if (fst.findTargetArc(b & 0xFF, arc, arc, lecteur) == null) return List.of();
+                    sortie = SORTIES.add(sortie, arc.output());
+                    chemin.append(b & 0xFF);
+                }
+
+                Set<Integer> vues = new HashSet<>();
+                Util.TopNSearcher<Long> recherche = new Util.TopNSearcher<>(
+                        fst, n, Math.max(n * 10, 100), Comparator.naturalOrder()) {
+                    @Override
+                    protected boolean acceptResult(IntsRef entree, Long cout) {
+                        int i = numero(entree);
+                        return !retirees.get(i) && vues.add(i);
+                    }
+                };
+                recherche.addStartPaths(arc, sortie, false, chemin);
+
+                List<Entree> resultat = new ArrayList<>(n);
+                for (Util.Result<Long> r : recherche.search()) {
+                    resultat.add(entrees[numero(r.input)]);
+                }
+                return resultat;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void retirer(long source) {
+            int i = Arrays.binarySearch(sources, source);
+            if (i < 0) return;
+            while (i > 0 && sources[i - 1] == source) i--;
+            for (; i < sources.length && sources[i] == source; i++) retirees.set(i);
+        }
+
+        private static long cout(Entree e) {
+            return Integer.MAX_VALUE - (long) Math.max(e.poids(), 0);
+        }
+
+        private static int numero(byte[] k) {
+            int n = k.length;
+            return (k[n - 4] & 0xFF) << 24 | (k[n - 3] & 0xFF) << 16 | (k[n - 2] & 0xFF) << 8 | (k[n - 1] & 0xFF);
+        }
+
+        private static int numero(IntsRef entree) {
+            int fin = entree.offset + entree.length;
+            int[] t = entree.ints;
+            return t[fin - 4] << 24 | t[fin - 3] << 16 | t[fin - 2] << 8 | t[fin - 1];
+        }
+
+        private static int longueur(String s) {
+            return s == null ? 0 : 40 + s.length();
+        }
+    }
+}
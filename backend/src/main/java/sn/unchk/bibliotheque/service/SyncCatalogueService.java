@@ -0,0 +1,228 @@
+package sn.unchk.bibliotheque.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.dto.SyncDTO;
+import sn.unchk.bibliotheque.entity.Auteur;
+import sn.unchk.bibliotheque.entity.Categorie;
+import sn.unchk.bibliotheque.entity.ChangementCatalogue;
+import sn.unchk.bibliotheque.entity.ChangementCatalogue.Entite;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.mapper.AuteurMapper;
+import sn.unchk.bibliotheque.mapper.CategorieMapper;
+import sn.unchk.bibliotheque.mapper.LivreMapper;
+import sn.unchk.bibliotheque.repository.AuteurRepository;
+import sn.unchk.bibliotheque.repository.CategorieRepository;
+import sn.unchk.bibliotheque.repository.ChangementCatalogueRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Synchronisation incrémentale du catalogue : « ce qui a changé depuis la version N ».
+ * <p>
+ * Chaque écriture validée sur un livre, un auteur ou une catégorie ajoute une ligne au journal
+ * {@code changements_catalogue} ; l'id de la ligne est la version. Le journal est écrit juste avant
+ * le commit, dans la transaction de la modification : les deux sont validés ou annulés ensemble.
+ * Un seul écrivain à la fois, du premier insert jusqu'à la fin de sa transaction : les versions
+ * deviennent visibles dans l'ordre croissant, et un client qui a lu jusqu'à N ne peut pas manquer
+ * une version inférieure publiée plus tard.
+ * <p>
+ * Une réponse renvoie l'état courant des entités touchées (une seule fois chacune) et, pour celles
+ * qui n'existent plus, leur id (suppressions). Les entrées plus anciennes que la rétention sont
+ * purgées ; un client plus en retard doit recharger le catalogue complet.
+ */
+@Service
+public class SyncCatalogueService {
+
+    public static final int LIMITE_MAX = 1000;
+
+    private static final String SQL_INSERT =
+            "INSERT INTO changements_catalogue (entite, entite_id, modifie_le) VALUES (?, ?, ?)";
+
+    private final ChangementCatalogueRepository repo;
+    private final LivreRepository livreRepo;
+    private final AuteurRepository auteurRepo;
+    private final CategorieRepository categorieRepo;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate lecture;
+    private final TransactionTemplate ecriture;
+    // Tenu de l'écriture du journal jusqu'à la fin de la transaction qui l'a écrit
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final int retentionJours;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public SyncCatalogueService(ChangementCatalogueRepository repo,
+                                LivreRepository livreRepo,
+                                AuteurRepository auteurRepo,
+                                CategorieRepository categorieRepo,
+                                JdbcTemplate jdbc,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.sync.retention-jours:30}") int retentionJours) {
+        this.repo = repo;
+        this.livreRepo = livreRepo;
+        this.auteurRepo = auteurRepo;
+        this.categorieRepo = categorieRepo;
+        this.jdbc = jdbc;
+        this.lecture = new TransactionTemplate(transactionManager);
+        this.lecture.setReadOnly(true);
+        // Événements publiés hors transaction (import par lots, purge) : transaction propre
+        this.ecriture = new TransactionTemplate(transactionManager);
+        this.retentionJours = retentionJours;
+    }
+
+    // ==========================
+    // Lecture
+    // ==========================
+    /**
+     * @param version dernière version reçue par le client ; null s'il n'a encore rien
+     */
+    public SyncDTO depuis(Long version, int limite) {
+        int n = Math.max(1, Math.min(limite, LIMITE_MAX));
+        return lecture.execute(s -> {
+            Object[] bornes = repo.findBornes().get(0);
+            long premiere = bornes[0] != null ? ((Number) bornes[0]).longValue() : 0;
+            long derniere = bornes[1] != null ? ((Number) bornes[1]).longValue() : 0;
+
+            // Pas de copie locale, entrées déjà purgées, ou version d'une autre base : tout recharger
+            if (version == null || version < premiere - 1 || version > derniere) {
+                return new SyncDTO(derniere, true, false, List.of(), List.of(), List.of(),
+                        new SyncDTO.Supprimes(List.of(), List.of(), List.of()));
+            }
+
+            List<ChangementCatalogue> page = repo.findByIdGreaterThanOrderById(version, PageRequest.of(0, n + 1));
+            boolean suite = page.size() > n;
+            if (suite) page = page.subList(0, n);
+
+            // Plusieurs changements d'une même entité : un seul envoi, avec son état courant
+            Map<Entite, Set<Long>> touches = new EnumMap<>(Entite.class);
+            for (Entite e : Entite.values()) touches.put(e, new LinkedHashSet<>());
+            page.forEach(c -> touches.get(c.getEntite()).add(c.getEntiteId()));
+
+            List<Livre> livres = livreRepo.findAllById(touches.get(Entite.LIVRE));
+            List<Auteur> auteurs = auteurRepo.findAllById(touches.get(Entite.AUTEUR));
+            List<Categorie> categories = categorieRepo.findAllById(touches.get(Entite.CATEGORIE));
+
+            return new SyncDTO(
+                    page.isEmpty() ? version : page.get(page.size() - 1).getId(),
+                    false,
+                    suite,
+                    livres.stream().map(LivreMapper::toDTO).toList(),
+                    auteurs.stream().map(AuteurMapper::toDTO).toList(),
+                    categories.stream().map(CategorieMapper::toDTO).toList(),
+                    new SyncDTO.Supprimes(
+                            absents(touches.get(Entite.LIVRE), livres, Livre::getId),
+                            absents(touches.get(Entite.AUTEUR), auteurs, Auteur::getId),
+                            absents(touches.get(Entite.CATEGORIE), categories, Categorie::getId)));
+        });
+    }
+
+    private static <T> List<Long> absents(Set<Long> touches, List<T> trouves, Function<T, Long> id) {
+        Set<Long> restants = new LinkedHashSet<>(touches);
+        trouves.forEach(t -> restants.remove(id.apply(t)));
+        return List.copyOf(restants);
+    }
+
+    // ==========================
+    // Journal
+    // ==========================
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCatalogue(CatalogueEvent event) {
+        List<Object[]> lignes = new ArrayList<>();
+        if (event.id() != null) {
+            switch (event.type()) {
+                case LIVRE -> lignes.add(ligne(Entite.LIVRE, event.id()));
+                case AUTEUR -> lignes.add(ligne(Entite.AUTEUR, event.id()));
+                case CATEGORIE -> lignes.add(ligne(Entite.CATEGORIE, event.id()));
+                default -> { }
+            }
+        }
+        event.livres().forEach(id -> lignes.add(ligne(Entite.LIVRE, id)));
+        journaliser(lignes);
+    }
+
+    // Stock et compteurs d'emprunts du livre
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onEmprunt(EmpruntEvent event) {
+        if (event.livreId() == null) return;
+        if (event.type() == EmpruntEvent.Type.VALIDATION || event.type() == EmpruntEvent.Type.RETOUR) {
+            journaliser(List.<Object[]>of(ligne(Entite.LIVRE, event.livreId())));
+        }
+    }
+
+    // Verrou tenu jusqu'au commit : les versions sont visibles dans l'ordre où elles sont attribuées
+    private void journaliser(List<Object[]> lignes) {
+        if (lignes.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            ecriture.executeWithoutResult(s -> journaliser(lignes));
+            return;
+        }
+        // ✅ Même transaction que la modification
+        verrouillerJusquAuCommit();
+        jdbc.batchUpdate(SQL_INSERT, lignes);
+    }
+
+    /**
+     * Pris dans une transaction qui a déjà sa connexion et ses verrous de ligne (flush d'abord) :
+     * en le tenant, on ne peut attendre ni la base ni le pool. Libéré dès le commit, avant les
+     * écouteurs AFTER_COMMIT (qui peuvent ouvrir d'autres transactions), ou au rollback.
+     */
+    private void verrouillerJusquAuCommit() {
+        if (verrou.isHeldByCurrentThread()) return;
+        entityManager.flush();
+        verrou.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+                verrou.unlock();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) verrou.unlock();
+            }
+        });
+    }
+
+    private static Object[] ligne(Entite entite, Long id) {
+        return new Object[]{entite.name(), id, Timestamp.valueOf(LocalDateTime.now())};
+    }
+
+    // ==========================
+    // Purge
+    // ==========================
+    @Scheduled(cron = "${app.sync.purge-cron:0 15 4 * * *}")
+    public void purger() {
+        Integer supprimees = ecriture.execute(s -> {
+            verrouillerJusquAuCommit();
+            Object[] bornes = repo.findBornes().get(0);
+            if (bornes[1] == null) return 0;
+            Long derniere = ((Number) bornes[1]).longValue(); // conservée : elle porte la version courante
+            return repo.purger(LocalDateTime.now().minusDays(retentionJours), derniere);
+        });
+        System.out.println("✅ Journal de synchronisation : " + supprimees + " entrées purgées");
+    }
+}
@@ -0,0 +1,223 @@
+package sn.unchk.bibliotheque.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import sn.unchk.bibliotheque.entity.Livre;
+import sn.unchk.bibliotheque.entity.TendanceLivre;
+import sn.unchk.bibliotheque.repository.AvisRepository;
+import sn.unchk.bibliotheque.repository.EmpruntRepository;
+import sn.unchk.bibliotheque.repository.LivreRepository;
+import sn.unchk.bibliotheque.repository.TendanceLivreRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Livres « tendance » : chaque demande, validation ou avis ajoute un poids au score du livre,
+ * et ce score décroît exponentiellement (demi-vie configurable).
+ * <p>
+ * Les scores sont gardés relativement à un instant d'origine commun : un événement coûte une
+ * multiplication et une addition, sans toucher aux autres livres, et l'ordre du classement ne
+ * dépend pas du temps écoulé. Ils sont écrits en base périodiquement (livres modifiés seulement)
+ * et rechargés au démarrage.
+ */
+@Service
+public class TendanceService {
+
+    public enum Signal { DEMANDE, VALIDATION, AVIS }
+
+    public record Tendance(Long livreId, double score) {}
+
+    // En dessous, le livre sort des tendances (et de la table)
+    private static final double SCORE_MINIMAL = 0.01;
+    // Historique relu à la reconstruction : au-delà, la contribution est inférieure à 0,1 %
+    private static final int DEMI_VIES_RELUES = 10;
+
+    private final TendanceLivreRepository repo;
+    private final EmpruntRepository empruntRepo;
+    private final AvisRepository avisRepo;
+    private final LivreRepository livreRepo;
+    private final TransactionTemplate transaction;
+    private final double lambda; // par milliseconde
+    private final long demiVieMs;
+    private final Map<Signal, Double> poids = new EnumMap<>(Signal.class);
+    private final ClassementBorne classement;
+
+    // Score réel = valeur × e^(-λ (maintenant - origine))
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final Set<Long> modifies = new HashSet<>();
+    private volatile long origine = System.currentTimeMillis();
+
+    public TendanceService(TendanceLivreRepository repo,
+                           EmpruntRepository empruntRepo,
+                           AvisRepository avisRepo,
+                           LivreRepository livreRepo,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.tendances.demi-vie-heures:72}") double demiVieHeures,
+                           @Value("${app.tendances.poids-demande:1.0}") double poidsDemande,
+                           @Value("${app.tendances.poids-validation:2.0}") double poidsValidation,
+                           @Value("${app.tendances.poids-avis:1.5}") double poidsAvis,
+                           @Value("${app.classement.taille:50}") int taille) {
+        this.repo = repo;
+        this.empruntRepo = empruntRepo;
+        this.avisRepo = avisRepo;
+        this.livreRepo = livreRepo;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.demiVieMs = (long) (demiVieHeures * 3_600_000);
+        this.lambda = Math.log(2) / demiVieMs;
+        this.poids.put(Signal.DEMANDE, poidsDemande);
+        this.poids.put(Signal.VALIDATION, poidsValidation);
+        this.poids.put(Signal.AVIS, poidsAvis);
+        this.classement = new ClassementBorne(taille);
+    }
+
+    // ==========================
+    // Lecture (mémoire uniquement pour le classement)
+    // ==========================
+    public List<Tendance> top(int limite) {
+        double facteur = Math.exp(-lambda * (System.currentTimeMillis() - origine));
+        return classement.trie().stream()
+                .limit(Math.max(0, limite))
+                .map(e -> new Tendance(e.id(), e.score() * facteur))
+                .toList();
+    }
+
+    public List<Livre> livres(int limite) {
+        List<Tendance> top = top(limite);
+        Map<Long, Livre> parId = livreRepo.findAllById(top.stream().map(Tendance::livreId).toList()).stream()
+                .collect(Collectors.toMap(Livre::getId, Function.identity()));
+        return top.stream().map(t -> parId.get(t.livreId())).filter(Objects::nonNull).toList();
+    }
+
+    // ==========================
+    // Mise à jour incrémentale : O(1) par événement
+    // ==========================
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmprunt(EmpruntEvent event) {
+        if (event.livreId() == null) return;
+        switch (event.type()) {
+            case DEMANDE -> enregistrer(event.livreId(), Signal.DEMANDE, System.currentTimeMillis());
+            case VALIDATION -> enregistrer(event.livreId(), Signal.VALIDATION, System.currentTimeMillis());
+            default -> { }
+        }
+    }
+
+    public synchronized void enregistrer(Long livreId, Signal signal, long instant) {
+        double valeur = scores.merge(livreId, poids.get(signal) * Math.exp(lambda * (instant - origine)), Double::sum);
+        modifies.add(livreId);
+        classement.proposer(livreId, valeur);
+    }
+
+    // ==========================
+    // Persistance périodique
+    // ==========================
+    /**
+     * Ramène les scores à l'instant présent (la nouvelle origine), oublie les livres devenus
+     * négligeables, puis écrit les livres modifiés depuis la dernière écriture.
+     */
+    @Scheduled(fixedDelayString = "${app.tendances.persistance-ms:300000}",
+               initialDelayString = "${app.tendances.persistance-ms:300000}")
+    public void persister() {
+        List<TendanceLivre> aEcrire = new ArrayList<>();
+        List<Long> aSupprimer = new ArrayList<>();
+        synchronized (this) {
+            long maintenant = System.currentTimeMillis();
+            double facteur = Math.exp(-lambda * (maintenant - origine));
+            LocalDateTime calculeLe = LocalDateTime.ofInstant(Instant.ofEpochMilli(maintenant), ZoneId.systemDefault());
+
+            Iterator<Map.Entry<Long, Double>> it = scores.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Double> e = it.next();
+                double score = e.getValue() * facteur;
+                if (score < SCORE_MINIMAL) {
+                    it.remove();
+                    aSupprimer.add(e.getKey());
+                } else {
+                    e.setValue(score);
+                    if (modifies.contains(e.getKey())) {
+                        aEcrire.add(new TendanceLivre(e.getKey(), score, calculeLe));
+                    }
+                }
+            }
+            modifies.clear();
+            origine = maintenant;
+            reconstruireClassement();
+        }
+        if (aEcrire.isEmpty() && aSupprimer.isEmpty()) return;
+        transaction.executeWithoutResult(s -> {
+            repo.saveAll(aEcrire);
+            repo.deleteAllByIdInBatch(aSupprimer);
+        });
+    }
+
+    @PreDestroy
+    public void arreter() {
+        persister();
+    }
+
+    // ==========================
+    // Chargement / reconstruction
+    // ==========================
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        if (repo.count() == 0) {
+            reconstruire();
+            return;
+        }
+        synchronized (this) {
+            scores.clear();
+            origine = System.currentTimeMillis();
+            for (TendanceLivre t : repo.findAll()) {
+                long calculeLe = t.getCalculeLe().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                scores.put(t.getLivreId(), t.getScore() * Math.exp(lambda * (calculeLe - origine)));
+            }
+            reconstruireClassement();
+        }
+    }
+
+    /**
+     * Recalcule les scores depuis l'historique (demandes, validations, avis) des dernières
+     * demi-vies, puis remplace la table. Utilisé au premier démarrage ou après un import massif.
+     */
+    public void reconstruire() {
+        LocalDate depuis = LocalDate.now().minusDays(DEMI_VIES_RELUES * demiVieMs / 86_400_000 + 1);
+        synchronized (this) {
+            scores.clear();
+            origine = System.currentTimeMillis();
+            ajouterHistorique(empruntRepo.compterDemandesParLivreEtJour(depuis), Signal.DEMANDE);
+            ajouterHistorique(empruntRepo.compterEmpruntsParLivreEtJour(depuis), Signal.VALIDATION);
+            ajouterHistorique(avisRepo.compterAvisParLivreEtJour(depuis), Signal.AVIS);
+            modifies.addAll(scores.keySet());
+            reconstruireClassement();
+        }
+        transaction.executeWithoutResult(s -> repo.deleteAllInBatch());
+        persister();
+    }
+
+    // Lignes (livreId, jour, nombre) : chaque jour est daté à midi
+    private void ajouterHistorique(List<Object[]> lignes, Signal signal) {
+        for (Object[] r : lignes) {
+            long instant = ((LocalDate) r[1]).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            double valeur = ((Number) r[2]).longValue() * poids.get(signal) * Math.exp(lambda * (instant - origine));
+            scores.merge((Long) r[0], valeur, Double::sum);
+        }
+    }
+
+    private void reconstruireClassement() {
+        classement.reconstruire(scores.entrySet().stream()
+                .map(e -> new ClassementBorne.Entree(e.getKey(), e.getValue()))
+                .toList());
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import sn.unchk.bibliotheque.entity.Utilisateur;
 import sn.unchk.bibliotheque.repository.UtilisateurRepository;
+import sn.unchk.bibliotheque.security.PrincipalCache;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,10 +13,12 @@ import java.util.Optional;
 public class UtilisateurService {
     private final UtilisateurRepository repo;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
-    public UtilisateurService(UtilisateurRepository repo, PasswordEncoder passwordEncoder) {
+    public UtilisateurService(UtilisateurRepository repo, PasswordEncoder passwordEncoder, PrincipalCache principalCache) {
         this.repo = repo;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
 
     public List<Utilisateur> getAll() {
@@ -48,6 +51,7 @@ public class UtilisateurService {
     public Utilisateur update(Long id, Utilisateur updated) {
         Utilisateur existing = repo.findById(id)
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
+        String ancienEmail = existing.getEmail();
 
         existing.setNomComplet(updated.getNomComplet());
         existing.setEmail(updated.getEmail());
@@ -63,7 +67,13 @@ public class UtilisateurService {
         }
 
         existing.setRole(updated.getRole());
-        return repo.save(existing);
+        existing.setActif(updated.isActif());
+        Utilisateur saved = repo.save(existing);
+
+        // 🔄 Rôle, statut, mot de passe ou email ont pu changer : principal à recharger
+        principalCache.invalider(ancienEmail);
+        principalCache.invalider(saved.getEmail());
+        return saved;
     }
 
     // ✅ Update profil du user connecté (sans toucher au rôle)
@@ -84,17 +94,22 @@ public class UtilisateurService {
         }
 
         // ❌ Pas de changement de rôle
-        return repo.save(existing);
+        Utilisateur saved = repo.save(existing);
+        principalCache.invalider(email);
+        principalCache.invalider(saved.getEmail());
+        return saved;
     }
 
     // ✅ SOLUTION 1 : Retourner boolean
     public boolean delete(Long id) {
         try {
-            if (!repo.existsById(id)) {
+            Optional<Utilisateur> existing = repo.findById(id);
+            if (existing.isEmpty()) {
                 return false; // Utilisateur non trouvé
             }
 
             repo.deleteById(id);
+            principalCache.invalider(existing.get().getEmail());
             return true; // Suppression réussie
 
         } catch (Exception e) {
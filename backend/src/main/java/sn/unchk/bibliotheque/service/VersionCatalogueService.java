@@ -0,0 +1,52 @@
+package sn.unchk.bibliotheque.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version du catalogue public : un compteur incrémenté après chaque écriture validée (catalogue,
+ * emprunts, recalculs nocturnes). L'ETag en est dérivé sans aucune requête, ce qui permet de
+ * répondre 304 avant d'exécuter le contrôleur.
+ * <p>
+ * Le compteur vit en mémoire : la génération (instant de démarrage) fait partie de l'ETag pour
+ * qu'un redémarrage invalide les copies en cache. Le jour courant en fait aussi partie, les
+ * classements sur 7 et 30 jours glissant à minuit sans écriture.
+ */
+@Service
+public class VersionCatalogueService {
+
+    private final String generation = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final CacheControl cacheControl;
+
+    // Public, mais revalidé à l'expiration (par défaut à chaque requête) : un 304 ne coûte presque rien
+    public VersionCatalogueService(@Value("${app.cache.catalogue-max-age:0}") long maxAge) {
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAge)).cachePublic().mustRevalidate();
+    }
+
+    public String etag() {
+        return "\"" + generation + "-" + version.get() + "-" + LocalDate.now().toEpochDay() + "\"";
+    }
+
+    public CacheControl cacheControl() {
+        return cacheControl;
+    }
+
+    // Après validation de la transaction : une réponse construite avant le commit garde l'ancien ETag
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogue(CatalogueEvent event) {
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmprunt(EmpruntEvent event) {
+        if (event.type() == EmpruntEvent.Type.RETARD) return; // rien de public ne change
+        version.incrementAndGet(); // disponibilité, compteurs d'emprunts, classements
+    }
+}
@@ -82,12 +82,21 @@ export default function LivresPage() {
   // 🔹 Fetch livres
   const fetchLivres = async () => {
     try {
-      const res = await fetch("http://localhost:8080/api/livres", {
-        headers: { Authorization: `Bearer ${token}` },
-      });
-      if (!res.ok) throw new Error("Erreur lors du chargement des livres");
-      const data: Livre[] = await res.json();
-      setLivres(data);
+      // Le catalogue est paginé par curseur : on enchaîne les pages pour le tableau admin
+      const tous: Livre[] = [];
+      let cursor: string | null = null;
+      do {
+        const params = new URLSearchParams({ limit: "100" });
+        if (cursor) params.set("cursor", cursor);
+        const res = await fetch(`http://localhost:8080/api/livres?${params.toString()}`, {
+          headers: { Authorization: `Bearer ${token}` },
+        });
+        if (!res.ok) throw new Error("Erreur lors du chargement des livres");
+        const data: { items: Livre[]; nextCursor: string | null } = await res.json();
+        tous.push(...data.items);
+        cursor = data.nextCursor;
+      } while (cursor);
+      setLivres(tous);
     } catch (err) {
       console.error(err);
       toast.error("Impossible de charger les livres");
@@ -49,7 +49,6 @@ const DropzoneComponent: React.FC<DropzoneProps> = ({ onFileUploaded }) => {
       "image/png": [],
       "image/jpeg": [],
       "image/webp": [],
-      "image/svg+xml": [],
     },
   });
 
@@ -81,7 +80,7 @@ const DropzoneComponent: React.FC<DropzoneProps> = ({ onFileUploaded }) => {
                       : "Glissez-déposez une image ou cliquez"}
                 </p>
                 <p className="text-sm text-gray-500 mt-2">
-                  PNG, JPG, WebP, SVG
+                  PNG, JPG, WebP
                 </p>
               </div>
           )}
@@ -16,6 +16,16 @@ type Livre = {
   nombreEmprunts?: number;
 };
 
+type ValeurFacette = { valeur: string; libelle: string; nombre: number };
+
+type Facettes = {
+  total: number;
+  categories: ValeurFacette[];
+  langues: ValeurFacette[];
+  decennies: ValeurFacette[];
+  disponibilite: ValeurFacette[];
+};
+
 const BooksPage = () => {
   const [books, setBooks] = useState<Livre[]>([]);
   const [search, setSearch] = useState("");
@@ -24,20 +34,30 @@ const BooksPage = () => {
   const [sortBy, setSortBy] = useState<string>("title");
   const [showFilters, setShowFilters] = useState(false);
 
-  // Charger les livres depuis le backend
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [facettes, setFacettes] = useState<Facettes | null>(null);
+
+  // Charger une page du catalogue (pagination par curseur, genre et disponibilité filtrés côté serveur)
+  const fetchBooks = async (cursor: string | null) => {
+    try {
+      const params = new URLSearchParams({ limit: "40" });
+      if (cursor) params.set("cursor", cursor);
+      if (availabilityFilter === "available") params.set("disponible", "true");
+      if (selectedCategory) params.set("categorieId", selectedCategory);
+      const res = await fetch(`http://localhost:8080/api/livres?${params.toString()}`);
+      if (!res.ok) throw new Error("Erreur backend");
+      const data = await res.json();
+      setBooks((prev) => (cursor ? [...prev, ...data.items] : data.items));
+      setNextCursor(data.nextCursor);
+      setFacettes(data.facettes);
+    } catch (err) {
+      console.error("Erreur de chargement :", err);
+    }
+  };
+
   useEffect(() => {
-    const fetchBooks = async () => {
-      try {
-        const res = await fetch("http://localhost:8080/api/livres");
-        if (!res.ok) throw new Error("Erreur backend");
-        const data = await res.json();
-        setBooks(data);
-      } catch (err) {
-        console.error("Erreur de chargement :", err);
-      }
-    };
-    fetchBooks();
-  }, []);
+    fetchBooks(null);
+  }, [availabilityFilter, selectedCategory]);
 
   // Filtrage et recherche
   const filteredBooks = books
@@ -46,9 +66,6 @@ const BooksPage = () => {
       (book.auteurNom || "").toLowerCase().includes(search.toLowerCase()) ||
       (book.categorieNom || "").toLowerCase().includes(search.toLowerCase())
     )
-    .filter((book) =>
-      selectedCategory ? book.categorieNom === selectedCategory : true
-    )
     .filter((book) => {
       if (availabilityFilter === "available") return book.disponible;
       return true; // "all" affiche tout
@@ -68,8 +85,9 @@ const BooksPage = () => {
       }
     });
 
-  // Catégories uniques
-  const categories = [...new Set(books.map(book => book.categorieNom).filter(Boolean))];
+  // Genres avec leur nombre de livres (facettes calculées par le serveur sur tout le catalogue)
+  const categories = facettes?.categories ?? [];
+  const selectedCategoryLabel = categories.find((c) => c.valeur === selectedCategory)?.libelle;
 
   const clearFilters = () => {
     setSelectedCategory("");
@@ -183,15 +201,15 @@ const BooksPage = () => {
                 <div className="flex flex-wrap gap-2">
                   {categories.map((category) => (
                     <button
-                      key={category}
-                      onClick={() => setSelectedCategory(selectedCategory === category ? "" : category)}
+                      key={category.valeur}
+                      onClick={() => setSelectedCategory(selectedCategory === category.valeur ? "" : category.valeur)}
                       className={`px-3 py-1 rounded-full text-sm transition-colors ${
-                        selectedCategory === category
+                        selectedCategory === category.valeur
                           ? "bg-amber-500 text-slate-900"
                           : "bg-slate-200 dark:bg-slate-600 text-slate-700 dark:text-slate-300 hover:bg-slate-300 dark:hover:bg-slate-500"
                       }`}
                     >
-                      {category}
+                      {category.libelle} ({category.nombre})
                     </button>
                   ))}
                 </div>
@@ -206,7 +224,7 @@ const BooksPage = () => {
         <div className="flex justify-between items-center mb-6">
           <div>
             <h2 className="text-xl font-bold text-blue-900 dark:text-blue-100">
-              Livres {selectedCategory && `- ${selectedCategory}`}
+              Livres {selectedCategoryLabel && `- ${selectedCategoryLabel}`}
             </h2>
             <p className="text-slate-600 dark:text-slate-400 text-sm">
               {filteredBooks.length} livre{filteredBooks.length > 1 ? "s" : ""} trouvé{filteredBooks.length > 1 ? "s" : ""}
@@ -260,6 +278,17 @@ const BooksPage = () => {
             </button>
           </div>
         )}
+
+        {nextCursor && (
+          <div className="text-center mt-8">
+            <button
+              onClick={() => fetchBooks(nextCursor)}
+              className="px-4 py-2 bg-blue-600 text-white rounded-lg hover:bg-blue-700 transition-colors text-sm"
+            >
+              Charger plus de livres
+            </button>
+          </div>
+        )}
       </section>
     </div>
   );
@@ -1,7 +1,7 @@
 "use client";
 import { useParams, useRouter } from "next/navigation";
 import { useAuth } from "../../context/AuthContext";
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
 import {
   Calendar, User, BookOpen, ArrowLeft,
   Star, MessageCircle, CheckCircle, ChevronRight
@@ -46,6 +46,9 @@ const BorrowPage = () => {
   const [isLoading, setIsLoading] = useState(true);
   const [isBorrowing, setIsBorrowing] = useState(false);
   const [showSuccess, setShowSuccess] = useState(false);
+  const [rangReservation, setRangReservation] = useState<number | null>(null);
+  // Même clé pour toutes les tentatives d'une demande : le serveur ne crée qu'un emprunt
+  const cleDemande = useRef<string | null>(null);
 
   useEffect(() => {
     const loadData = async () => {
@@ -59,9 +62,9 @@ const BorrowPage = () => {
         const dataAvis: Avis[] = await resAvis.json();
         setAvis(dataAvis);
 
-        const resSimilar = await fetch(`http://localhost:8080/api/livres/categorie/${dataBook.categorieId}`);
+        const resSimilar = await fetch(`http://localhost:8080/api/livres/${dataBook.id}/similaires?limit=6`);
         const dataSimilar: Livre[] = await resSimilar.json();
-        setSimilarBooks(dataSimilar.filter(b => b.id !== dataBook.id));
+        setSimilarBooks(dataSimilar);
       } catch (error) {
         console.error(error);
         router.push("/books");
@@ -85,14 +88,27 @@ const BorrowPage = () => {
       setIsBorrowing(true);
       const token = localStorage.getItem("token");
 
-      const res = await fetch("http://localhost:8080/api/emprunts/demander", {
-        method: "POST",
-        headers: {
-          "Authorization": `Bearer ${token}`,
-          "Content-Type": "application/json",
-        },
-        body: JSON.stringify({ livreId: book?.id }),
-      });
+      if (!cleDemande.current) cleDemande.current = crypto.randomUUID();
+
+      // Wi-Fi instable : on retente avec la même clé, une réponse perdue n'est pas une demande en double
+      let res: Response | null = null;
+      for (let tentative = 0; !res; tentative++) {
+        try {
+          res = await fetch("http://localhost:8080/api/emprunts/demander", {
+            method: "POST",
+            headers: {
+              "Authorization": `Bearer ${token}`,
+              "Content-Type": "application/json",
+              "Idempotency-Key": cleDemande.current,
+            },
+            body: JSON.stringify({ livreId: book?.id }),
+          });
+        } catch (error) {
+          if (tentative >= 2) throw error;
+          await new Promise((r) => setTimeout(r, 500 * (tentative + 1)));
+        }
+      }
+      cleDemande.current = null;
 
       if (res.ok) {
         const data = await res.json();
@@ -112,6 +128,41 @@ const BorrowPage = () => {
     }
   };
 
+  // 🔹 Livre indisponible : rejoindre la file d'attente au lieu de revenir vérifier
+  const reserveBook = async () => {
+    if (!user) {
+      alert("Vous devez être connecté pour réserver un livre !");
+      router.push("/login");
+      return;
+    }
+
+    try {
+      setIsBorrowing(true);
+      const token = localStorage.getItem("token");
+
+      const res = await fetch("http://localhost:8080/api/reservations", {
+        method: "POST",
+        headers: {
+          "Authorization": `Bearer ${token}`,
+          "Content-Type": "application/json",
+        },
+        body: JSON.stringify({ livreId: book?.id }),
+      });
+
+      const data = await res.json();
+      if (res.ok) {
+        setRangReservation(data.rang);
+      } else {
+        alert("Erreur lors de la réservation : " + data.message);
+      }
+    } catch (error) {
+      console.error("Erreur réseau :", error);
+      alert("Erreur réseau, veuillez réessayer.");
+    } finally {
+      setIsBorrowing(false);
+    }
+  };
+
   const submitReview = async () => {
     if (!userRating) {
       alert("Veuillez attribuer une note");
@@ -244,6 +295,17 @@ const BorrowPage = () => {
                   >
                     {isBorrowing ? "Traitement..." : "Emprunter ce livre"}
                   </button>
+                  {!book.disponible && (
+                    <button
+                      disabled={isBorrowing || rangReservation !== null}
+                      onClick={reserveBook}
+                      className="w-full lg:w-auto mt-3 lg:mt-0 lg:ml-3 px-8 py-4 rounded-xl text-blue-700 font-semibold border-2 border-blue-600 hover:bg-blue-50 transition-all text-lg"
+                    >
+                      {rangReservation !== null
+                        ? `Réservé : position ${rangReservation} dans la file`
+                        : "Réserver ce livre"}
+                    </button>
+                  )}
                 </div>
               </div>
             </div>
@@ -65,35 +65,16 @@ export default function Home() {
       try {
         setLoading(true);
 
-        // 📊 Statistiques
-        const statsResponse = await fetch("http://localhost:8080/api/stats");
-        const statsData = await statsResponse.json();
-        setMetrics(statsData);
-
-        // 📚 Nouveaux livres
-        const nouveauxResponse = await fetch("http://localhost:8080/api/livres/nouveaux");
-        const nouveauxData = await nouveauxResponse.json();
-        setLatestBooks(nouveauxData);
-
-        // 🔥 Livres populaires
-        const populairesResponse = await fetch("http://localhost:8080/api/livres/populaires");
-        const populairesData = await populairesResponse.json();
-        setMostBorrowed(populairesData);
-
-        // 🧑‍🏫 Auteurs en vedette
-        const auteursResponse = await fetch("http://localhost:8080/api/auteurs/vedette");
-        const auteursData = await auteursResponse.json();
-        setFeaturedAuthors(auteursData);
-
-        // 💬 Avis récents
-        const avisResponse = await fetch("http://localhost:8080/api/avis");
-        const avisData = await avisResponse.json();
-        setRecentReviews(avisData);
-
-        // 📂 Genres
-        const genresResponse = await fetch("http://localhost:8080/api/genres");
-        const genresData = await genresResponse.json();
-        setCategories(genresData);
+        // 🏠 Tous les blocs de la page d'accueil en une requête
+        const accueilResponse = await fetch("http://localhost:8080/api/accueil");
+        const accueil = await accueilResponse.json();
+
+        setMetrics(accueil.stats);               // 📊 Statistiques
+        setLatestBooks(accueil.nouveaux);        // 📚 Nouveaux livres
+        setMostBorrowed(accueil.populaires);     // 🔥 Livres populaires
+        setFeaturedAuthors(accueil.auteurs);     // 🧑‍🏫 Auteurs en vedette
+        setRecentReviews(accueil.avis);          // 💬 Avis récents
+        setCategories(accueil.genres);           // 📂 Genres
 
       } catch (error) {
         console.error("Erreur lors du chargement des données:", error);
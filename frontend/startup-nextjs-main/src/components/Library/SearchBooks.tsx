@@ -1,9 +1,53 @@
 "use client";
-import { useState } from "react";
+import { useEffect, useState } from "react";
+import { useRouter } from "next/navigation";
+
+interface Suggestion {
+  type: "TITRE" | "ISBN" | "AUTEUR";
+  id: number;
+  libelle: string;
+  detail: string | null;
+}
 
 export default function SearchBooks() {
+  const router = useRouter();
   const [search, setSearch] = useState("");
   const [genre, setGenre] = useState("");
+  const [suggestions, setSuggestions] = useState<Suggestion[]>([]);
+
+  // Suggestions à chaque frappe : le serveur complète le préfixe, rien n'est téléchargé d'avance
+  useEffect(() => {
+    const q = search.trim();
+    if (!q) {
+      setSuggestions([]);
+      return;
+    }
+    const controller = new AbortController();
+    const timer = setTimeout(async () => {
+      try {
+        const res = await fetch(
+          `http://localhost:8080/api/recherche/suggestions?q=${encodeURIComponent(q)}&limit=8`,
+          { signal: controller.signal }
+        );
+        if (res.ok) setSuggestions(await res.json());
+      } catch {
+        // Requête annulée par la frappe suivante
+      }
+    }, 120);
+    return () => {
+      clearTimeout(timer);
+      controller.abort();
+    };
+  }, [search]);
+
+  const choisir = (s: Suggestion) => {
+    setSuggestions([]);
+    if (s.type === "AUTEUR") {
+      setSearch(s.libelle);
+    } else {
+      router.push(`/borrow/${s.id}`);
+    }
+  };
 
   const handleSearch = () => {
     console.log("Recherche :", search, genre);
@@ -12,13 +56,32 @@ export default function SearchBooks() {
 
   return (
     <div className="bg-white p-6 rounded-lg shadow-md flex flex-col md:flex-row gap-4">
-      <input
-        type="text"
-        placeholder="Rechercher par titre ou auteur..."
-        value={search}
-        onChange={(e) => setSearch(e.target.value)}
-        className="border rounded-lg px-4 py-2 flex-1"
-      />
+      <div className="relative flex-1">
+        <input
+          type="text"
+          placeholder="Rechercher par titre, auteur ou ISBN..."
+          value={search}
+          onChange={(e) => setSearch(e.target.value)}
+          className="border rounded-lg px-4 py-2 w-full"
+        />
+        {suggestions.length > 0 && (
+          <ul className="absolute z-10 mt-1 w-full bg-white border rounded-lg shadow-lg">
+            {suggestions.map((s) => (
+              <li
+                key={`${s.type}-${s.id}`}
+                onClick={() => choisir(s)}
+                className="px-4 py-2 cursor-pointer hover:bg-blue-50"
+              >
+                <span className="text-xs text-gray-400 mr-2">
+                  {s.type === "AUTEUR" ? "Auteur" : s.type === "ISBN" ? "ISBN" : "Livre"}
+                </span>
+                <span className="font-medium">{s.libelle}</span>
+                {s.detail && <span className="text-sm text-gray-500"> — {s.detail}</span>}
+              </li>
+            ))}
+          </ul>
+        )}
+      </div>
       <select
         value={genre}
         onChange={(e) => setGenre(e.target.value)}